@@ -0,0 +1,198 @@
+package com.example.mylib.config;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.entities.Book;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.repository.BorrowRepo;
+import com.example.mylib.services.auth.JWTService;
+import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.warmup.WarmupTask;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the instance up before it takes traffic: loads the most borrowed books into the
+ * second-level cache, runs the catalog search, book mapping and JWT paths often enough for the
+ * JIT to compile them, and runs every {@link WarmupTask} bean. Everything runs in parallel.
+ * <p>
+ * Spring Boot only switches readiness to ACCEPTING_TRAFFIC after the ApplicationReadyEvent
+ * listeners return, so running synchronously here keeps a new instance out of the load balancer
+ * until it is warm. The whole phase is bounded by {@code startup.warmup.timeout}; whatever has
+ * not finished by then is cancelled and the instance starts serving anyway.
+ */
+@Component
+public class ApplicationStartupListener implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String WARMUP_SUBJECT = "warmup@localhost";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BookRepo bookRepo;
+    private final BorrowRepo borrowRepo;
+    private final BookService bookService;
+    private final ModelMapper modelMapper;
+    private final JWTService jwtService;
+    private final ObjectProvider<WarmupTask> warmupTasks;
+
+    @Value("${startup.warmup.enabled}")
+    private boolean enabled;
+
+    @Value("${startup.warmup.hot-books}")
+    private int hotBooks;
+
+    @Value("${startup.warmup.hot-book-window}")
+    private Duration hotBookWindow;
+
+    @Value("${startup.warmup.iterations}")
+    private int iterations;
+
+    @Value("${startup.warmup.search-queries}")
+    private int searchQueries;
+
+    @Value("${startup.warmup.timeout}")
+    private Duration timeout;
+
+    public ApplicationStartupListener(BookRepo bookRepo, BorrowRepo borrowRepo, BookService bookService,
+                                      ModelMapper modelMapper, JWTService jwtService, ObjectProvider<WarmupTask> warmupTasks) {
+        this.bookRepo = bookRepo;
+        this.borrowRepo = borrowRepo;
+        this.bookService = bookService;
+        this.modelMapper = modelMapper;
+        this.jwtService = jwtService;
+        this.warmupTasks = warmupTasks;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        List<WarmupTask> tasks = new ArrayList<>();
+        tasks.add(task("hot-books", this::warmUpCatalog));
+        tasks.add(task("jwt", this::warmUpJwt));
+        tasks.addAll(warmupTasks.orderedStream().toList());
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()),
+                runnable -> new Thread(runnable, "startup-warmup"));
+        try {
+            List<Callable<Void>> callables = tasks.stream().<Callable<Void>>map(task -> () -> {
+                long taskStarted = System.nanoTime();
+                task.warmUp();
+                logger.info("Warm-up task '{}' finished in {} ms", task.name(), elapsedMillis(taskStarted));
+                return null;
+            }).toList();
+            List<Future<Void>> results = executor.invokeAll(callables, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            for (int i = 0; i < results.size(); i++) {
+                report(tasks.get(i), results.get(i));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Warm-up interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.info("Warm-up completed in {} ms, accepting traffic", elapsedMillis(started));
+    }
+
+    // Loads the books borrowed most over the recent window (each load populates the "book"
+    // cache region), then maps and searches with them so those paths get compiled.
+    private void warmUpCatalog() {
+        List<Long> ids = borrowRepo.findMostBorrowedBookIdsSince(
+                LocalDate.now().minusDays(hotBookWindow.toDays()), PageRequest.of(0, hotBooks));
+        if (ids.isEmpty()) {
+            ids = bookRepo.findAll(PageRequest.of(0, Math.min(hotBooks, 100))).map(Book::getId).getContent();
+        }
+        List<Book> books = bookRepo.findAllById(ids);
+        logger.info("Preloaded {} hot books into the second-level cache", books.size());
+        if (books.isEmpty()) {
+            return;
+        }
+
+        int mapped = 0;
+        while (mapped < iterations) {
+            for (Book book : books) {
+                modelMapper.map(book, BookDTO.class);
+                if (++mapped >= iterations) {
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < iterations; i++) {
+            bookService.getBookDtoById(books.get(i % books.size()).getId());
+        }
+
+        Set<String> terms = new LinkedHashSet<>();
+        for (Book book : books) {
+            if (terms.size() >= searchQueries) {
+                break;
+            }
+            if (book.getTitle() != null && !book.getTitle().isBlank()) {
+                terms.add(book.getTitle().trim().split("\\s+")[0]);
+            }
+        }
+        terms.forEach(bookService::searchBooks);
+    }
+
+    // Token parsing and validation runs on every authenticated request through JwtFilter.
+    private void warmUpJwt() {
+        String token = jwtService.generateToken(WARMUP_SUBJECT);
+        UserDetails principal = User.withUsername(WARMUP_SUBJECT).password("").authorities("ROLE_WARMUP").build();
+        for (int i = 0; i < iterations; i++) {
+            jwtService.validateToken(token, principal);
+        }
+    }
+
+    private void report(WarmupTask task, Future<Void> result) {
+        try {
+            result.get();
+        } catch (CancellationException e) {
+            logger.warn("Warm-up task '{}' did not finish within {}", task.name(), timeout);
+        } catch (ExecutionException e) {
+            logger.warn("Warm-up task '{}' failed: {}", task.name(), e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static WarmupTask task(String name, Runnable body) {
+        return new WarmupTask() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public void warmUp() {
+                body.run();
+            }
+        };
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
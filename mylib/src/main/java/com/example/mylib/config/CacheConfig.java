@@ -0,0 +1,64 @@
+package com.example.mylib.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Second-level cache regions used by the @Cache annotations on the entities. Hibernate is set to
+ * fail on a region that is not created here, so every cached entity gets an explicit size bound.
+ * <p>
+ * Entries are node-local: the TTL bounds how long writes made by another instance go unseen.
+ * Acting on a stale entry is still safe because Book and BorrowRecord updates are version checked.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${cache.book.max-size}")
+    private long bookMaxSize;
+
+    @Value("${cache.book.ttl}")
+    private Duration bookTtl;
+
+    @Value("${cache.users.max-size}")
+    private long usersMaxSize;
+
+    @Value("${cache.users.ttl}")
+    private Duration usersTtl;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager();
+        createRegion(cacheManager, "book", bookMaxSize, bookTtl);
+        createRegion(cacheManager, "users", usersMaxSize, usersTtl);
+        // Role lists are read whenever a Users entry is assembled from the cache, so they share
+        // the users bounds and never outlive it.
+        createRegion(cacheManager, "user-roles", usersMaxSize, usersTtl);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private void createRegion(CacheManager cacheManager, String region, long maxSize, Duration ttl) {
+        if (cacheManager.getCache(region) != null) {
+            return;
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        cacheManager.createCache(region, configuration);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.mylib.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether read-only transactions may use the replica. Its replay lag is measured every
+ * {@code db.replica.lag-check-interval}; reads go back to the primary while the lag is above
+ * {@code db.replica.max-lag}, cannot be told, or the replica cannot be reached, and return to
+ * the replica on the first check that finds it caught up. Until that first check, reads use the
+ * primary.
+ * <p>
+ * The checks run on a thread of their own, not the @Scheduled pool, so a long rebuild or reconcile
+ * cannot hold them up; and a result older than {@value #STALE_AFTER_CHECKS} intervals counts as not
+ * usable, so reads never follow a measurement that has stopped being renewed.
+ */
+public class ReplicaLagMonitor implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    // Seconds behind the primary; 0 for a replica that has replayed all it received (an idle
+    // primary sends nothing, so the age of the last replayed commit alone would read as lag) and
+    // for a database that is not a standby at all, as when testing against a second local one
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private static final int STALE_AFTER_CHECKS = 3;
+
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+
+    private volatile boolean usable;
+    private volatile String status = "Replica lag not checked yet";
+    // System.nanoTime() of the last completed check
+    private volatile long checkedAt;
+    private volatile ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(DataSource replica, Duration maxLag, Duration checkTimeout, Duration checkInterval) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout((int) Math.max(1, checkTimeout.toSeconds()));
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+    }
+
+    public boolean isReplicaUsable() {
+        return usable && !isStale();
+    }
+
+    public String getStatus() {
+        return usable && isStale() ? "Replica lag not checked for over " + checkInterval.multipliedBy(STALE_AFTER_CHECKS)
+                + " (last: " + status + ")" : status;
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = scheduler;
+        scheduler = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // Never throws: an exception would cancel the schedule
+    void check() {
+        checkedAt = System.nanoTime();
+        Double seconds;
+        try {
+            seconds = replica.queryForObject(LAG_SQL, Double.class);
+        } catch (RuntimeException e) {
+            update(false, "Replica unreachable: " + e.getMessage());
+            return;
+        }
+        if (seconds == null) {
+            update(false, "Replica lag unknown: no transaction replayed yet");
+        } else if (seconds * 1000 > maxLag.toMillis()) {
+            update(false, "Replica lag %.3fs over %s".formatted(seconds, maxLag));
+        } else {
+            update(true, "Replica lag %.3fs".formatted(seconds));
+        }
+    }
+
+    // A replica connection that fails between checks sends reads to the primary until the next one
+    void replicaFailed(Exception e) {
+        update(false, "Replica unreachable: " + e.getMessage());
+    }
+
+    private boolean isStale() {
+        return System.nanoTime() - checkedAt > checkInterval.multipliedBy(STALE_AFTER_CHECKS).toNanos();
+    }
+
+    private void update(boolean nowUsable, String nowStatus) {
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("Read-only transactions use the replica ({})", nowStatus);
+            } else {
+                logger.warn("Read-only transactions fall back to the primary: {}", nowStatus);
+            }
+        }
+        usable = nowUsable;
+        status = nowStatus;
+    }
+}
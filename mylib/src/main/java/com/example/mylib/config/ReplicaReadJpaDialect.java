@@ -0,0 +1,46 @@
+package com.example.mylib.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+/**
+ * Keeps entities read in transactions the replica serves out of the second-level cache. They may
+ * come from a replica that has not yet replayed a write whose cache invalidation already arrived,
+ * and caching them would serve the old row for the region's whole TTL. They still read from the
+ * cache; only the primary fills it.
+ */
+class ReplicaReadJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!ReplicaRoutingDataSource.usesReplica(definition.getName(), definition.isReadOnly())) {
+            return transactionData;
+        }
+        // With open-in-view the session outlives the transaction, so its mode is put back after
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previous = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReadOnlyTransactionData(transactionData, session, previous);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReadOnlyTransactionData readOnly) {
+            readOnly.session().setCacheMode(readOnly.previous());
+            super.cleanupTransaction(readOnly.delegate());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReadOnlyTransactionData(Object delegate, Session session, CacheMode previous) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mylib.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Sends {@code @Transactional(readOnly = true)} work to a replica with its own pool when
+ * {@code db.replica.enabled=true}, so catalog browsing, histories and reports do not queue for
+ * the few primary connections that borrowing and returning need. Everything else, and read-only
+ * work while the replica lags (see {@link ReplicaLagMonitor}), uses the primary.
+ * <p>
+ * The primary pool is built here the way Spring Boot would ({@code spring.datasource.*}); the
+ * replica pool copies its settings apart from the {@code db.replica.*} ones. Two more settings
+ * make routing safe with open-in-view: connections are returned at the end of each transaction
+ * instead of being held by the request's session, so a write after a read in the same request
+ * gets a primary connection, and transactions the replica serves do not fill the second-level
+ * cache ({@link ReplicaReadJpaDialect}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName())) {
+            dataSource.setPoolName(properties.getName());
+        }
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                              @Value("${db.replica.url}") String url,
+                                              @Value("${db.replica.username}") String username,
+                                              @Value("${db.replica.password}") String password,
+                                              @Value("${db.replica.maximum-pool-size}") int maximumPoolSize,
+                                              @Value("${db.replica.connection-timeout}") Duration connectionTimeout)
+            throws SQLException {
+        if (!StringUtils.hasText(url)) {
+            throw new IllegalStateException("db.replica.enabled is set but db.replica.url is empty");
+        }
+        HikariConfig config = new HikariConfig();
+        primary.unwrap(HikariDataSource.class).copyStateTo(config);
+        config.setPoolName("replica");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(Math.min(config.getMinimumIdle(), maximumPoolSize));
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // A replica that is down at startup only means reads start on the primary
+        config.setInitializationFailTimeout(-1);
+        logger.info("Routing read-only transactions to the replica at {} ({} connections)", url, maximumPoolSize);
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replica,
+                                               @Value("${db.replica.max-lag}") Duration maxLag,
+                                               @Value("${db.replica.connection-timeout}") Duration connectionTimeout,
+                                               @Value("${db.replica.lag-check-interval}") Duration checkInterval) {
+        return new ReplicaLagMonitor(replica, maxLag, connectionTimeout, checkInterval);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, replicaLagMonitor));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer connectionReleaseCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public static BeanPostProcessor replicaReadJpaDialectPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof LocalContainerEntityManagerFactoryBean factoryBean) {
+                    factoryBean.setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.mylib.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to {@code @Transactional(readOnly = true)} service work while the
+ * {@link ReplicaLagMonitor} allows it, and primary connections to everything else.
+ * <p>
+ * The read-only flag is only known once the transaction has started, after JPA has asked for its
+ * connection, so this must sit behind a {@code LazyConnectionDataSourceProxy}, which fetches the
+ * real connection on the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private enum Target { PRIMARY, REPLICA }
+
+    private static final String SPRING_DATA_PACKAGE = "org.springframework.data.";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return usesReplica(TransactionSynchronizationManager.getCurrentTransactionName(),
+                TransactionSynchronizationManager.isCurrentTransactionReadOnly()) && lagMonitor.isReplicaUsable()
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+
+    /**
+     * Whether a transaction is one the replica serves: read-only, and declared by the application.
+     * Spring Data runs each repository finder in a read-only transaction of its own, so lookups
+     * made outside a service transaction (a book by id, a user signing in) would otherwise read
+     * the replica too; they stay on the primary, see their own writes and keep filling the
+     * second-level cache.
+     */
+    static boolean usesReplica(String transactionName, boolean readOnly) {
+        return readOnly && transactionName != null && !transactionName.startsWith(SPRING_DATA_PACKAGE);
+    }
+
+    // A replica gone since the last lag check costs the reads one failed checkout, not an error
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.REPLICA) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                lagMonitor.replicaFailed(e);
+            }
+        }
+        return primary.getConnection();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.mylib.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Guardrails for {@code spring.threads.virtual.enabled=true}, under which Spring Boot runs Tomcat
+ * requests, @Async methods and @Scheduled jobs on virtual threads instead of bounded pools.
+ * The pool's only remaining bound is then the number of open HTTP connections, so checkouts go
+ * through a {@link ConnectionLimitingDataSource} sized to the Hikari pool.
+ */
+@Configuration
+public class VirtualThreadConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari)
+                        || !environment.getProperty("db.connection-limit.enabled", Boolean.class, false)) {
+                    return bean;
+                }
+                Duration timeout = environment.getProperty("db.connection-limit.timeout", Duration.class,
+                        Duration.ofMillis(hikari.getConnectionTimeout()));
+                logger.info("Limiting concurrent database connection checkouts to {} (timeout {})",
+                        hikari.getMaximumPoolSize(), timeout);
+                return new ConnectionLimitingDataSource(hikari, hikari.getMaximumPoolSize(), timeout);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.mylib.controllers.User;
+
+import com.example.mylib.services.dashboard.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/users")
+@RequiredArgsConstructor
+public class DashboardController {
+
+    private final DashboardService dashboardService;
+
+    // Active loans, borrow history, reservations and fine total for the home page in one call;
+    // only for the user themselves, or an admin
+    @GetMapping("/{userId}/dashboard")
+    @PreAuthorize("hasRole('ADMIN') or #userId == principal.user.id")
+    public ResponseEntity<?> getDashboard(@PathVariable Long userId) {
+        try {
+            return ResponseEntity.ok(dashboardService.getUserDashboard(userId));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Failed to load dashboard: " + e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.example.mylib.controllers.User;
 import com.example.mylib.dto.*;
 import com.example.mylib.services.User.MyUserDetailsService;
 import com.example.mylib.services.auth.JWTService;
+import com.example.mylib.services.borrow.BorrowHistoryVersions;
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
 import com.example.mylib.services.impl.UserServiceImpl;
 import com.example.mylib.entities.Users;
 import com.example.mylib.services.mail.EmailHelper;
@@ -53,6 +56,12 @@ public class UserController {
     @Autowired
     private JWTService jwtService;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private BorrowHistoryVersions borrowHistoryVersions;
+
     // @GetMapping("/")
     // public String greet() {
     // return "hello";
@@ -191,17 +200,7 @@ public class UserController {
         try {
             List<Users> users = userService.getAllUsers();
             List<UserDTO> userDTOs = users.stream()
-                    .map(user -> {
-                        UserDTO dto = new UserDTO();
-                        dto.setId(user.getId());
-                        dto.setEmail(user.getEmail());
-                        dto.setName(user.getName());
-                        dto.setPhoneNumber(user.getPhoneNumber());
-                        dto.setRoleList(user.getRoleList());
-                        dto.setProfilePic(user.getProfilePic());
-                        dto.setEnabled(user.isEnabled());
-                        return dto;
-                    })
+                    .map(UserDTO::from)
                     .collect(Collectors.toList());
             return ResponseEntity.ok(userDTOs);
         } catch (Exception e) {
@@ -242,6 +241,8 @@ public class UserController {
 
             // Check if email is updated
             boolean emailChanged = !existingUser.getEmail().equals(userData.getEmail());
+            // Borrow histories show the reader's name
+            boolean nameChanged = !Objects.equals(existingUser.getName(), userData.getName());
 
             // Update fields
             existingUser.setName(userData.getName());
@@ -258,6 +259,10 @@ public class UserController {
 
             // Save the updated user
             Users updatedUser = userService.saveUser(existingUser);
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.USER_UPDATED, userId));
+            if (nameChanged) {
+                borrowHistoryVersions.changed(userId);
+            }
 
             // Generate a new JWT token if email was changed
             String newJwtToken = null;
@@ -271,7 +276,7 @@ public class UserController {
                 response.header(HttpHeaders.AUTHORIZATION, "Bearer " + newJwtToken);
             }
 
-            return response.body(updatedUser);
+            return response.body(UserDTO.from(updatedUser));
         } catch (Exception e) {
             logger.error("Failed to update user details for ID: " + userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -345,11 +350,12 @@ public class UserController {
             // Enable the user
             user.setEnabled(true);
             Users updatedUser = userService.saveUser(user);
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.USER_ENABLED_CHANGED, userId));
 
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "User account enabled successfully",
-                    "user", updatedUser));
+                    "user", UserDTO.from(updatedUser)));
         } catch (Exception e) {
             logger.error("Failed to enable user with ID: " + userId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -384,6 +390,7 @@ public class UserController {
 
             user.setEnabled(true);
             Users updatedUser = userService.saveUser(user);
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.USER_ENABLED_CHANGED, updatedUser.getId()));
 
             logger.info("Successfully enabled user with email: {}", email);
             return ResponseEntity.ok(Map.of(
@@ -446,6 +453,7 @@ public class UserController {
             // Update password using userService
             user.setPassword(newPassword); // userService will encode the password
             Users savedUser = userService.saveUser(user);
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.USER_UPDATED, savedUser.getId()));
 
             logger.info("Password reset successful for user: {}", email);
 
@@ -472,17 +480,7 @@ public class UserController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "User not found"));
         }
-        Users user = userOptional.get();
-        UserDTO userDTO = new UserDTO();
-        userDTO.setId(user.getId());
-        userDTO.setEmail(user.getEmail());
-        userDTO.setName(user.getName());
-        userDTO.setPhoneNumber(user.getPhoneNumber());
-        userDTO.setRoleList(user.getRoleList());
-        userDTO.setProfilePic(user.getProfilePic());
-        userDTO.setEnabled(user.isEnabled());
-
-        return ResponseEntity.ok(userDTO);
+        return ResponseEntity.ok(UserDTO.from(userOptional.get()));
     }
 
     @PostMapping("{userId}/profile-image")
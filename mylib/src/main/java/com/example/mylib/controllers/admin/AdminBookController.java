@@ -1,27 +1,35 @@
 package com.example.mylib.controllers.admin;
 
+import com.example.mylib.dto.BookCopyDTO;
 import com.example.mylib.dto.BookDTO;
 import com.example.mylib.exceptions.ResourceNotFoundException;
 import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.inventory.InventoryService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
 import java.util.UUID;
 
+// Outside /api/admin, so SecurityConfig's ADMIN rule does not cover it
 @RestController
 @RequestMapping("/admin/book")
+@PreAuthorize("hasRole('ADMIN')")
 @RequiredArgsConstructor
 public class AdminBookController {
 
     @Autowired
     private BookService bookService;
+    @Autowired
+    private InventoryService inventoryService;
     Logger logger = LoggerFactory.getLogger(this.getClass());
 
     @PostMapping("/add")
@@ -62,6 +70,10 @@ public class AdminBookController {
                                       @RequestParam(value = "file", required = false) MultipartFile coverImage) {
         try {
             logger.debug("Updating book ID: {} with ISBN: {}", bookId, bookDTO.getIsbn());
+            if (bookDTO.getVersion() == null) {
+                // Edits are checked against the version the client loaded; see updateBookById
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The version of the book edited is required.");
+            }
 
             if (coverImage != null && !coverImage.isEmpty()) {
                 String tempFileName = UUID.randomUUID().toString();
@@ -74,6 +86,11 @@ public class AdminBookController {
             logger.debug("Book updated successfully");
             return ResponseEntity.ok(updatedBook);
 
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // The book changed since the client read it, by another edit or a borrow or return
+            logger.debug("Stale update of book {}: {}", bookId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("This book has changed since it was loaded. Reload it and try again.");
         } catch (IllegalArgumentException e) {
             // Handle validation errors (like duplicate ISBN)
             logger.debug("Validation error while updating book: {}", e.getMessage());
@@ -105,5 +122,27 @@ public class AdminBookController {
         }
     }
 
+    // Physical copies of a book, with their barcodes, shelves and status
+    @GetMapping("/{bookId}/copies")
+    public ResponseEntity<?> getCopies(@PathVariable Long bookId) {
+        try {
+            return ResponseEntity.ok(inventoryService.getCopies(bookId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        }
+    }
+
+    // Registers a copy on the shelf; without a barcode one is generated, without a location the book's is used
+    @PostMapping("/{bookId}/copies")
+    public ResponseEntity<?> addCopy(@PathVariable Long bookId, @RequestBody BookCopyDTO copy) {
+        try {
+            return ResponseEntity.ok(inventoryService.addCopy(bookId, copy));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
     // Book Reservation
 }
@@ -0,0 +1,120 @@
+package com.example.mylib.controllers.admin;
+
+import com.example.mylib.enums.ExportFormat;
+import com.example.mylib.services.export.ExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped CSV / NDJSON downloads of the circulation data and the catalog. The body is written
+ * while the rows are read, so these are safe on tables of any size, unlike the JSON listings.
+ * <p>
+ * Each export holds a database connection until the client has downloaded the file, for up to
+ * {@code spring.mvc.async.request-timeout}, so at most {@code export.max-concurrent} run at once;
+ * more get 429 rather than take the connections borrowing and logging in need.
+ */
+@RestController
+@RequestMapping("/api/admin/export")
+public class ExportController {
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private final ExportService exportService;
+    private final Semaphore running;
+
+    public ExportController(ExportService exportService, @Value("${export.max-concurrent}") int maxConcurrent) {
+        this.exportService = exportService;
+        this.running = new Semaphore(maxConcurrent);
+    }
+
+    @GetMapping("/borrow-records")
+    public ResponseEntity<StreamingResponseBody> exportBorrowRecords(@RequestParam(defaultValue = "csv") String format,
+                                                        NativeWebRequest request) {
+        return export(request, "borrow-records", format, exportService::exportBorrowRecords);
+    }
+
+    @GetMapping("/fines")
+    public ResponseEntity<StreamingResponseBody> exportFines(@RequestParam(defaultValue = "csv") String format,
+                                                        NativeWebRequest request) {
+        return export(request, "fines", format, exportService::exportFines);
+    }
+
+    @GetMapping("/catalog")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(defaultValue = "csv") String format,
+                                                        NativeWebRequest request) {
+        return export(request, "catalog", format, exportService::exportCatalog);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(NativeWebRequest request, String name, String format,
+                                                         Exporter exporter) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            byte[] message = ("Unknown export format: " + format).getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(message));
+        }
+        if (!running.tryAcquire()) {
+            byte[] message = "Too many exports are running; try again when one has finished"
+                    .getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write(message));
+        }
+        // The permit is held until the body has been written, or has failed to be. The body may
+        // never run (its task rejected, the request timed out or the client gone before it
+        // started), so the end of the request releases it too; whichever comes first does
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                running.release();
+            }
+        };
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportController.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                        release.run();
+                    }
+                });
+        String filename = name + "-" + LocalDate.now() + "." + exportFormat.getExtension() + ".gz";
+        StreamingResponseBody body = out -> {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE)) {
+                exporter.export(exportFormat, gzip);
+            } finally {
+                release.run();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        long export(ExportFormat format, OutputStream out) throws IOException;
+    }
+}
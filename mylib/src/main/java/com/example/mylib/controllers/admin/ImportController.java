@@ -0,0 +1,58 @@
+package com.example.mylib.controllers.admin;
+
+import com.example.mylib.dto.BookImportReportDTO;
+import com.example.mylib.enums.BookFeedFormat;
+import com.example.mylib.enums.BookImportMode;
+import com.example.mylib.services.ingest.BookImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+
+/**
+ * Bulk catalog loads from vendor feeds. The feed is the raw request body ({@code text/csv} or
+ * MARCXML as {@code application/marcxml+xml} / {@code application/xml}) and is read as it
+ * arrives, so there is no upload size limit and nothing is buffered to disk.
+ * {@code ?mode=upsert} also updates books whose ISBN is already in the catalog (full refresh).
+ * <pre>
+ * curl -X POST -H 'Content-Type: text/csv' --data-binary @feed.csv .../api/admin/import/books?mode=upsert
+ * </pre>
+ */
+@RestController
+@RequestMapping("/api/admin/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final BookImportService bookImportService;
+
+    @PostMapping(value = "/books", consumes = {"text/csv", "application/marcxml+xml", "application/xml", "text/xml"})
+    public ResponseEntity<?> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         @RequestParam(defaultValue = "insert") String mode,
+                                         InputStream feed) {
+        BookImportMode importMode;
+        try {
+            importMode = BookImportMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Unknown import mode: " + mode);
+        }
+        try {
+            BookImportReportDTO report = bookImportService.importBooks(feed, BookFeedFormat.fromContentType(contentType),
+                    importMode);
+            // The feed itself was unreadable past some point; what came before it was imported
+            return report.getAborted() == null
+                    ? ResponseEntity.ok(report)
+                    : ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(report);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error importing books: " + e.getMessage());
+        }
+    }
+}
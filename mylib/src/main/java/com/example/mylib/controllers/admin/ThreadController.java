@@ -0,0 +1,27 @@
+package com.example.mylib.controllers.admin;
+
+import com.example.mylib.services.threads.PinningMonitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/threads")
+@RequiredArgsConstructor
+public class ThreadController {
+
+    private final PinningMonitor pinningMonitor;
+
+    @GetMapping("/pinning")
+    public ResponseEntity<?> getPinningSites() {
+        try {
+            return ResponseEntity.ok(pinningMonitor.getPinningSites());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error fetching pinning report: " + e.getMessage());
+        }
+    }
+}
@@ -1,34 +1,37 @@
 package com.example.mylib.controllers.admin.health;
 
+import com.example.mylib.dto.HealthStatusDTO;
+import com.example.mylib.enums.HealthState;
+import com.example.mylib.services.health.HealthService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import jakarta.annotation.PostConstruct;
-
 @RestController
 @RequestMapping("/api/")
 public class HealthController {
 
-    private final HealthRepo healthRepo;
+    private final HealthService healthService;
 
-    public HealthController(HealthRepo healthRepo) {
-        this.healthRepo = healthRepo;
+    public HealthController(HealthService healthService) {
+        this.healthService = healthService;
     }
 
-    @RequestMapping("/health")
-    public ResponseEntity<Health> getHealth() {
-        Health health = healthRepo.findById(1L).orElse(new Health(1L, "UP", "Service is running"));
-        return ResponseEntity.ok(health);
+    // Kept for existing monitors; same answer as the liveness probe
+    @GetMapping({"/health", "/health/live"})
+    public ResponseEntity<HealthStatusDTO> getLiveness() {
+        return toResponse(healthService.getLiveness());
     }
 
+    @GetMapping("/health/ready")
+    public ResponseEntity<HealthStatusDTO> getReadiness() {
+        return toResponse(healthService.getReadiness());
+    }
 
-    // PostConstruct is a special annotation in Spring (and Java EE) used to mark a method that should run once automatically after the bean is fully initialized, i.e., after all dependencies are injected
-    @PostConstruct
-    public void initHealthRecord() {
-        if(healthRepo.findById(1L).isEmpty()){
-            Health health = new Health(1L, "UP", "Service is running");
-            healthRepo.save(health);
-        }
+    private ResponseEntity<HealthStatusDTO> toResponse(HealthStatusDTO status) {
+        HttpStatus httpStatus = status.getState() == HealthState.DOWN ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+        return ResponseEntity.status(httpStatus).body(status);
     }
 }
@@ -1,10 +0,0 @@
-package com.example.mylib.controllers.admin.health;
-
-
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-
-@Repository
-public interface HealthRepo extends JpaRepository<Health, Long> {
-
-}
@@ -1,5 +1,6 @@
 package com.example.mylib.controllers.auth;
 
+import com.example.mylib.dto.UserDTO;
 import com.example.mylib.services.auth.JWTService;
 import com.example.mylib.services.User.MyUserDetailsService;
 import com.example.mylib.entities.Users;
@@ -44,7 +45,7 @@ public class AuthController {
     public ResponseEntity<?> registerUser(@RequestBody Users user) {
         try {
             Users registeredUser = userService.saveUser(user);
-            return ResponseEntity.ok(registeredUser);
+            return ResponseEntity.ok(UserDTO.from(registeredUser));
         } catch (Exception e) {
             logger.error("User registration failed", e); // log full error for debugging
 
@@ -1,13 +1,25 @@
 package com.example.mylib.controllers.book;
 
 import com.example.mylib.dto.BookDTO;
+import com.example.mylib.enums.BookFacet;
+import com.example.mylib.exceptions.ResourceNotFoundException;
+import com.example.mylib.exceptions.UnknownFieldException;
 import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.catalog.CatalogViewService;
+import com.example.mylib.services.inventory.InventoryService;
+import com.example.mylib.services.search.FacetIndex;
+import com.example.mylib.services.search.FacetedSearchService;
+import com.example.mylib.services.search.SuggestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/book")
@@ -15,36 +27,186 @@ public class BookController {
 
     @Autowired
     private BookService bookService;
+    @Autowired
+    private SuggestionService suggestionService;
+    @Autowired
+    private FacetedSearchService facetedSearchService;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private CatalogViewService catalogViewService;
 
     @GetMapping("/{bookId}")
-    public ResponseEntity<BookDTO> getBook(@PathVariable Long bookId) {
-        System.out.println(bookId);
-        BookDTO bookDTO = bookService.getBookDtoById(bookId);
-        return ResponseEntity.ok(bookDTO);
+    public ResponseEntity<BookDTO> getBook(@PathVariable Long bookId, WebRequest request) {
+        return ConditionalGet.of(bookService.getBookDtoByIdIfModified(bookId, request::checkNotModified));
+    }
+
+    // Copies on the shelf at each branch holding any
+    @GetMapping("/{bookId}/availability")
+    public ResponseEntity<?> getAvailability(@PathVariable Long bookId) {
+        try {
+            return ResponseEntity.ok(inventoryService.availabilityByBranch(bookId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch availability");
+        }
+    }
+
+    // A book with its circulation figures, from the catalog read model
+    @GetMapping("/{bookId}/card")
+    public ResponseEntity<?> getCard(@PathVariable Long bookId) {
+        try {
+            return ResponseEntity.ok(catalogViewService.getCard(bookId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch book");
+        }
+    }
+
+    // Catalog cards in book id order
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getCatalog(@RequestParam(defaultValue = "0") int page,
+                                        @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("page must be >= 0 and size 1 to 100");
+        }
+        try {
+            return ResponseEntity.ok(catalogViewService.getCards(page, size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch books");
+        }
     }
 
     @GetMapping("/all-books")
-    public ResponseEntity<?> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) List<String> fields, WebRequest request) {
         try {
-            List<BookDTO> bookDtos = bookService.getAllBookDtos();
-            return ResponseEntity.status(HttpStatus.OK).body(bookDtos);
+            if (fields != null) {
+                return ResponseEntity.ok(bookService.getAllBookFields(fields));
+            }
+            return ConditionalGet.of(bookService.getAllBookDtosIfModified(request::checkNotModified));
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e){
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch books");
         }
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchBooks(@RequestParam String query) {
+    public ResponseEntity<?> searchBooks(@RequestParam String query,
+                                         @RequestParam(required = false) List<String> fields,
+                                         @RequestParam(defaultValue = "false") boolean fuzzy) {
         try {
-            List<BookDTO> bookDtos = bookService.searchBooks(query);
+            if (fields != null) {
+                return ResponseEntity.ok(fuzzy
+                        ? bookService.searchBookFieldsFuzzy(query, fields)
+                        : bookService.searchBookFields(query, fields));
+            }
+            List<BookDTO> bookDtos = fuzzy ? bookService.searchBooksFuzzy(query) : bookService.searchBooks(query);
             return ResponseEntity.ok(bookDtos);
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("Error searching books: " + e.getMessage());
         }
     }
 
-    // search books
+    // Filter sidebar: a page of the matching books plus book counts per category, language,
+    // publisher and edition. Repeat a parameter to select several values of a facet
+    @GetMapping("/facets")
+    public ResponseEntity<?> searchFaceted(@RequestParam(required = false) String query,
+                                           @RequestParam(required = false) List<String> category,
+                                           @RequestParam(required = false) List<String> language,
+                                           @RequestParam(required = false) List<String> publisher,
+                                           @RequestParam(required = false) List<String> edition,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("page must be >= 0 and size 1 to 100");
+        }
+        try {
+            Map<BookFacet, List<String>> selected = new EnumMap<>(BookFacet.class);
+            selected.put(BookFacet.CATEGORY, values(category));
+            selected.put(BookFacet.LANGUAGE, values(language));
+            selected.put(BookFacet.PUBLISHER, values(publisher));
+            selected.put(BookFacet.EDITION, values(edition));
+            return ResponseEntity.ok(facetedSearchService.search(query, selected, page, size));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error searching books: " + e.getMessage());
+        }
+    }
 
+    // "Books by this author": look the author up by name, then page through their books
+    @GetMapping("/authors")
+    public ResponseEntity<?> getAuthor(@RequestParam String name) {
+        try {
+            return ResponseEntity.ok(bookService.getAuthorByName(name));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch author");
+        }
+    }
+
+    @GetMapping("/authors/{authorId}/books")
+    public ResponseEntity<?> getBooksByAuthor(@PathVariable Long authorId,
+                                              @RequestParam(defaultValue = "0") int page,
+                                              @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("page must be >= 0 and size 1 to 100");
+        }
+        try {
+            return ResponseEntity.ok(bookService.getBooksByAuthor(authorId, page, size));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch books");
+        }
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<?> getCategories() {
+        try {
+            return ResponseEntity.ok(bookService.getCategories());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch categories");
+        }
+    }
+
+    @GetMapping("/categories/{categoryId}/books")
+    public ResponseEntity<?> getBooksByCategory(@PathVariable Long categoryId,
+                                                @RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("page must be >= 0 and size 1 to 100");
+        }
+        try {
+            return ResponseEntity.ok(bookService.getBooksByCategory(categoryId, page, size));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot fetch books");
+        }
+    }
+
+    // Typeahead: titles and authors with a word starting with the prefix, most borrowed first
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String prefix,
+                                     @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(suggestionService.suggest(prefix, limit));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error suggesting books: " + e.getMessage());
+        }
+    }
+
+    private static List<String> values(List<String> parameter) {
+        return parameter == null ? List.of()
+                : parameter.stream().map(FacetIndex::valueOf).filter(Objects::nonNull).distinct().toList();
+    }
 
 }
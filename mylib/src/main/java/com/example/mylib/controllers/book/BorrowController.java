@@ -4,11 +4,13 @@ import com.example.mylib.dto.ApiResponse;
 import com.example.mylib.dto.BorrowRecordDTO;
 import com.example.mylib.entities.BorrowRecord;
 import com.example.mylib.exceptions.ResourceNotFoundException;
+import com.example.mylib.exceptions.UnknownFieldException;
 import com.example.mylib.services.borrow.BorrowService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -19,11 +21,12 @@ public class BorrowController {
 
     private final BorrowService borrowService;
 
-    //  User requests to borrow a book (Admin must approve)
+    //  User requests to borrow a book at a branch, the default one if not given (Admin must approve)
     @PostMapping("/request/{userId}/{bookId}")
-    public ResponseEntity<?> requestBorrow(@PathVariable Long userId, @PathVariable Long bookId) {
+    public ResponseEntity<?> requestBorrow(@PathVariable Long userId, @PathVariable Long bookId,
+                                           @RequestParam(required = false) String branch) {
         try {
-            BorrowRecord borrowRecord = borrowService.requestBorrow(userId, bookId);
+            BorrowRecord borrowRecord = borrowService.requestBorrow(userId, bookId, branch);
             return ResponseEntity.ok("Borrow request submitted. Waiting for admin approval.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -72,47 +75,65 @@ public class BorrowController {
 
     //  Get borrow history for a specific user (User & Admin)
     @GetMapping("/history/{userId}")
-    public ResponseEntity<List<BorrowRecordDTO>> getBorrowHistory(@PathVariable Long userId) {
-        return ResponseEntity.ok(borrowService.getBorrowHistory(userId));
+    public ResponseEntity<?> getBorrowHistory(@PathVariable Long userId,
+                                              @RequestParam(required = false) List<String> fields,
+                                              WebRequest request) {
+        try {
+            if (fields != null) {
+                return ResponseEntity.ok(borrowService.getBorrowHistoryFields(userId, fields));
+            }
+            return ConditionalGet.of(borrowService.getBorrowHistoryIfModified(userId, request::checkNotModified));
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     //  Get active borrows for a specific user (User & Admin)
     @GetMapping("/active/{userId}")
-    public ResponseEntity<List<BorrowRecordDTO>> getActiveBorrows(@PathVariable Long userId) {
-        return ResponseEntity.ok(borrowService.getActiveBorrows(userId));
+    public ResponseEntity<?> getActiveBorrows(@PathVariable Long userId,
+                                              @RequestParam(required = false) List<String> fields) {
+        try {
+            if (fields != null) {
+                return ResponseEntity.ok(borrowService.getActiveBorrowFields(userId, fields));
+            }
+            return ResponseEntity.ok(borrowService.getActiveBorrows(userId));
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
-    //  Get all borrow records (Admin only)
+    //  Get all borrow records, or those of one branch (Admin only)
     @GetMapping("/admin/all")
-    public ResponseEntity<List<BorrowRecordDTO>> getAllBorrows() {
-        return ResponseEntity.ok(borrowService.getAllBorrows());
+    public ResponseEntity<?> getAllBorrows(@RequestParam(required = false) List<String> fields,
+                                           @RequestParam(required = false) String branch) {
+        try {
+            if (fields != null) {
+                return ResponseEntity.ok(borrowService.getAllBorrowFields(fields, branch));
+            }
+            return ResponseEntity.ok(borrowService.getAllBorrows(branch));
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     //  Get borrow record by ID (User & Admin)
     @GetMapping("/{borrowRecordId}")
-    public ResponseEntity<BorrowRecord> getBorrowRecordById(@PathVariable Long borrowRecordId) {
-        return ResponseEntity.ok(borrowService.getBorrowRecordById(borrowRecordId));
+    public ResponseEntity<BorrowRecordDTO> getBorrowRecordById(@PathVariable Long borrowRecordId) {
+        return ResponseEntity.ok(borrowService.getBorrowRecordDtoById(borrowRecordId));
     }
 
     // Get borrow history for a specific book (Admin only)
     @GetMapping("/book/{bookId}/history")
-    public ResponseEntity<List<BorrowRecordDTO>> getBookBorrowHistory(@PathVariable Long bookId) {
-        List<BorrowRecord> borrowRecords = borrowService.getBookBorrowHistory(bookId);
-        List<BorrowRecordDTO> dtos = borrowRecords.stream()
-            .map(record -> {
-                BorrowRecordDTO dto = new BorrowRecordDTO();
-                dto.setId(record.getId());
-                dto.setUserName(record.getUser().getName());
-                dto.setBookId(record.getBook().getId());
-                dto.setBookTitle(record.getBook().getTitle());
-                dto.setUserId(record.getUser().getId());
-                dto.setIssueDate(record.getIssueDate());
-                dto.setDueDate(record.getDueDate());
-                dto.setStatus(record.getStatus());
-                return dto;
-            })
-            .toList();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<?> getBookBorrowHistory(@PathVariable Long bookId,
+                                                  @RequestParam(required = false) List<String> fields) {
+        try {
+            if (fields != null) {
+                return ResponseEntity.ok(borrowService.getBookBorrowHistoryFields(bookId, fields));
+            }
+            return ResponseEntity.ok(borrowService.getBookBorrowHistory(bookId));
+        } catch (UnknownFieldException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     // Cancel a borrow request
@@ -143,7 +164,7 @@ public class BorrowController {
             @PathVariable Long borrowRecordId,
             @RequestBody BorrowRecordDTO updateData) {
         try {
-            BorrowRecord updatedRecord = borrowService.updateBorrowRecord(borrowRecordId, updateData);
+            BorrowRecordDTO updatedRecord = borrowService.updateBorrowRecord(borrowRecordId, updateData);
             return ResponseEntity.ok(updatedRecord);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -0,0 +1,26 @@
+package com.example.mylib.controllers.book;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Optional;
+
+/**
+ * Responses to conditional GETs of endpoints the frontend polls. The service has already passed the
+ * ETag to {@code WebRequest.checkNotModified}, which sets the header; an empty body means the client's
+ * copy is current and gets a bodiless 304. Both tell the browser it may keep the response but must
+ * revalidate it each time, instead of the no-store Spring Security sends by default.
+ */
+final class ConditionalGet {
+
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGet() {
+    }
+
+    static <T> ResponseEntity<T> of(Optional<T> body) {
+        return body.map(value -> ResponseEntity.ok().cacheControl(REVALIDATE).body(value))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).build());
+    }
+}
@@ -21,9 +21,9 @@ public class ReservationController {
     private final UserService userService;
 
     @GetMapping("/all")
-    public ResponseEntity<?> getAllReservations() {
+    public ResponseEntity<?> getAllReservations(@RequestParam(required = false) String branch) {
         try {
-            return ResponseEntity.ok(reservationService.getAllReservations());
+            return ResponseEntity.ok(reservationService.getAllReservations(branch));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("Failed to fetch all reservations.");
@@ -52,13 +52,14 @@ public class ReservationController {
     }
 
     @PostMapping("/user/{userId}/{bookId}")
-    public ResponseEntity<?> reserveBook(@PathVariable Long userId, @PathVariable Long bookId) {
+    public ResponseEntity<?> reserveBook(@PathVariable Long userId, @PathVariable Long bookId,
+                                         @RequestParam(required = false) String branch) {
         try {
             if(!borrowService.isEligibleToBorrow(userId, bookId)) {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("You have already borrowed this book"); 
             }
-            reservationService.createReservation(userId, bookId);
+            reservationService.createReservation(userId, bookId, branch);
             return ResponseEntity.status(HttpStatus.CREATED)
                 .body("Reservation request created.");
         } catch (Exception e) {
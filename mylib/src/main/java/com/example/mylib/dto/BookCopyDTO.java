@@ -0,0 +1,18 @@
+package com.example.mylib.dto;
+
+import com.example.mylib.enums.CopyStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookCopyDTO {
+    private Long id;
+    private Long bookId;
+    private String barcode;
+    private String branch;
+    private String location;
+    private CopyStatus status;
+}
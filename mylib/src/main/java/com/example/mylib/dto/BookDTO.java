@@ -31,4 +31,5 @@ public class BookDTO {
     private Integer pageCount;
     private String price;
     private String location;
+    private Long version;
 }
@@ -0,0 +1,14 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportErrorDTO {
+    private long record;        // 1-based position of the record in the feed
+    private String isbn;
+    private String message;
+}
@@ -0,0 +1,29 @@
+package com.example.mylib.dto;
+
+import com.example.mylib.enums.BookFeedFormat;
+import com.example.mylib.enums.BookImportMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookImportReportDTO {
+    private BookFeedFormat format;
+    private BookImportMode mode;
+    private long recordsRead;
+    private long inserted;
+    private long updated;           // UPSERT: existing books whose fields changed
+    private long unchanged;         // UPSERT: existing books the feed matched exactly
+    private long duplicates;        // INSERT: ISBN already in the catalog or earlier in the feed; UPSERT: repeated in the feed
+    private long rejected;          // Unparseable or invalid records, including failed chunks
+    private List<BookImportErrorDTO> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private String aborted;         // Why reading stopped before the end of the feed, if it did
+    private long durationMillis;
+    private double rowsPerSecond;   // Records read per second, end to end
+}
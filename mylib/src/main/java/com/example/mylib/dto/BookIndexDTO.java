@@ -0,0 +1,21 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Year;
+
+// The fields of a book the in-memory catalog indexes are built from
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookIndexDTO {
+    private Long id;
+    private String title;
+    private String author;
+    private String category;
+    private String language;
+    private String publisher;
+    private Year edition;
+}
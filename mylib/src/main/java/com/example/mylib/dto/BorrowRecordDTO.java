@@ -22,4 +22,7 @@ public class BorrowRecordDTO {
     private double fineAmount;
     private BorrowStatus status;
     private boolean finePaid;
+    // Of the copy lent or held; null before the request is approved
+    private String copyBarcode;
+    private String branch;
 }
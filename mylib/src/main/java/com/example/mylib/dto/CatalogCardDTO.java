@@ -0,0 +1,22 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// A book as catalog listings show it, with its circulation figures from book_catalog_view
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogCardDTO {
+    private Long bookId;
+    private String title;
+    private String author;
+    private String coverUrl;
+    private int availableCopies;
+    private int waitlistLength;
+    private LocalDate nextDueDate; // earliest due date of a lent copy; null when none is out
+    private long borrowCount;
+}
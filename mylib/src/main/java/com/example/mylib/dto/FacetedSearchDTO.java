@@ -0,0 +1,18 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetedSearchDTO {
+    private long total;                                 // books matching the query and every filter
+    private List<BookDTO> books;                        // the requested page of them, in catalog order
+    private Map<String, List<FacetCountDTO>> facets;    // by facet parameter, most books first
+    private boolean complete;                           // false if the text match ran out of time
+}
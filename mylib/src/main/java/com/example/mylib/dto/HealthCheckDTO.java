@@ -0,0 +1,18 @@
+package com.example.mylib.dto;
+
+import com.example.mylib.enums.HealthState;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HealthCheckDTO {
+    private String name;
+    private HealthState state;
+    private String detail;
+    private Instant checkedAt;
+}
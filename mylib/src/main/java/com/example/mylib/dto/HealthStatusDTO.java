@@ -0,0 +1,16 @@
+package com.example.mylib.dto;
+
+import com.example.mylib.enums.HealthState;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HealthStatusDTO {
+    private HealthState state;
+    private List<HealthCheckDTO> checks;
+}
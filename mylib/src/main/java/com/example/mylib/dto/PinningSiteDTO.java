@@ -0,0 +1,17 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PinningSiteDTO {
+    private List<String> stackTrace;
+    private long count;
+    private double totalMillis;
+    private double maxMillis;
+}
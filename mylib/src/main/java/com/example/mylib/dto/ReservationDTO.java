@@ -18,4 +18,5 @@ public class ReservationDTO {
     private String userName;
     private ReservationType status;
     private LocalDateTime createdAt;
+    private String branch;
 }
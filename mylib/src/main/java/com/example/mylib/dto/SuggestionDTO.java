@@ -0,0 +1,16 @@
+package com.example.mylib.dto;
+
+import com.example.mylib.enums.SuggestionType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionDTO {
+    private String text;
+    private SuggestionType type;
+    private Long bookId;        // null for authors
+    private long score;         // borrows of the book, or of all the author's books
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -20,4 +21,11 @@ public class UserDTO {
     private String profilePic;
     private boolean enabled;
     // Getters & Setters
+
+    // Response view of a user; never exposes the password hash or tokens
+    public static UserDTO from(Users user) {
+        return new UserDTO(user.getId(), user.getEmail(), user.getName(), user.getPhoneNumber(),
+                user.getRoleList() == null ? null : new ArrayList<>(user.getRoleList()),
+                user.getProfilePic(), user.isEnabled());
+    }
 }
@@ -0,0 +1,21 @@
+package com.example.mylib.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserDashboardDTO {
+    private Long userId;
+    private List<BorrowRecordDTO> activeBorrows;
+    private List<BorrowRecordDTO> borrowHistory;
+    private List<ReservationDTO> reservations;
+    private Double totalFine;
+    // Sections left null because their query failed or ran past the timeout, with the reason
+    private Map<String, String> incomplete;
+}
@@ -0,0 +1,29 @@
+package com.example.mylib.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Rows are added by BookDimensionRepo from the books' author column, never through JPA
+@Entity
+@Table(name = "library_authors")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Author {
+
+    @Id
+    @Column(name = "author_id", updatable = false, nullable = false)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "author_seq")
+    @SequenceGenerator(name = "author_seq", sequenceName = "library_authors_seq", allocationSize = 50)
+    private Long id;
+
+    // As first spelled in the catalog
+    @Column(length = 1000, nullable = false)
+    private String name;
+
+    // catalog_name_key(name): lower case, whitespace collapsed
+    @Column(name = "name_key", length = 1000, nullable = false, unique = true)
+    private String nameKey;
+}
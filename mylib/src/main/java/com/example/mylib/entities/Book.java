@@ -5,15 +5,20 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Table(name = "library_books")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -21,7 +26,8 @@ public class Book {
 
     @Id
     @Column(name = "book_id", length = 36, updatable = false, nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "library_books_seq", allocationSize = 50)
     private Long id;
 
     @Column(length = 500)
@@ -75,4 +81,20 @@ public class Book {
     @JsonIgnore
     private List<Reservation> reservations = new ArrayList<>();
 
+    // Parsed from author and category by BookDimensionRepo, which writes the link tables; mapped
+    // here for queries only, so leave the collections unchanged
+    @ManyToMany
+    @JoinTable(name = "library_book_authors",
+            joinColumns = @JoinColumn(name = "book_id"),
+            inverseJoinColumns = @JoinColumn(name = "author_id"))
+    @JsonIgnore
+    private Set<Author> authors = new HashSet<>();
+
+    @ManyToMany
+    @JoinTable(name = "library_book_categories",
+            joinColumns = @JoinColumn(name = "book_id"),
+            inverseJoinColumns = @JoinColumn(name = "category_id"))
+    @JsonIgnore
+    private Set<Category> categories = new HashSet<>();
+
 }
@@ -0,0 +1,40 @@
+package com.example.mylib.entities;
+
+import com.example.mylib.enums.CopyStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A physical copy of a Book. Rows are added and claimed by InventoryServiceImpl; status changes
+// only under the row lock of the claim, so there is no version column.
+@Entity
+@Table(name = "library_book_copies")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookCopy {
+
+    @Id
+    @Column(name = "copy_id", updatable = false, nullable = false)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_copy_seq")
+    @SequenceGenerator(name = "book_copy_seq", sequenceName = "library_book_copies_seq", allocationSize = 1)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false, updatable = false)
+    private Book book;
+
+    @Column(length = 50, nullable = false, unique = true)
+    private String barcode;
+
+    @Column(length = 100, nullable = false)
+    private String branch;
+
+    @Column(length = 255)
+    private String location;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private CopyStatus status;
+}
@@ -19,7 +19,8 @@ public class BorrowRecord {
 
     @Id
     @Column(name = "borrow_record_id", length = 36, updatable = false, nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "borrow_record_seq")
+    @SequenceGenerator(name = "borrow_record_seq", sequenceName = "borrow_records_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -31,6 +32,15 @@ public class BorrowRecord {
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
+    // The copy lent or held for the reader; null while a direct request awaits approval
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "copy_id")
+    private BookCopy copy;
+
+    // Where the book is lent from; copies are claimed at this branch
+    @Column(length = 100, nullable = false)
+    private String branch;
+
     private LocalDate issueDate;
     private LocalDate dueDate;
     private LocalDate returnDate;
@@ -46,6 +56,9 @@ public class BorrowRecord {
     @Column(name = "reservation_created_at")
     private LocalDateTime reservationCreatedAt;
 
+    @Version
+    private Long version;
+
     // Custom getter/setter for isFromReservation to match the field name
     public boolean isFromReservation() {
         return fromReservation != null && fromReservation;
@@ -0,0 +1,29 @@
+package com.example.mylib.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Rows are added by BookDimensionRepo from the books' category column, never through JPA
+@Entity
+@Table(name = "library_categories")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Category {
+
+    @Id
+    @Column(name = "category_id", updatable = false, nullable = false)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "library_categories_seq", allocationSize = 50)
+    private Long id;
+
+    // As first spelled in the catalog
+    @Column(length = 255, nullable = false)
+    private String name;
+
+    // catalog_name_key(name): lower case, whitespace collapsed
+    @Column(name = "name_key", length = 255, nullable = false, unique = true)
+    private String nameKey;
+}
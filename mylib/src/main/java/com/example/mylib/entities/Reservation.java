@@ -17,7 +17,8 @@ public class Reservation {
 
     @Id
     @Column(name = "reservation_id", length = 36, updatable = false, nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "book_reservation_seq", allocationSize = 50)
     private Long id ;
 
     @ManyToOne
@@ -32,6 +33,10 @@ public class Reservation {
     @Column(name = "status", length = 20)
     private ReservationType status;
 
+    // The branch the reader waits at; only copies returned there are allocated to it
+    @Column(length = 100, nullable = false)
+    private String branch;
+
     private Integer reservations;
 
     @Column(name = "created_at", updatable = false)
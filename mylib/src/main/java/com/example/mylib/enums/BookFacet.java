@@ -0,0 +1,15 @@
+package com.example.mylib.enums;
+
+import java.util.Locale;
+
+public enum BookFacet {
+    CATEGORY,
+    LANGUAGE,
+    PUBLISHER,
+    EDITION;    // The edition year, as text
+
+    // The request parameter and key in FacetedSearchDTO.facets
+    public String getParameter() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
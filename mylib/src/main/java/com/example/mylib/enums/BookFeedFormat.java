@@ -0,0 +1,19 @@
+package com.example.mylib.enums;
+
+import org.springframework.http.MediaType;
+
+public enum BookFeedFormat {
+    CSV,        // Header row naming BookDTO properties, as written by the catalog export
+    MARCXML;    // MARC 21 slim <collection> of <record>s
+
+    public static BookFeedFormat fromContentType(MediaType contentType) {
+        String subtype = contentType.getSubtype().toLowerCase();
+        if (subtype.equals("csv")) {
+            return CSV;
+        }
+        if (subtype.equals("xml") || subtype.endsWith("+xml")) {
+            return MARCXML;
+        }
+        throw new IllegalArgumentException("Unsupported feed content type: " + contentType);
+    }
+}
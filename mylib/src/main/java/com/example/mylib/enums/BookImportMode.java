@@ -0,0 +1,6 @@
+package com.example.mylib.enums;
+
+public enum BookImportMode {
+    INSERT,     // Add books whose ISBN is new; leave existing ones untouched
+    UPSERT;     // Full refresh: add new books and overwrite the bibliographic fields of existing ones
+}
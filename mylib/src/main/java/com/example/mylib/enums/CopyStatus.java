@@ -0,0 +1,8 @@
+package com.example.mylib.enums;
+
+public enum CopyStatus {
+    AVAILABLE,  // On the shelf, free to lend
+    ON_HOLD,    // Set aside for a reader whose reservation came up, awaiting approval
+    ON_LOAN,    // With a borrower
+    WITHDRAWN   // Taken out of circulation
+}
@@ -0,0 +1,22 @@
+package com.example.mylib.enums;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),                     // Header row, then one line per record
+    NDJSON("application/x-ndjson", "ndjson");   // One JSON object per line
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
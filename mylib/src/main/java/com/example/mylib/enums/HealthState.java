@@ -0,0 +1,7 @@
+package com.example.mylib.enums;
+
+public enum HealthState {
+    UP,         // Check passed
+    DEGRADED,   // Serving, but close to a limit (e.g. connection pool saturated)
+    DOWN;       // Instance should not receive traffic
+}
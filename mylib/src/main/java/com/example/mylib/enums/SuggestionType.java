@@ -0,0 +1,6 @@
+package com.example.mylib.enums;
+
+public enum SuggestionType {
+    TITLE,      // A book; the suggestion carries its id
+    AUTHOR;
+}
@@ -0,0 +1,7 @@
+package com.example.mylib.exceptions;
+
+public class InvalidBookRecordException extends RuntimeException {
+    public InvalidBookRecordException(String message) {
+        super(message);
+    }
+}
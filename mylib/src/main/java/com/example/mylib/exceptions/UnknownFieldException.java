@@ -0,0 +1,7 @@
+package com.example.mylib.exceptions;
+
+public class UnknownFieldException extends RuntimeException {
+    public UnknownFieldException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.entities.Author;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AuthorRepo extends JpaRepository<Author, Long> {
+
+    // Ignoring case and extra whitespace, by the unique name_key index
+    @Query("SELECT a FROM Author a WHERE a.nameKey = function('catalog_name_key', :name)")
+    Optional<Author> findByName(@Param("name") String name);
+}
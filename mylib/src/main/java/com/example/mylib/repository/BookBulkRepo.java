@@ -0,0 +1,268 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.dto.BookDTO;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk writes to {@code library_books} for catalog loads, bypassing the persistence context and
+ * the second-level cache: JDBC batch inserts of new books, and a COPY-based upsert for full
+ * refreshes. Both link the books they write to their authors and categories ({@link BookDimensionRepo})
+ * and put new books' copies on the shelf ({@link BookInventoryRepo#stock}) in the same transaction.
+ * Callers must invalidate cached books themselves (see {@code CacheInvalidationEvent}).
+ * <p>
+ * IDs come from {@code library_books_seq} the way Hibernate's pooled-lo optimizer takes them
+ * (each nextval reserves {@code [value, value + 50)}), so they never collide with IDs the
+ * application assigns.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookBulkRepo {
+
+    // Must match the allocationSize of Book's book_seq and the sequence's INCREMENT BY
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String INSERT = "INSERT INTO library_books (book_id, title, author, category, available, "
+            + "publisher, isbn, edition, language, publication_date, cover_url, quantity, page_count, price, location, "
+            + "version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String COPY_STAGING = "COPY book_import_staging (seq, book_id, title, author, category, "
+            + "available, publisher, isbn, edition, language, publication_date, cover_url, quantity, page_count, "
+            + "price, location) FROM STDIN WITH (FORMAT csv)";
+
+    // Columns an upsert overwrites where the feed has a value; quantity and available belong to circulation
+    private static final List<String> UPSERT_COLUMNS = List.of("title", "author", "category", "publisher", "edition",
+            "language", "publication_date", "page_count", "price", "cover_url", "location");
+
+    // Last record per ISBN wins; the WHERE skips rows that would not change
+    private static final String MERGE = "INSERT INTO library_books AS b (book_id, title, author, category, available, "
+            + "publisher, isbn, edition, language, publication_date, cover_url, quantity, page_count, price, location, "
+            + "version) "
+            + "SELECT DISTINCT ON (isbn) book_id, title, author, category, available, publisher, isbn, edition, "
+            + "language, publication_date, cover_url, quantity, page_count, price, location, 0 "
+            + "FROM book_import_staging ORDER BY isbn, seq DESC "
+            + "ON CONFLICT (isbn) DO UPDATE SET "
+            + String.join(", ", UPSERT_COLUMNS.stream().map(column -> column + " = " + merged(column)).toList())
+            + ", version = COALESCE(b.version, 0) + 1 "
+            + "WHERE (" + String.join(", ", UPSERT_COLUMNS.stream().map(column -> "b." + column).toList()) + ") "
+            + "IS DISTINCT FROM (" + String.join(", ", UPSERT_COLUMNS.stream().map(BookBulkRepo::merged).toList()) + ") "
+            + "RETURNING b.book_id, (b.xmax = 0) AS inserted";
+
+    // Borrow histories show book titles: readers of books the merge retitles get their history
+    // version bumped (see BorrowHistoryVersionRepo), locking them in id order like it does
+    private static final String BUMP_RETITLED_BORROWERS = "UPDATE users SET borrows_version = borrows_version + 1 "
+            + "WHERE user_id IN (SELECT user_id FROM users WHERE user_id IN ("
+            + "SELECT r.user_id FROM borrow_records r JOIN library_books b ON b.book_id = r.book_id "
+            + "JOIN (SELECT DISTINCT ON (isbn) isbn, title FROM book_import_staging ORDER BY isbn, seq DESC) s "
+            + "ON s.isbn = b.isbn WHERE s.title IS NOT NULL AND s.title IS DISTINCT FROM b.title) "
+            + "ORDER BY user_id FOR UPDATE)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookDimensionRepo bookDimensionRepo;
+    private final BookInventoryRepo bookInventoryRepo;
+
+    /** Inserts the books in one transaction and sets their ids. */
+    @Transactional
+    public void insertAll(List<BookDTO> books) {
+        assignIds(books);
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookDTO book = books.get(i);
+                ps.setLong(1, book.getId());
+                ps.setString(2, book.getTitle());
+                ps.setString(3, book.getAuthor());
+                ps.setString(4, book.getCategory());
+                ps.setBoolean(5, book.isAvailable());
+                ps.setString(6, book.getPublisher());
+                ps.setString(7, book.getIsbn());
+                ps.setObject(8, book.getEdition() == null ? null : book.getEdition().getValue(), Types.INTEGER);
+                ps.setString(9, book.getLanguage());
+                ps.setObject(10, book.getPublicationDate(), Types.DATE);
+                ps.setString(11, book.getCoverUrl());
+                ps.setInt(12, book.getQuantity());
+                ps.setObject(13, book.getPageCount(), Types.INTEGER);
+                ps.setString(14, book.getPrice());
+                ps.setString(15, book.getLocation());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return books.size();
+            }
+        });
+        bookDimensionRepo.link(books.stream().map(BookDTO::getId).toList());
+        bookInventoryRepo.stock(books.stream().map(BookDTO::getId).toList());
+    }
+
+    /**
+     * Inserts or updates every book, matching on ISBN, in one transaction: the books are COPYed
+     * into a temporary staging table chunk by chunk, then merged with a single
+     * {@code INSERT ... ON CONFLICT (isbn) DO UPDATE}. When an ISBN repeats, its last record wins.
+     * <p>
+     * An update replaces the bibliographic columns the feed has a value for, and keeps quantity
+     * and availability, which circulation maintains. Rows whose columns would not change are left
+     * alone; changed rows get their version bumped, so a
+     * concurrent edit through JPA fails its optimistic lock instead of overwriting the load.
+     *
+     * @param maxChangedIds how many changed ids to return; past that only the counts are kept
+     */
+    @Transactional
+    public UpsertResult upsertAll(Iterator<BookDTO> books, int chunkSize, int maxChangedIds) {
+        jdbcTemplate.execute("CREATE TEMP TABLE book_import_staging (seq bigint NOT NULL, LIKE library_books) "
+                + "ON COMMIT DROP");
+        long staged = 0;
+        List<BookDTO> chunk = new ArrayList<>(chunkSize);
+        while (books.hasNext()) {
+            chunk.add(books.next());
+            if (chunk.size() == chunkSize || !books.hasNext()) {
+                assignIds(chunk);
+                copyToStaging(chunk, staged);
+                staged += chunk.size();
+                chunk.clear();
+            }
+        }
+        Long distinct = jdbcTemplate.queryForObject("SELECT count(DISTINCT isbn) FROM book_import_staging", Long.class);
+
+        // Before the merge, while the old titles can still be compared
+        jdbcTemplate.update(BUMP_RETITLED_BORROWERS);
+        UpsertResult result = new UpsertResult(staged, distinct == null ? 0 : distinct, maxChangedIds);
+        List<Long> merged = new ArrayList<>();
+        jdbcTemplate.query(MERGE, (ResultSet rs) -> {
+            result.add(rs.getLong(1), rs.getBoolean(2));
+            merged.add(rs.getLong(1));
+        });
+        bookDimensionRepo.link(merged);
+        bookInventoryRepo.stock(merged);
+        return result;
+    }
+
+    private void copyToStaging(List<BookDTO> books, long firstSeq) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+            try {
+                StringBuilder line = new StringBuilder(256);
+                for (int i = 0; i < books.size(); i++) {
+                    BookDTO book = books.get(i);
+                    line.setLength(0);
+                    line.append(firstSeq + i).append(',').append(book.getId());
+                    csv(line, book.getTitle());
+                    csv(line, book.getAuthor());
+                    csv(line, book.getCategory());
+                    line.append(',').append(book.isAvailable());
+                    csv(line, book.getPublisher());
+                    csv(line, book.getIsbn());
+                    line.append(',').append(book.getEdition() == null ? "" : book.getEdition().getValue());
+                    csv(line, book.getLanguage());
+                    line.append(',').append(book.getPublicationDate() == null ? "" : book.getPublicationDate());
+                    csv(line, book.getCoverUrl());
+                    line.append(',').append(book.getQuantity());
+                    line.append(',').append(book.getPageCount() == null ? "" : book.getPageCount());
+                    csv(line, book.getPrice());
+                    csv(line, book.getLocation());
+                    line.append('\n');
+                    byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                    copy.writeToCopy(bytes, 0, bytes.length);
+                }
+                return copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    private static String merged(String column) {
+        return "COALESCE(EXCLUDED." + column + ", b." + column + ")";
+    }
+
+    // COPY csv: an unquoted empty field is NULL, so every non-null string is quoted
+    private static void csv(StringBuilder line, String value) {
+        line.append(',');
+        if (value != null) {
+            line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    // pooled-lo: one nextval per block of ID_BLOCK_SIZE books, fetched in one round trip
+    private void assignIds(List<BookDTO> books) {
+        List<Long> blocks = jdbcTemplate.queryForList(
+                "SELECT nextval('library_books_seq') FROM generate_series(1, ?)", Long.class,
+                (books.size() + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE);
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(blocks.get(i / ID_BLOCK_SIZE) + i % ID_BLOCK_SIZE);
+        }
+    }
+
+    public static final class UpsertResult {
+        private final long staged;
+        private final long distinct;
+        private final int maxChangedIds;
+        private long inserted;
+        private long updated;
+        private List<Long> changedIds = new ArrayList<>();
+
+        UpsertResult(long staged, long distinct, int maxChangedIds) {
+            this.staged = staged;
+            this.distinct = distinct;
+            this.maxChangedIds = maxChangedIds;
+        }
+
+        void add(long id, boolean wasInserted) {
+            if (wasInserted) {
+                inserted++;
+            } else {
+                updated++;
+            }
+            if (changedIds != null) {
+                changedIds.add(id);
+                if (changedIds.size() > maxChangedIds) {
+                    changedIds = null;
+                }
+            }
+        }
+
+        // Records sent, including repeated ISBNs
+        public long getStaged() {
+            return staged;
+        }
+
+        // Distinct ISBNs among them
+        public long getDistinct() {
+            return distinct;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getUnchanged() {
+            return distinct - inserted - updated;
+        }
+
+        // Ids of inserted and updated books, or null if there were more than maxChangedIds
+        public List<Long> getChangedIds() {
+            return changedIds;
+        }
+    }
+}
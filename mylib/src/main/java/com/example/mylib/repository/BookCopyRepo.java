@@ -0,0 +1,42 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.dto.BookCopyDTO;
+import com.example.mylib.entities.BookCopy;
+import com.example.mylib.enums.CopyStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface BookCopyRepo extends JpaRepository<BookCopy, Long> {
+
+    // Locks up to a page of the book's copies in the status, skipping copies another transaction
+    // holds (lock timeout -2 is SKIP LOCKED), so concurrent checkouts of a title each take a
+    // different copy instead of queueing on the same one. Must run inside a transaction.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT c FROM BookCopy c WHERE c.book.id = :bookId AND c.branch = :branch AND c.status = :status")
+    List<BookCopy> lockUnclaimed(@Param("bookId") Long bookId, @Param("branch") String branch,
+                                 @Param("status") CopyStatus status, Pageable pageable);
+
+    long countByBookIdAndBranchAndStatus(Long bookId, String branch, CopyStatus status);
+
+    boolean existsByBookIdAndBranchAndStatusNot(Long bookId, String branch, CopyStatus status);
+
+    // [branch, copies] of the book's copies in the status
+    @Query("SELECT c.branch, COUNT(c) FROM BookCopy c WHERE c.book.id = :bookId AND c.status = :status "
+            + "GROUP BY c.branch ORDER BY c.branch")
+    List<Object[]> countByBranch(@Param("bookId") Long bookId, @Param("status") CopyStatus status);
+
+    @Query("SELECT new com.example.mylib.dto.BookCopyDTO(c.id, c.book.id, c.barcode, c.branch, c.location, c.status) "
+            + "FROM BookCopy c WHERE c.book.id = :bookId ORDER BY c.id")
+    List<BookCopyDTO> findDtosByBookId(@Param("bookId") Long bookId);
+}
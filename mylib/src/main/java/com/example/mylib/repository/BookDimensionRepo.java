@@ -0,0 +1,71 @@
+package com.example.mylib.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the {@code Author} and {@code Category} links of books in step with their free-text
+ * {@code author} and {@code category} columns, which the API and bulk loads write. Every writer of
+ * those columns calls {@link #link} with the books it touched; the statements are the ones the V6
+ * migration backfilled with, so a name is split on ';' and matched on {@code catalog_name_key}.
+ * <p>
+ * Set-based SQL rather than entities: an import links thousands of books in three statements per
+ * dimension, and a name two transactions add at once is settled by the unique key
+ * ({@code ON CONFLICT DO NOTHING}) instead of failing one of them.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BookDimensionRepo {
+
+    private static final List<Dimension> DIMENSIONS = List.of(
+            new Dimension("library_authors", "author_id", "library_book_authors", "author"),
+            new Dimension("library_categories", "category_id", "library_book_categories", "category"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Links the books to the authors and categories their columns name, adding any new ones. */
+    @Transactional
+    public void link(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        for (Dimension dimension : DIMENSIONS) {
+            for (String sql : dimension.statements()) {
+                jdbcTemplate.update(sql, ps -> {
+                    Array ids = ps.getConnection().createArrayOf("bigint", bookIds.toArray());
+                    ps.setArray(1, ids);
+                });
+            }
+        }
+    }
+
+    private record Dimension(String table, String idColumn, String linkTable, String bookColumn) {
+
+        // Each takes the book ids as its only parameter
+        List<String> statements() {
+            String names = "FROM library_books b, regexp_split_to_table(b." + bookColumn + ", ';') AS part ";
+            return List.of(
+                    // Names not seen before; the first spelling wins
+                    "INSERT INTO " + table + " (name, name_key) "
+                            + "SELECT DISTINCT ON (catalog_name_key(part)) btrim(part), catalog_name_key(part) "
+                            + names + "WHERE b.book_id = ANY(?) AND catalog_name_key(part) <> '' "
+                            + "ORDER BY catalog_name_key(part), b.book_id "
+                            + "ON CONFLICT (name_key) DO NOTHING",
+                    // Links to names the column no longer has
+                    "DELETE FROM " + linkTable + " l USING " + table + " d "
+                            + "WHERE l." + idColumn + " = d." + idColumn + " AND l.book_id = ANY(?) "
+                            + "AND NOT EXISTS (SELECT 1 " + names
+                            + "WHERE b.book_id = l.book_id AND catalog_name_key(part) = d.name_key)",
+                    "INSERT INTO " + linkTable + " (book_id, " + idColumn + ") "
+                            + "SELECT DISTINCT b.book_id, d." + idColumn + " " + names + ", " + table + " d "
+                            + "WHERE b.book_id = ANY(?) AND d.name_key = catalog_name_key(part) "
+                            + "ON CONFLICT DO NOTHING");
+        }
+    }
+}
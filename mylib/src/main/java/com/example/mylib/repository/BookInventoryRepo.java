@@ -0,0 +1,101 @@
+package com.example.mylib.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based writes to {@code library_book_copies}, and the {@code library_books.quantity}
+ * aggregate over them. Copies added here get a barcode from {@code library_copy_barcode} (V7) and
+ * the book's shelf location, at the branch given or else {@code library.default-branch}. Callers
+ * must invalidate cached books whose quantity changed (see {@code CacheInvalidationEvent}).
+ */
+@Repository
+public class BookInventoryRepo {
+
+    private static final String INSERT_COPIES = "INSERT INTO library_book_copies (copy_id, book_id, barcode, "
+            + "branch, location, status) "
+            + "SELECT copy_id, book_id, COALESCE(?, library_copy_barcode(copy_id)), ?, COALESCE(?, location), "
+            + "'AVAILABLE' FROM (SELECT nextval('library_book_copies_seq') AS copy_id, b.book_id, b.location ";
+
+    // Books whose cached quantity differs from their count of copies on the shelf
+    private static final String REFRESH_QUANTITIES = "UPDATE library_books b SET quantity = counted.available, "
+            + "version = COALESCE(b.version, 0) + 1 "
+            + "FROM (SELECT b.book_id, count(*) FILTER (WHERE c.status = 'AVAILABLE') AS available "
+            + "FROM library_books b LEFT JOIN library_book_copies c ON c.book_id = b.book_id %s "
+            + "GROUP BY b.book_id) counted "
+            + "WHERE b.book_id = counted.book_id AND b.quantity <> counted.available "
+            + "RETURNING b.book_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String defaultBranch;
+
+    public BookInventoryRepo(JdbcTemplate jdbcTemplate, @Value("${library.default-branch}") String defaultBranch) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.defaultBranch = defaultBranch;
+    }
+
+    /**
+     * Puts {@code quantity} copies on the shelf for each of the books that has no copies yet, so
+     * a book created with a quantity gets that many copies. Books with copies are left alone.
+     */
+    @Transactional
+    public void stock(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_COPIES + "FROM library_books b, generate_series(1, b.quantity) "
+                + "WHERE b.book_id = ANY(?) AND NOT EXISTS "
+                + "(SELECT 1 FROM library_book_copies c WHERE c.book_id = b.book_id)) AS shelved", ps -> {
+            ps.setString(1, null);
+            ps.setString(2, defaultBranch);
+            ps.setString(3, null);
+            ps.setArray(4, ids(ps.getConnection(), bookIds));
+        });
+    }
+
+    /**
+     * Adds copies of a book on the shelf and returns their ids.
+     *
+     * @param barcode  the barcode, only for a single copy; null to generate one
+     * @param branch   null for the default branch
+     * @param location null for the book's location
+     */
+    @Transactional
+    public List<Long> addCopies(long bookId, int count, String barcode, String branch, String location) {
+        if (barcode != null && count != 1) {
+            throw new IllegalArgumentException("A barcode identifies a single copy");
+        }
+        return jdbcTemplate.queryForList(INSERT_COPIES + "FROM library_books b, generate_series(1, ?) "
+                        + "WHERE b.book_id = ?) AS added RETURNING copy_id", Long.class,
+                barcode, branch == null ? defaultBranch : branch, location, count, bookId);
+    }
+
+    /** Recounts the given books' copies on the shelf into their quantity; returns the ids changed. */
+    @Transactional
+    public List<Long> refreshQuantities(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(REFRESH_QUANTITIES.formatted("WHERE b.book_id = ANY(?)"),
+                ps -> ps.setArray(1, ids(ps.getConnection(), bookIds)),
+                (rs, row) -> rs.getLong(1));
+    }
+
+    /** As {@link #refreshQuantities} for every book. */
+    @Transactional
+    public List<Long> refreshAllQuantities() {
+        return jdbcTemplate.queryForList(REFRESH_QUANTITIES.formatted(""), Long.class);
+    }
+
+    private static Array ids(Connection connection, Collection<Long> bookIds) throws SQLException {
+        return connection.createArrayOf("bigint", bookIds.toArray());
+    }
+}
@@ -1,11 +1,23 @@
 package com.example.mylib.repository;
 
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.BookIndexDTO;
 import com.example.mylib.entities.Book;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BookRepo extends JpaRepository<Book, Long> {
@@ -13,6 +25,38 @@ public interface BookRepo extends JpaRepository<Book, Long> {
         String title, String author, String category);
     
     Optional<Book> findByIsbn(String isbn);
+
+    // Browsing by the Author and Category links: index lookups on the link tables
+    @Query("SELECT b FROM Book b JOIN b.authors a WHERE a.id = :authorId ORDER BY b.id")
+    List<Book> findByAuthorId(@Param("authorId") Long authorId, Pageable pageable);
+
+    @Query("SELECT b FROM Book b JOIN b.categories c WHERE c.id = :categoryId ORDER BY b.id")
+    List<Book> findByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
     
     boolean existsByIsbn(String isbn);
+
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    // Forward-only cursor over the catalog for exports; see BorrowRepo.streamAllDtos
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.mylib.dto.BookDTO(b.id, b.title, b.author, b.category, b.available, b.publisher, "
+            + "b.isbn, b.edition, b.language, b.publicationDate, b.quantity, b.coverUrl, b.pageCount, b.price, "
+            + "b.location, b.version) FROM Book b ORDER BY b.id")
+    Stream<BookDTO> streamAllDtos();
+
+    @Query("SELECT new com.example.mylib.dto.BookDTO(b.id, b.title, b.author, b.category, b.available, b.publisher, "
+            + "b.isbn, b.edition, b.language, b.publicationDate, b.quantity, b.coverUrl, b.pageCount, b.price, "
+            + "b.location, b.version) FROM Book b WHERE b.id IN :ids")
+    List<BookDTO> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    // What the in-memory search and facet indexes hold, in id order
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.mylib.dto.BookIndexDTO(b.id, b.title, b.author, b.category, b.language, "
+            + "b.publisher, b.edition) FROM Book b ORDER BY b.id")
+    Stream<BookIndexDTO> streamIndexFields();
+
+    @Query("SELECT new com.example.mylib.dto.BookIndexDTO(b.id, b.title, b.author, b.category, b.language, "
+            + "b.publisher, b.edition) FROM Book b WHERE b.id IN :ids")
+    List<BookIndexDTO> findIndexFieldsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,48 @@
+package com.example.mylib.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@code users.borrows_version} (V11), a counter of changes to what a user's borrow history shows.
+ * Bump it in the transaction making the change, or after it commits, never before: a client that
+ * reads the history between a bump and the change it announces would keep the old rows under the
+ * new version.
+ */
+@Repository
+public class BorrowHistoryVersionRepo {
+
+    // Users are locked in id order, so transactions bumping several users cannot deadlock each other
+    private static final String BUMP = "UPDATE users SET borrows_version = borrows_version + 1 "
+            + "WHERE user_id IN (SELECT user_id FROM users WHERE user_id = ANY(?) ORDER BY user_id FOR UPDATE)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BorrowHistoryVersionRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Empty if there is no such user
+    public Optional<Long> find(long userId) {
+        return jdbcTemplate.queryForList("SELECT borrows_version FROM users WHERE user_id = ?", Long.class, userId)
+                .stream().findFirst();
+    }
+
+    public void bump(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(BUMP,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())));
+    }
+
+    // Users with the book in their history
+    public List<Long> findBorrowersOf(long bookId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT user_id FROM borrow_records WHERE book_id = ?", Long.class,
+                bookId);
+    }
+}
@@ -1,11 +1,24 @@
 package com.example.mylib.repository;
 
+import com.example.mylib.dto.BorrowRecordDTO;
+import com.example.mylib.dto.FineDto;
 import com.example.mylib.entities.BorrowRecord;
 import com.example.mylib.enums.BorrowStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BorrowRepo extends JpaRepository<BorrowRecord,Long> {
@@ -18,4 +31,52 @@ public interface BorrowRepo extends JpaRepository<BorrowRecord,Long> {
     List<BorrowRecord> findByBookId(Long bookId);
 
     List<BorrowRecord> findByBookIdAndStatusAndFromReservation(Long bookId, BorrowStatus status, Boolean fromReservation);
+
+    List<BorrowRecord> findByBookIdAndBranchAndStatusAndFromReservation(Long bookId, String branch, BorrowStatus status,
+                                                                        Boolean fromReservation);
+
+    @Query("SELECT r.book.id FROM BorrowRecord r WHERE r.issueDate >= :since GROUP BY r.book.id ORDER BY COUNT(r) DESC")
+    List<Long> findMostBorrowedBookIdsSince(@Param("since") LocalDate since, Pageable pageable);
+
+    // [book id, borrow count] for every book borrowed at least once
+    @Query("SELECT r.book.id, COUNT(r) FROM BorrowRecord r GROUP BY r.book.id")
+    List<Object[]> countBorrowsByBook();
+
+    @Query("SELECT r.book.id, COUNT(r) FROM BorrowRecord r WHERE r.book.id IN :bookIds GROUP BY r.book.id")
+    List<Object[]> countBorrowsByBookIn(@Param("bookIds") Collection<Long> bookIds);
+
+    // Flat BorrowRecordDTO rows straight from one join, for responses; no entities are loaded
+    String BORROW_RECORD_DTO = "SELECT new com.example.mylib.dto.BorrowRecordDTO(r.id, u.name, u.id, b.id, b.title, "
+            + "r.issueDate, r.dueDate, r.returnDate, r.fineAmount, r.status, r.finePaid, c.barcode, r.branch) "
+            + "FROM BorrowRecord r JOIN r.user u JOIN r.book b LEFT JOIN r.copy c ";
+
+    @Query(BORROW_RECORD_DTO + "WHERE r.id = :id")
+    Optional<BorrowRecordDTO> findDtoById(@Param("id") Long id);
+
+    @Query(BORROW_RECORD_DTO + "WHERE u.id = :userId")
+    List<BorrowRecordDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    @Query(BORROW_RECORD_DTO + "WHERE u.id = :userId AND r.status = :status")
+    List<BorrowRecordDTO> findDtosByUserIdAndStatus(@Param("userId") Long userId, @Param("status") BorrowStatus status);
+
+    @Query(BORROW_RECORD_DTO + "WHERE b.id = :bookId")
+    List<BorrowRecordDTO> findDtosByBookId(@Param("bookId") Long bookId);
+
+    @Query(BORROW_RECORD_DTO)
+    List<BorrowRecordDTO> findAllDtos();
+
+    @Query(BORROW_RECORD_DTO + "WHERE r.branch = :branch")
+    List<BorrowRecordDTO> findDtosByBranch(@Param("branch") String branch);
+
+    // Forward-only cursors for exports: rows are fetched 1000 at a time and never held by the
+    // persistence context. Must be consumed inside a transaction and closed.
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(BORROW_RECORD_DTO + "ORDER BY r.id")
+    Stream<BorrowRecordDTO> streamAllDtos();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.mylib.dto.FineDto(r.id, r.book.id, r.user.id, r.issueDate, r.dueDate, "
+            + "r.returnDate, r.fineAmount, r.status, r.finePaid) "
+            + "FROM BorrowRecord r WHERE r.fineAmount > 0 ORDER BY r.id")
+    Stream<FineDto> streamFineDtos();
 }
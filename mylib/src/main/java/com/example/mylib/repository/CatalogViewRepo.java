@@ -0,0 +1,107 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.dto.CatalogCardDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The {@code book_catalog_view} read model (V10), and the books marked out of date in
+ * {@code book_catalog_view_dirty} (V12). Rows are recomputed from the copies, reservations and
+ * borrow records of a book rather than adjusted by each write, so writers racing on a book, or a
+ * refresh run twice, still leave it matching the tables it summarises. Rows that come out
+ * unchanged are not rewritten.
+ */
+@Repository
+public class CatalogViewRepo {
+
+    private static final String REFRESH = "INSERT INTO book_catalog_view AS v "
+            + "(book_id, available_copies, waitlist_length, next_due_date, borrow_count) "
+            + "SELECT b.book_id, "
+            + "(SELECT count(*) FROM library_book_copies c WHERE c.book_id = b.book_id AND c.status = 'AVAILABLE'), "
+            + "(SELECT count(*) FROM book_reservation r WHERE r.book_id = b.book_id AND r.status = 'PENDING'), "
+            + "(SELECT min(r.due_date) FROM borrow_records r "
+            + "WHERE r.book_id = b.book_id AND r.status IN ('BORROWED', 'RETURN_PENDING')), "
+            + "(SELECT count(*) FROM borrow_records r WHERE r.book_id = b.book_id) "
+            + "FROM library_books b %s "
+            + "ON CONFLICT (book_id) DO UPDATE SET available_copies = excluded.available_copies, "
+            + "waitlist_length = excluded.waitlist_length, next_due_date = excluded.next_due_date, "
+            + "borrow_count = excluded.borrow_count "
+            + "WHERE (v.available_copies, v.waitlist_length, v.next_due_date, v.borrow_count) IS DISTINCT FROM "
+            + "(excluded.available_copies, excluded.waitlist_length, excluded.next_due_date, excluded.borrow_count)";
+
+    // Books in id order, so transactions marking several cannot deadlock each other. Updating a row
+    // already there locks it until the writer commits, so a refresh cannot take it out in between
+    // and recompute the book without the writer's change
+    private static final String MARK = "INSERT INTO book_catalog_view_dirty (book_id) "
+            + "SELECT DISTINCT unnest(?::bigint[]) ORDER BY 1 "
+            + "ON CONFLICT (book_id) DO UPDATE SET marked_at = now()";
+
+    private static final String CLAIM = "DELETE FROM book_catalog_view_dirty WHERE book_id IN "
+            + "(SELECT book_id FROM book_catalog_view_dirty ORDER BY book_id LIMIT ? FOR UPDATE SKIP LOCKED) "
+            + "RETURNING book_id";
+
+    // A book without a row yet has nothing lent or reserved, and its stocked copies on the shelf
+    private static final String CARDS = "SELECT b.book_id, b.title, b.author, b.cover_url, "
+            + "COALESCE(v.available_copies, b.quantity), COALESCE(v.waitlist_length, 0), v.next_due_date, "
+            + "COALESCE(v.borrow_count, 0) "
+            + "FROM library_books b LEFT JOIN book_catalog_view v ON v.book_id = b.book_id ";
+
+    private static final RowMapper<CatalogCardDTO> CARD = (rs, row) -> {
+        Date due = rs.getDate(7);
+        return new CatalogCardDTO(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                rs.getInt(5), rs.getInt(6), due == null ? null : due.toLocalDate(), rs.getLong(8));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogViewRepo(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Recomputes the rows of the given books; returns how many changed. */
+    @Transactional
+    public int refresh(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(REFRESH.formatted("WHERE b.book_id = ANY(?)"),
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", bookIds.toArray())));
+    }
+
+    /** Marks the books' rows out of date; call it in the transaction changing them. */
+    public void markDirty(Collection<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(MARK,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", bookIds.toArray())));
+    }
+
+    /**
+     * Takes up to {@code limit} marked books no other transaction holds and recomputes their rows,
+     * committing both together; returns how many were taken.
+     */
+    @Transactional
+    public int refreshDirty(int limit) {
+        List<Long> bookIds = jdbcTemplate.queryForList(CLAIM, Long.class, limit);
+        // A statement of its own, so it sees every change committed before the books were taken
+        refresh(bookIds);
+        return bookIds.size();
+    }
+
+    // In book id order
+    public List<CatalogCardDTO> findCards(int offset, int limit) {
+        return jdbcTemplate.query(CARDS + "ORDER BY b.book_id LIMIT ? OFFSET ?", CARD, limit, offset);
+    }
+
+    public Optional<CatalogCardDTO> findCard(long bookId) {
+        return jdbcTemplate.query(CARDS + "WHERE b.book_id = ?", CARD, bookId).stream().findFirst();
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.dto.CategoryDTO;
+import com.example.mylib.entities.Category;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CategoryRepo extends JpaRepository<Category, Long> {
+
+    // Categories with at least one book, alphabetically
+    @Query("SELECT new com.example.mylib.dto.CategoryDTO(c.id, c.name, COUNT(b)) "
+            + "FROM Book b JOIN b.categories c GROUP BY c.id, c.name ORDER BY c.name")
+    List<CategoryDTO> findAllWithBookCounts();
+}
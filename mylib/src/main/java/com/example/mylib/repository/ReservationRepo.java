@@ -1,11 +1,17 @@
 package com.example.mylib.repository;
 
+import com.example.mylib.dto.ReservationDTO;
 import com.example.mylib.entities.Book;
 import com.example.mylib.entities.Reservation;
 import com.example.mylib.entities.Users;
 import com.example.mylib.enums.ReservationType;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -18,9 +24,30 @@ public interface ReservationRepo extends JpaRepository<Reservation, Long> {
     @Query("SELECT r FROM Reservation r WHERE r.book.id = :bookId AND r.status = 'PENDING' ORDER BY r.createdAt ASC")
     List<Reservation> findNextReservation(@Param("bookId") Long bookId);
 
+    // A branch's queue, locking the reservations returned and skipping ones locked by another allocation
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM Reservation r WHERE r.book.id = :bookId AND r.branch = :branch AND r.status = 'PENDING' "
+            + "ORDER BY r.createdAt ASC")
+    List<Reservation> lockNextReservations(@Param("bookId") Long bookId, @Param("branch") String branch,
+                                           Pageable pageable);
+
     List<Reservation> findByUserId(Long userId);
 
     Optional<Reservation> findByUserAndBook(Users user, Book book);
 
     Optional<Reservation> findByUserAndBookAndStatus(Users user, Book book, ReservationType status);
+
+    // Flat ReservationDTO rows straight from one join, for responses; no entities are loaded
+    String RESERVATION_DTO = "SELECT new com.example.mylib.dto.ReservationDTO(r.id, u.id, b.id, b.title, u.name, "
+            + "r.status, r.createdAt, r.branch) FROM Reservation r JOIN r.user u JOIN r.book b ";
+
+    @Query(RESERVATION_DTO + "WHERE u.id = :userId")
+    List<ReservationDTO> findDtosByUserId(@Param("userId") Long userId);
+
+    @Query(RESERVATION_DTO)
+    List<ReservationDTO> findAllDtos();
+
+    @Query(RESERVATION_DTO + "WHERE r.branch = :branch")
+    List<ReservationDTO> findDtosByBranch(@Param("branch") String branch);
 }
@@ -0,0 +1,166 @@
+package com.example.mylib.repository;
+
+import com.example.mylib.enums.BorrowStatus;
+import com.example.mylib.exceptions.UnknownFieldException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Listings that SELECT only the fields a client asked for with {@code ?fields=}. Each row comes
+ * back as a map keyed by the DTO property names, in the requested order, so the response carries
+ * exactly those properties and the database reads exactly those columns.
+ * <p>
+ * Field names are checked against a fixed map of DTO property to JPQL path; nothing from the
+ * request is concatenated into a query.
+ */
+@Repository
+public class SparseFieldQuery {
+
+    // BookDTO property -> JPQL path on Book b
+    private static final Map<String, String> BOOK_FIELDS = fields(
+            "id", "b.id", "title", "b.title", "author", "b.author", "category", "b.category",
+            "available", "b.available", "publisher", "b.publisher", "isbn", "b.isbn", "edition", "b.edition",
+            "language", "b.language", "publicationDate", "b.publicationDate", "quantity", "b.quantity",
+            "coverUrl", "b.coverUrl", "pageCount", "b.pageCount", "price", "b.price", "location", "b.location",
+            "version", "b.version");
+
+    // BorrowRecordDTO property -> JPQL path on BorrowRecord r
+    private static final Map<String, String> BORROW_RECORD_FIELDS = fields(
+            "id", "r.id", "userName", "r.user.name", "userId", "r.user.id", "bookId", "r.book.id",
+            "bookTitle", "r.book.title", "issueDate", "r.issueDate", "dueDate", "r.dueDate",
+            "returnDate", "r.returnDate", "fineAmount", "r.fineAmount", "status", "r.status",
+            "finePaid", "r.finePaid", "branch", "r.branch");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<Map<String, Object>> findBooks(List<String> fields, String search) {
+        if (search == null) {
+            return select(BOOK_FIELDS, fields, "Book b", "", Map.of());
+        }
+        return select(BOOK_FIELDS, fields, "Book b",
+                " WHERE lower(b.title) LIKE :pattern OR lower(b.author) LIKE :pattern OR lower(b.category) LIKE :pattern",
+                Map.of("pattern", "%" + escapeLike(search.toLowerCase()) + "%"));
+    }
+
+    /** The given books, in the order of {@code ids}; ids with no book are skipped. */
+    public List<Map<String, Object>> findBooksById(List<String> fields, List<Long> ids) {
+        List<String> selected = validate(BOOK_FIELDS, fields);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Map<String, Object>> byId = new HashMap<>();
+        for (Tuple tuple : query(BOOK_FIELDS, selected, "b.id AS rowId", "Book b", " WHERE b.id IN :ids",
+                Map.of("ids", ids))) {
+            byId.put(tuple.get("rowId", Long.class), row(selected, tuple));
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Long id : ids) {
+            Map<String, Object> row = byId.get(id);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    public List<Map<String, Object>> findBorrowRecordsByUser(List<String> fields, Long userId) {
+        return select(BORROW_RECORD_FIELDS, fields, "BorrowRecord r", " WHERE r.user.id = :userId",
+                Map.of("userId", userId));
+    }
+
+    public List<Map<String, Object>> findBorrowRecordsByUserAndStatus(List<String> fields, Long userId, BorrowStatus status) {
+        return select(BORROW_RECORD_FIELDS, fields, "BorrowRecord r",
+                " WHERE r.user.id = :userId AND r.status = :status", Map.of("userId", userId, "status", status));
+    }
+
+    public List<Map<String, Object>> findBorrowRecordsByBook(List<String> fields, Long bookId) {
+        return select(BORROW_RECORD_FIELDS, fields, "BorrowRecord r", " WHERE r.book.id = :bookId",
+                Map.of("bookId", bookId));
+    }
+
+    public List<Map<String, Object>> findAllBorrowRecords(List<String> fields) {
+        return select(BORROW_RECORD_FIELDS, fields, "BorrowRecord r", "", Map.of());
+    }
+
+    public List<Map<String, Object>> findBorrowRecordsByBranch(List<String> fields, String branch) {
+        return select(BORROW_RECORD_FIELDS, fields, "BorrowRecord r", " WHERE r.branch = :branch",
+                Map.of("branch", branch));
+    }
+
+    private List<Map<String, Object>> select(Map<String, String> allowed, List<String> requested, String from,
+                                             String where, Map<String, Object> parameters) {
+        List<String> selected = validate(allowed, requested);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : query(allowed, selected, null, from, where, parameters)) {
+            rows.add(row(selected, tuple));
+        }
+        return rows;
+    }
+
+    // extraColumn, if any, is selected ahead of the requested fields and left out of the rows
+    private List<Tuple> query(Map<String, String> allowed, List<String> selected, String extraColumn, String from,
+                              String where, Map<String, Object> parameters) {
+        List<String> columns = new ArrayList<>();
+        if (extraColumn != null) {
+            columns.add(extraColumn);
+        }
+        for (String field : selected) {
+            columns.add(allowed.get(field) + " AS " + field);
+        }
+        TypedQuery<Tuple> query = entityManager.createQuery(
+                "SELECT " + String.join(", ", columns) + " FROM " + from + where, Tuple.class);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private static Map<String, Object> row(List<String> selected, Tuple tuple) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : selected) {
+            row.put(field, tuple.get(field));
+        }
+        return row;
+    }
+
+    private static List<String> validate(Map<String, String> allowed, List<String> requested) {
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : requested) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.containsKey(name)) {
+                throw new UnknownFieldException("Unknown field '" + name + "'. Allowed fields: "
+                        + String.join(",", allowed.keySet()));
+            }
+            selected.add(name);
+        }
+        if (selected.isEmpty()) {
+            throw new UnknownFieldException("fields must name at least one of: " + String.join(",", allowed.keySet()));
+        }
+        return List.copyOf(selected);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Map<String, String> fields(String... pairs) {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put(pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+}
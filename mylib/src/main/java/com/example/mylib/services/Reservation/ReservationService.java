@@ -8,15 +8,18 @@ import java.util.List;
 
 @Service
 public interface ReservationService {
-    Reservation createReservation(Long userId, Long bookId);
+    // At the branch, the default branch if null
+    Reservation createReservation(Long userId, Long bookId, String branch);
 
-    void assignBookToNextUser(Long bookId);
+    // Sets the branch's free copies of the book aside for its waiting readers, oldest first
+    void assignBookToNextUser(Long bookId, String branch);
 
     List<ReservationDTO> getUsersReservations(Long userId);
 
     void cancelReservation(Long reservationId);
 
-    List<ReservationDTO> getAllReservations();
+    // All branches if branch is null
+    List<ReservationDTO> getAllReservations(String branch);
 
     void completeReservation(Long reservationId);
 }
@@ -11,8 +11,10 @@ import com.example.mylib.repository.BookRepo;
 import com.example.mylib.repository.BorrowRepo;
 import com.example.mylib.repository.ReservationRepo;
 import com.example.mylib.repository.UserRepo;
+import com.example.mylib.services.borrow.BorrowHistoryVersions;
+import com.example.mylib.services.catalog.CatalogViewService;
+import com.example.mylib.services.inventory.InventoryService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,8 +25,11 @@ import java.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.example.mylib.payload.AppConstants;
+import com.example.mylib.entities.BookCopy;
 import com.example.mylib.entities.BorrowRecord;
 import com.example.mylib.enums.BorrowStatus;
+import com.example.mylib.enums.CopyStatus;
+import org.springframework.data.domain.PageRequest;
 
 @Service
 @RequiredArgsConstructor
@@ -34,22 +39,30 @@ public class ReservationServiceImpl implements ReservationService {
     private final BorrowRepo borrowRepo;
     private final BookRepo bookRepo;
     private final UserRepo userRepo;
+    private final InventoryService inventoryService;
+    private final CatalogViewService catalogViewService;
+    private final BorrowHistoryVersions borrowHistoryVersions;
 
-    private final ModelMapper modelMapper;
 
     private static final Logger logger = LoggerFactory.getLogger(ReservationServiceImpl.class);
 
     @Override
     @Transactional
-    public Reservation createReservation(Long userId, Long bookId) {
+    public Reservation createReservation(Long userId, Long bookId, String branch) {
         try {
+            String atBranch = inventoryService.branch(branch);
             Book book = bookRepo.findById(bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("Book Not Found!"));
             Users user = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
+            // A branch without copies of the book never gets one for the reader
+            if (!inventoryService.holdsCopies(bookId, atBranch)) {
+                throw new RuntimeException("Branch " + atBranch + " has no copies of this book.");
+            }
+
             // check if book is available
-            if (book.getQuantity() > 0) {
+            if (inventoryService.availableCopies(bookId, atBranch) > 0) {
                 throw new RuntimeException("Book is available no need to reserve!");
             }
 
@@ -62,8 +75,10 @@ public class ReservationServiceImpl implements ReservationService {
             Reservation reservation = new Reservation();
             reservation.setUser(user);
             reservation.setBook(book);
+            reservation.setBranch(atBranch);
             reservation.setStatus(ReservationType.PENDING);
             reservation.setCreatedAt(LocalDateTime.now());
+            catalogViewService.bookChanged(bookId);
             return reservationRepo.save(reservation);
         } catch (ResourceNotFoundException | DuplicateReservationException e) {
             throw e;
@@ -74,23 +89,32 @@ public class ReservationServiceImpl implements ReservationService {
 
     @Override
     @Transactional
-    public void assignBookToNextUser(Long bookId) {
+    public void assignBookToNextUser(Long bookId, String branch) {
         try {
+            String atBranch = inventoryService.branch(branch);
             // Get the book and verify it exists
             Book book = bookRepo.findById(bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found"));
-            logger.info("Attempting to assign book '{}' (ID: {}) to next users. Current quantity: {}", 
-                book.getTitle(), bookId, book.getQuantity());
+            logger.info("Attempting to assign book '{}' (ID: {}) to next users at {}", book.getTitle(), bookId, atBranch);
 
-            // Keep processing reservations while there are books available
-            while (book.getQuantity() > 0) {
-                // Get the next pending reservation
-                List<Reservation> reservations = reservationRepo.findNextReservation(bookId);
+            int assigned = 0;
+
+            // Keep processing reservations while there are copies available
+            while (true) {
+                // Get the next pending reservation no other allocation is serving
+                List<Reservation> reservations = reservationRepo.lockNextReservations(bookId, atBranch,
+                        PageRequest.of(0, 1));
                 if (reservations.isEmpty()) {
                     logger.info("No more pending reservations found for book '{}'", book.getTitle());
                     break; // No more pending reservations
                 }
-                logger.info("Found {} pending reservations for book '{}'", reservations.size(), book.getTitle());
+
+                // Set a free copy aside for the reader
+                Optional<BookCopy> copy = inventoryService.claimCopy(bookId, atBranch, CopyStatus.ON_HOLD);
+                if (copy.isEmpty()) {
+                    logger.info("No more free copies of book '{}'", book.getTitle());
+                    break;
+                }
 
                 Reservation nextReservation = reservations.get(0);
                 Users nextUser = nextReservation.getUser();
@@ -100,12 +124,15 @@ public class ReservationServiceImpl implements ReservationService {
                 BorrowRecord borrowRecord = new BorrowRecord();
                 borrowRecord.setUser(nextUser);
                 borrowRecord.setBook(book);
+                borrowRecord.setCopy(copy.get());
+                borrowRecord.setBranch(atBranch);
                 borrowRecord.setStatus(BorrowStatus.PENDING);
                 borrowRecord.setIssueDate(LocalDate.now());
                 borrowRecord.setDueDate(LocalDate.now().plusDays(AppConstants.BORROW_DAYS_LIMIT));
                 borrowRecord.setFromReservation(true);
                 borrowRecord.setReservationCreatedAt(nextReservation.getCreatedAt());
                 borrowRepo.save(borrowRecord);
+                borrowHistoryVersions.changed(nextUser.getId());
                 logger.info("Created borrow record for user {} with due date {} (from reservation created at {})", 
                     nextUser.getEmail(), borrowRecord.getDueDate(), nextReservation.getCreatedAt());
 
@@ -114,17 +141,14 @@ public class ReservationServiceImpl implements ReservationService {
                 reservationRepo.save(nextReservation);
                 logger.info("Updated reservation status to CONFIRMED for user {}", nextUser.getEmail());
 
-                // Update book quantity
-                book.setQuantity(book.getQuantity() - 1);
-                bookRepo.save(book);
-                logger.info("Updated book quantity to {}", book.getQuantity());
-
                 // Log the assignment
-                logger.info("Successfully assigned book '{}' to user: {}", book.getTitle(), nextUser.getEmail());
+                assigned++;
+                logger.info("Successfully assigned copy {} of book '{}' to user: {}", copy.get().getBarcode(),
+                    book.getTitle(), nextUser.getEmail());
             }
 
-            logger.info("Finished processing reservations for book '{}'. Final quantity: {}", 
-                book.getTitle(), book.getQuantity());
+            logger.info("Finished processing reservations for book '{}'. Copies assigned: {}", 
+                book.getTitle(), assigned);
         } catch (ResourceNotFoundException e) {
             logger.error("Book not found with ID: {}", bookId);
             throw e;
@@ -135,19 +159,9 @@ public class ReservationServiceImpl implements ReservationService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ReservationDTO> getUsersReservations(Long userId) {
-        return reservationRepo
-                .findByUserId(userId)
-                .stream()
-                .map(reservation -> {
-                    ReservationDTO dto = modelMapper.map(reservation, ReservationDTO.class);
-                    dto.setUserId(reservation.getUser().getId());
-                    dto.setBookId(reservation.getBook().getId());
-                    dto.setBookTitle(reservation.getBook().getTitle());
-                    dto.setUserName(reservation.getUser().getName());
-                    return dto;
-                })
-                .toList();
+        return reservationRepo.findDtosByUserId(userId);
     }
 
     @Override
@@ -155,20 +169,16 @@ public class ReservationServiceImpl implements ReservationService {
         Reservation reservation = reservationRepo.findById(reservationId).orElseThrow(() -> new ResourceNotFoundException("Reservation not found."));
         reservation.setStatus(ReservationType.CANCELED);
         reservationRepo.save(reservation);
+        catalogViewService.bookChanged(reservation.getBook().getId());
     }
 
     @Override
-    public List<ReservationDTO> getAllReservations() {
-        return reservationRepo.findAll().stream()
-                .map(reservation -> {
-                    ReservationDTO dto = modelMapper.map(reservation, ReservationDTO.class);
-                    dto.setUserId(reservation.getUser().getId());
-                    dto.setBookId(reservation.getBook().getId());
-                    dto.setBookTitle(reservation.getBook().getTitle());
-                    dto.setUserName(reservation.getUser().getName());
-                    return dto;
-                })
-                .toList();
+    @Transactional(readOnly = true)
+    public List<ReservationDTO> getAllReservations(String branch) {
+        if (branch != null) {
+            return reservationRepo.findDtosByBranch(inventoryService.branch(branch));
+        }
+        return reservationRepo.findAllDtos();
     }
 
     @Override
@@ -0,0 +1,144 @@
+package com.example.mylib.services.books;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.warmup.WarmupTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Holds the whole catalog in memory as a {@link BookSnapshot}, so listing, looking up and
+ * searching books reads a volatile reference instead of the database. It is built at startup as a
+ * warm-up task and replaced, never changed: book changes arrive as {@link CacheInvalidationEvent}s,
+ * from this node and others, and mark the book dirty; every {@code catalog.snapshot.refresh-interval}
+ * the dirty books are re-read in one query and a copy of the snapshot with their rows replaced is
+ * published. Events for more books than are worth naming rebuild it from scratch.
+ * <p>
+ * A dirty book is not served from the snapshot ({@link #find} is empty), so whoever changed a book
+ * reads the change back at once. Listings and searches may show a book as it was for up to the
+ * refresh interval after it changed.
+ */
+@Component
+public class BookCatalog implements WarmupTask {
+
+    private static final int REFRESH_BATCH = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BookRepo bookRepo;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile BookSnapshot snapshot;
+    // Books changed since the snapshot was made, with the sequence number of their last change
+    private final Map<Long, Long> dirty = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean rebuildRequested;
+
+    public BookCatalog(BookRepo bookRepo, TransactionTemplate transactionTemplate) {
+        this.bookRepo = bookRepo;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /** The catalog as last published; empty until it has been built. */
+    public Optional<BookSnapshot> snapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * The book as the snapshot has it; empty if the snapshot is not built, is to be rebuilt, the
+     * book changed since it was made or it does not hold the book. Read the database then.
+     */
+    public Optional<BookDTO> find(long bookId) {
+        BookSnapshot current = snapshot;
+        if (current == null || rebuildRequested || dirty.containsKey(bookId)) {
+            return Optional.empty();
+        }
+        return current.find(bookId);
+    }
+
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        long upTo = sequence.get();
+        BookSnapshot.Builder builder = BookSnapshot.builder();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<BookDTO> books = bookRepo.streamAllDtos()) {
+                books.forEach(builder::add);
+            }
+        });
+        BookSnapshot built = builder.build();
+        snapshot = built;
+        // The build read every change marked before it started
+        dirty.values().removeIf(changed -> changed <= upTo);
+        logger.info("Built book snapshot in {} ms: {} books, {} MB on the heap ({} MB per million books)",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), built.size(),
+                built.heapBytes() >> 20, built.size() == 0 ? 0 : (built.heapBytes() * 1_000_000 / built.size()) >> 20);
+    }
+
+    @Override
+    public String name() {
+        return "book-snapshot";
+    }
+
+    @Override
+    public void warmUp() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.change() == CacheInvalidationEvent.Change.ALL
+                || event.change() == CacheInvalidationEvent.Change.BOOKS_BULK_LOADED) {
+            rebuildRequested = true;
+        } else if (event.change().isBookChange()) {
+            dirty.put(event.entityId(), sequence.incrementAndGet());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.snapshot.refresh-interval}")
+    public synchronized void refresh() {
+        BookSnapshot current = snapshot;
+        if (current == null) {
+            // Not built yet; the first build reads every change
+            dirty.clear();
+            return;
+        }
+        if (rebuildRequested) {
+            // Events are published after commit, so the rebuild sees every change marked so far
+            rebuildRequested = false;
+            rebuild();
+            return;
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Books marked again while they are re-read stay dirty for the next refresh
+        Map<Long, Long> taken = new HashMap<>(dirty);
+        List<Long> ids = new ArrayList<>(taken.keySet());
+        List<BookDTO> changed = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += REFRESH_BATCH) {
+            changed.addAll(bookRepo.findDtosByIdIn(ids.subList(from, Math.min(ids.size(), from + REFRESH_BATCH))));
+        }
+        Set<Long> removed = new HashSet<>(ids);
+        changed.forEach(book -> removed.remove(book.getId()));
+        snapshot = current.with(changed, removed);
+        taken.forEach(dirty::remove);
+        logger.debug("Book snapshot now has {} books after {} changed and {} removed", snapshot.size(),
+                changed.size(), removed.size());
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.mylib.services.books;
 
+import com.example.mylib.dto.AuthorDTO;
 import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.CategoryDTO;
 import com.example.mylib.entities.Book;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 public interface BookService {
@@ -26,9 +31,35 @@ public interface BookService {
 
     BookDTO getBookDtoById(Long bookId);
 
+    // Conditional GETs: the ETag of the response is passed to notModified, typically
+    // WebRequest::checkNotModified, and the result is empty when that says the client has it already.
+    // The book's ETag is its id and version; all books have one only once the snapshot is built
+    Optional<BookDTO> getBookDtoByIdIfModified(Long bookId, Predicate<String> notModified);
+
+    Optional<List<BookDTO>> getAllBookDtosIfModified(Predicate<String> notModified);
+
     void deleteBookById(Long bookId);
 
     BookDTO updateBookById(Long bookId, BookDTO newBookDto);
 
     List<BookDTO> searchBooks(String query);
+
+    // Typo-tolerant: "tolkein" finds Tolkien. Best match first
+    List<BookDTO> searchBooksFuzzy(String query);
+
+    // Sparse fieldsets: only the named BookDTO properties are selected
+    List<Map<String, Object>> getAllBookFields(List<String> fields);
+
+    List<Map<String, Object>> searchBookFields(String query, List<String> fields);
+
+    List<Map<String, Object>> searchBookFieldsFuzzy(String query, List<String> fields);
+
+    // Browsing by author and category, through their link tables; pages in book id order
+    AuthorDTO getAuthorByName(String name);
+
+    List<BookDTO> getBooksByAuthor(Long authorId, int page, int size);
+
+    List<CategoryDTO> getCategories();
+
+    List<BookDTO> getBooksByCategory(Long categoryId, int page, int size);
 }
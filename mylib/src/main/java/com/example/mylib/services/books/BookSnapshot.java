@@ -0,0 +1,319 @@
+package com.example.mylib.services.books;
+
+import com.example.mylib.dto.BookDTO;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The {@link BookDTO} fields of every book, immutable and stored by column: one array per field,
+ * row {@code i} of each holding the book with the {@code i}-th smallest id. Numbers are kept
+ * unboxed (dates as epoch days, editions as years, with a sentinel for null), and the strings of
+ * columns many books share (author, category, publisher, language, price, location) are pooled so
+ * each distinct value is stored once. Readers need no locking; a change produces a new snapshot
+ * ({@link #with}) sharing the strings of the rows it did not touch.
+ * <p>
+ * Every write to a book bumps its version, through JPA or in SQL, so the ids and versions of the
+ * rows identify the snapshot's content: {@link #etag} is derived from them, the same on every node
+ * holding the same books.
+ */
+public final class BookSnapshot {
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    // A HashMap entry and its share of the table, for the pool's own overhead
+    private static final int POOL_ENTRY_BYTES = 40;
+
+    private final Pool pool;
+    private final long[] ids;
+    private final String[] titles;
+    private final String[] authors;
+    private final String[] categories;
+    private final boolean[] available;
+    private final String[] publishers;
+    private final String[] isbns;
+    private final int[] editions;
+    private final String[] languages;
+    private final int[] publicationDays;
+    private final int[] quantities;
+    private final String[] coverUrls;
+    private final int[] pageCounts;
+    private final String[] prices;
+    private final String[] locations;
+    private final long[] versions;
+    // Titles, ISBNs and cover URLs, which are not pooled, and the pool as it was when this was made
+    private long unpooledBytes;
+    private long pooledBytes;
+    // XOR of the rows' hashes of id and version, kept up to date as rows are written and replaced
+    private long contentHash;
+
+    private BookSnapshot(Pool pool, int size) {
+        this.pool = pool;
+        ids = new long[size];
+        titles = new String[size];
+        authors = new String[size];
+        categories = new String[size];
+        available = new boolean[size];
+        publishers = new String[size];
+        isbns = new String[size];
+        editions = new int[size];
+        languages = new String[size];
+        publicationDays = new int[size];
+        quantities = new int[size];
+        coverUrls = new String[size];
+        pageCounts = new int[size];
+        prices = new String[size];
+        locations = new String[size];
+        versions = new long[size];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    // The row of the book, or a negative number if it is not in the snapshot
+    public int indexOf(long bookId) {
+        return Arrays.binarySearch(ids, bookId);
+    }
+
+    public Optional<BookDTO> find(long bookId) {
+        int row = indexOf(bookId);
+        return row < 0 ? Optional.empty() : Optional.of(get(row));
+    }
+
+    // A new DTO on every call; callers may change it
+    public BookDTO get(int row) {
+        return new BookDTO(ids[row], titles[row], authors[row], categories[row], available[row], publishers[row],
+                isbns[row], editions[row] == NULL_INT ? null : Year.of(editions[row]), languages[row],
+                publicationDays[row] == NULL_INT ? null : LocalDate.ofEpochDay(publicationDays[row]),
+                quantities[row], coverUrls[row], pageCounts[row] == NULL_INT ? null : pageCounts[row],
+                prices[row], locations[row], versions[row] == NULL_LONG ? null : versions[row]);
+    }
+
+    // Every book, in id order
+    public List<BookDTO> all() {
+        List<BookDTO> books = new ArrayList<>(ids.length);
+        for (int row = 0; row < ids.length; row++) {
+            books.add(get(row));
+        }
+        return books;
+    }
+
+    /**
+     * Books whose title, author or category contains the query, ignoring case, in id order; the
+     * books {@code BookRepo.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCaseOrCategoryContainingIgnoreCase}
+     * finds.
+     */
+    public List<BookDTO> search(String query) {
+        List<BookDTO> books = new ArrayList<>();
+        for (int row = 0; row < ids.length; row++) {
+            if (contains(titles[row], query) || contains(authors[row], query) || contains(categories[row], query)) {
+                books.add(get(row));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * A snapshot with the given books added or replaced and the given ids left out; this one is
+     * unchanged. Copies every column, so changes are best applied in batches. Not safe to call
+     * from more than one thread at a time for snapshots of one build.
+     */
+    public BookSnapshot with(Collection<BookDTO> changed, Collection<Long> removed) {
+        TreeMap<Long, BookDTO> changes = new TreeMap<>();
+        removed.forEach(id -> changes.put(id, null));
+        changed.forEach(book -> changes.put(book.getId(), book));
+        int size = ids.length;
+        for (Map.Entry<Long, BookDTO> change : changes.entrySet()) {
+            size += (indexOf(change.getKey()) >= 0 ? -1 : 0) + (change.getValue() != null ? 1 : 0);
+        }
+        BookSnapshot next = new BookSnapshot(pool, size);
+        next.unpooledBytes = unpooledBytes;
+        next.contentHash = contentHash;
+        // Both are in id order: copy the runs of rows between changes, then write the change
+        int from = 0;
+        int to = 0;
+        for (Map.Entry<Long, BookDTO> change : changes.entrySet()) {
+            int row = indexOf(change.getKey());
+            int end = row >= 0 ? row : -row - 1;
+            next.copyRows(this, from, to, end - from);
+            to += end - from;
+            from = end;
+            if (row >= 0) {
+                next.unpooledBytes -= unpooledBytes(row);
+                next.contentHash ^= rowHash(row);
+                from++;
+            }
+            if (change.getValue() != null) {
+                next.set(to++, change.getValue());
+            }
+        }
+        next.copyRows(this, from, to, ids.length - from);
+        next.pooledBytes = pool.bytes;
+        return next;
+    }
+
+    // A strong ETag for all(): changes whenever a book is added, changed or removed
+    public String etag() {
+        return ids.length + "-" + Long.toHexString(contentHash);
+    }
+
+    /**
+     * Approximate heap held by this snapshot, assuming compressed references: the column arrays,
+     * the title, ISBN and cover URL of every row, and each distinct pooled value once with its
+     * pool entry. Pooled values no book has any more are counted until the next full build.
+     */
+    public long heapBytes() {
+        int size = ids.length;
+        long columns = 9 * array(size, 4) + 2 * array(size, 8) + 4 * array(size, 4) + array(size, 1);
+        return columns + unpooledBytes + pooledBytes;
+    }
+
+    // Writes the book into the row, counting its strings
+    private void set(int row, BookDTO book) {
+        ids[row] = book.getId();
+        titles[row] = book.getTitle();
+        authors[row] = pool.intern(book.getAuthor());
+        categories[row] = pool.intern(book.getCategory());
+        available[row] = book.isAvailable();
+        publishers[row] = pool.intern(book.getPublisher());
+        isbns[row] = book.getIsbn();
+        editions[row] = book.getEdition() == null ? NULL_INT : book.getEdition().getValue();
+        languages[row] = pool.intern(book.getLanguage());
+        publicationDays[row] = book.getPublicationDate() == null ? NULL_INT
+                : Math.toIntExact(book.getPublicationDate().toEpochDay());
+        quantities[row] = book.getQuantity();
+        coverUrls[row] = book.getCoverUrl();
+        pageCounts[row] = book.getPageCount() == null ? NULL_INT : book.getPageCount();
+        prices[row] = pool.intern(book.getPrice());
+        locations[row] = pool.intern(book.getLocation());
+        versions[row] = book.getVersion() == null ? NULL_LONG : book.getVersion();
+        unpooledBytes += unpooledBytes(row);
+        contentHash ^= rowHash(row);
+    }
+
+    private long unpooledBytes(int row) {
+        return stringBytes(titles[row]) + stringBytes(isbns[row]) + stringBytes(coverUrls[row]);
+    }
+
+    // SplitMix64's finalizer over id and version, so XOR-ing rows does not cancel similar ones out
+    private long rowHash(int row) {
+        long hash = ids[row] * 0x9E3779B97F4A7C15L + versions[row];
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private void copyRows(BookSnapshot source, int from, int to, int length) {
+        System.arraycopy(source.ids, from, ids, to, length);
+        System.arraycopy(source.titles, from, titles, to, length);
+        System.arraycopy(source.authors, from, authors, to, length);
+        System.arraycopy(source.categories, from, categories, to, length);
+        System.arraycopy(source.available, from, available, to, length);
+        System.arraycopy(source.publishers, from, publishers, to, length);
+        System.arraycopy(source.isbns, from, isbns, to, length);
+        System.arraycopy(source.editions, from, editions, to, length);
+        System.arraycopy(source.languages, from, languages, to, length);
+        System.arraycopy(source.publicationDays, from, publicationDays, to, length);
+        System.arraycopy(source.quantities, from, quantities, to, length);
+        System.arraycopy(source.coverUrls, from, coverUrls, to, length);
+        System.arraycopy(source.pageCounts, from, pageCounts, to, length);
+        System.arraycopy(source.prices, from, prices, to, length);
+        System.arraycopy(source.locations, from, locations, to, length);
+        System.arraycopy(source.versions, from, versions, to, length);
+    }
+
+    private static boolean contains(String value, String query) {
+        if (value == null) {
+            return false;
+        }
+        for (int start = 0, last = value.length() - query.length(); start <= last; start++) {
+            if (value.regionMatches(true, start, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A String and its byte array: Latin-1 text takes a byte per character, anything else two
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        return 24 + array(value.length(), latin1 ? 1 : 2);
+    }
+
+    // An array of the given length and element size, with its 16-byte header, 8-byte aligned
+    private static long array(int length, int elementBytes) {
+        return (16 + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    // The distinct values of the pooled columns, shared by a build and the snapshots made from it
+    private static final class Pool {
+
+        private final Map<String, String> values = new HashMap<>();
+        private long bytes;
+
+        String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String pooled = values.putIfAbsent(value, value);
+            if (pooled != null) {
+                return pooled;
+            }
+            bytes += stringBytes(value) + POOL_ENTRY_BYTES;
+            return value;
+        }
+    }
+
+    /** Collects books in ascending id order, as {@code BookRepo.streamAllDtos} returns them. */
+    public static final class Builder {
+
+        private final Pool pool = new Pool();
+        private BookSnapshot columns = new BookSnapshot(pool, 1024);
+        private int size;
+
+        private Builder() {
+        }
+
+        public Builder add(BookDTO book) {
+            if (size > 0 && book.getId() <= columns.ids[size - 1]) {
+                throw new IllegalArgumentException("Books must be added in ascending id order: " + book.getId()
+                        + " after " + columns.ids[size - 1]);
+            }
+            if (size == columns.ids.length) {
+                columns = resized(size * 2);
+            }
+            columns.set(size++, book);
+            return this;
+        }
+
+        public BookSnapshot build() {
+            BookSnapshot built = size == columns.ids.length ? columns : resized(size);
+            built.pooledBytes = pool.bytes;
+            return built;
+        }
+
+        private BookSnapshot resized(int capacity) {
+            BookSnapshot resized = new BookSnapshot(pool, capacity);
+            resized.copyRows(columns, 0, 0, size);
+            resized.unpooledBytes = columns.unpooledBytes;
+            resized.contentHash = columns.contentHash;
+            return resized;
+        }
+    }
+}
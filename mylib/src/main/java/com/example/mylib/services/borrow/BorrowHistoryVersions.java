@@ -0,0 +1,64 @@
+package com.example.mylib.services.borrow;
+
+import com.example.mylib.repository.BorrowHistoryVersionRepo;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ETags for borrow histories, from the per-user counter {@link BorrowHistoryVersionRepo} keeps. The
+ * counter lives in the database rather than on this node so every node, and a replica serving the
+ * history, agrees on it. Users changed in a transaction are collected and counted just before it
+ * commits, in one statement however many records it touched.
+ */
+@Component
+public class BorrowHistoryVersions {
+
+    private final BorrowHistoryVersionRepo versionRepo;
+
+    public BorrowHistoryVersions(BorrowHistoryVersionRepo versionRepo) {
+        this.versionRepo = versionRepo;
+    }
+
+    // Something the user's borrow history shows changed, or is changing in this transaction
+    public void changed(Long userId) {
+        changed(List.of(userId));
+    }
+
+    public void changed(Collection<Long> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versionRepo.bump(userIds);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> users = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, users);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    versionRepo.bump(users);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(BorrowHistoryVersions.this);
+                }
+            });
+            pending = users;
+        }
+        pending.addAll(userIds);
+    }
+
+    // Empty if there is no such user
+    public Optional<String> etag(Long userId) {
+        return versionRepo.find(userId).map(version -> userId + "-" + version);
+    }
+}
@@ -5,12 +5,15 @@ import com.example.mylib.entities.BorrowRecord;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 @Service
 public interface BorrowService {
 
     boolean isEligibleToBorrow(Long userId, Long bookId);
-    // User can request a book, but admin must approve before borrowing
-    BorrowRecord requestBorrow(Long userId, Long bookId); // User
+    // User can request a book at a branch (null for the default), but admin must approve before borrowing
+    BorrowRecord requestBorrow(Long userId, Long bookId, String branch); // User
 
     // Admin approves the borrow request
     BorrowRecord approveBorrowRequest(Long borrowRequestId); // Admin
@@ -24,17 +27,33 @@ public interface BorrowService {
     // Both User and Admin can see borrow history of a specific user
     List<BorrowRecordDTO> getBorrowHistory(Long userId); // User & Admin
 
+    // Conditional GET of the history: empty when notModified accepts its ETag (see BorrowHistoryVersions)
+    Optional<List<BorrowRecordDTO>> getBorrowHistoryIfModified(Long userId, Predicate<String> notModified);
+
     // Get active borrows for a specific user (User & Admin)
     List<BorrowRecordDTO> getActiveBorrows(Long userId); // User & Admin
 
-    // Only Admin can see all borrow records in the library
+    // Only Admin can see all borrow records in the library, or at one branch
     public List<BorrowRecordDTO> getAllBorrows(); // Admin
 
+    List<BorrowRecordDTO> getAllBorrows(String branch); // Admin
+
     // Get a specific borrow record (for both User & Admin)
     BorrowRecord getBorrowRecordById(Long borrowRecordId); // User & Admin
 
+    BorrowRecordDTO getBorrowRecordDtoById(Long borrowRecordId); // User & Admin
+
     // Get borrow history for a specific book (Admin only)
-    List<BorrowRecord> getBookBorrowHistory(Long bookId); // Admin
+    List<BorrowRecordDTO> getBookBorrowHistory(Long bookId); // Admin
+
+    // Sparse fieldsets of the listings above: only the named BorrowRecordDTO properties are selected
+    List<Map<String, Object>> getBorrowHistoryFields(Long userId, List<String> fields);
+
+    List<Map<String, Object>> getActiveBorrowFields(Long userId, List<String> fields);
+
+    List<Map<String, Object>> getAllBorrowFields(List<String> fields, String branch);
+
+    List<Map<String, Object>> getBookBorrowHistoryFields(Long bookId, List<String> fields);
 
     // Cancel a borrow request
     void cancelBorrowRequest(Long borrowRequestId);
@@ -43,5 +62,5 @@ public interface BorrowService {
     void cancelReturnRequest(Long borrowRecordId);
 
     // Update a borrow record
-    BorrowRecord updateBorrowRecord(Long borrowRecordId, BorrowRecordDTO updateData);
+    BorrowRecordDTO updateBorrowRecord(Long borrowRecordId, BorrowRecordDTO updateData);
 }
@@ -2,24 +2,31 @@ package com.example.mylib.services.borrow;
 
 import com.example.mylib.dto.BorrowRecordDTO;
 import com.example.mylib.entities.Book;
+import com.example.mylib.entities.BookCopy;
 import com.example.mylib.entities.BorrowRecord;
 import com.example.mylib.enums.BorrowStatus;
+import com.example.mylib.enums.CopyStatus;
 import com.example.mylib.entities.Users;
 import com.example.mylib.exceptions.ResourceNotFoundException;
 import com.example.mylib.payload.AppConstants;
 import com.example.mylib.repository.BookRepo;
 import com.example.mylib.repository.BorrowRepo;
+import com.example.mylib.repository.SparseFieldQuery;
 import com.example.mylib.repository.UserRepo;
 import com.example.mylib.services.Reservation.ReservationService;
+import com.example.mylib.services.catalog.CatalogViewService;
 import com.example.mylib.services.fine.FineCalculator;
+import com.example.mylib.services.inventory.InventoryService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 @RequiredArgsConstructor
@@ -30,8 +37,11 @@ public class BorrowServiceImpl implements BorrowService {
     private final UserRepo userRepo;
     private final BookRepo bookRepo;
     private final ReservationService reservationService;
-    private final ModelMapper modelMapper;
     private final FineCalculator fineCalculator;
+    private final SparseFieldQuery sparseFieldQuery;
+    private final InventoryService inventoryService;
+    private final CatalogViewService catalogViewService;
+    private final BorrowHistoryVersions borrowHistoryVersions;
 
     @Override
     public boolean isEligibleToBorrow(Long userId, Long bookId) {
@@ -43,15 +53,16 @@ public class BorrowServiceImpl implements BorrowService {
     }
 
     @Override
-    public BorrowRecord requestBorrow(Long userId, Long bookId) {
+    public BorrowRecord requestBorrow(Long userId, Long bookId, String branch) {
         Users user = userRepo.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with ID: " + userId));
 
         Book book = bookRepo.findById(bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found!"));
 
-        if (book.getQuantity() <= 0) {
-            throw new RuntimeException("Book is out of stock. Consider reserving it.");
+        String atBranch = inventoryService.branch(branch);
+        if (inventoryService.availableCopies(bookId, atBranch) <= 0) {
+            throw new RuntimeException("Book is out of stock at " + atBranch + ". Consider reserving it.");
         }
 
         if (!isEligibleToBorrow(userId, bookId)) {
@@ -63,8 +74,11 @@ public class BorrowServiceImpl implements BorrowService {
         // BorrowRecordDTO borrowRecordDTO = new
         borrowRecord.setUser(user);
         borrowRecord.setBook(book);
+        borrowRecord.setBranch(atBranch);
         borrowRecord.setStatus(BorrowStatus.PENDING); // Now pending approval
 
+        catalogViewService.bookChanged(bookId);
+        borrowHistoryVersions.changed(userId);
         return borrowRepo.save(borrowRecord);
     }
 
@@ -78,9 +92,10 @@ public class BorrowServiceImpl implements BorrowService {
             throw new RuntimeException("This request is already processed.");
         }
 
-        // Check if there are any pending reservation-based requests for this book
-        List<BorrowRecord> pendingReservationRequests = borrowRepo.findByBookIdAndStatusAndFromReservation(
+        // Check if there are any pending reservation-based requests for this book at the branch
+        List<BorrowRecord> pendingReservationRequests = borrowRepo.findByBookIdAndBranchAndStatusAndFromReservation(
                 borrowRecord.getBook().getId(),
+                borrowRecord.getBranch(),
                 BorrowStatus.PENDING,
                 Boolean.TRUE);
 
@@ -99,21 +114,20 @@ public class BorrowServiceImpl implements BorrowService {
         // Approve borrow request
         borrowRecord.setStatus(BorrowStatus.BORROWED);
 
-        // Reduce book quantity with optimistic locking
-        Book book = borrowRecord.getBook();
-        if (book.getQuantity() <= 0) {
-            throw new RuntimeException(
-                    "Book is no longer available for borrowing. Please try again or contact the librarian.");
-        }
-
-        try {
-            book.setQuantity(book.getQuantity() - 1);
-            bookRepo.save(book);
-        } catch (Exception e) {
-            throw new RuntimeException(
-                    "Failed to update book quantity. The book may have been borrowed by someone else. Please try again.");
+        // Reservation-based requests already hold a copy, set aside by assignBookToNextUser;
+        // direct requests claim any free one at their branch.
+        if (borrowRecord.getCopy() != null) {
+            inventoryService.lend(borrowRecord.getCopy());
+        } else {
+            BookCopy copy = inventoryService.claimCopy(borrowRecord.getBook().getId(), borrowRecord.getBranch(),
+                            CopyStatus.ON_LOAN)
+                    .orElseThrow(() -> new RuntimeException(
+                            "Book is no longer available for borrowing. Please try again or contact the librarian."));
+            borrowRecord.setCopy(copy);
         }
 
+        catalogViewService.bookChanged(borrowRecord.getBook().getId());
+        borrowHistoryVersions.changed(borrowRecord.getUser().getId());
         return borrowRepo.save(borrowRecord);
     }
 
@@ -136,6 +150,7 @@ public class BorrowServiceImpl implements BorrowService {
 
         borrowRecord.setStatus(BorrowStatus.RETURN_PENDING); // Waiting for admin approval
         borrowRepo.save(borrowRecord);
+        borrowHistoryVersions.changed(borrowRecord.getUser().getId());
     }
 
     @Override
@@ -157,57 +172,58 @@ public class BorrowServiceImpl implements BorrowService {
         // Mark as returned
         borrowRecord.setStatus(BorrowStatus.RETURNED);
         borrowRepo.save(borrowRecord);
+        borrowHistoryVersions.changed(borrowRecord.getUser().getId());
 
-        // Increase book quantity
+        // Put the copy back on the shelf of the branch it belongs to
         Book book = borrowRecord.getBook();
-        book.setQuantity(book.getQuantity() + 1);
-        bookRepo.save(book);
+        String branch = borrowRecord.getBranch();
+        if (borrowRecord.getCopy() != null) {
+            inventoryService.release(borrowRecord.getCopy());
+            branch = borrowRecord.getCopy().getBranch();
+        }
+        catalogViewService.bookChanged(book.getId());
 
-        // Assign book to next reserved user
-        reservationService.assignBookToNextUser(book.getId());
+        // Assign book to next reserved user at that branch
+        reservationService.assignBookToNextUser(book.getId(), branch);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BorrowRecordDTO> getBorrowHistory(Long userId) {
-        List<BorrowRecord> records = borrowRepo.findByUserId(userId);
-        return records.stream().map(borrowRecord -> {
-            BorrowRecordDTO dto = modelMapper.map(borrowRecord, BorrowRecordDTO.class);
-            dto.setUserName(borrowRecord.getUser().getName());
-            dto.setBookId(borrowRecord.getBook().getId());
-            dto.setBookTitle(borrowRecord.getBook().getTitle());
-            dto.setReturnDate(borrowRecord.getReturnDate());
-            dto.setFineAmount(borrowRecord.getFineAmount());
-            return dto;
-        }).toList();
+        return borrowRepo.findDtosByUserId(userId);
+    }
+
+    // The version is read first, in the same transaction and so from the same database: a change
+    // committed between the two reads is served under the older ETag and fetched again next time
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<List<BorrowRecordDTO>> getBorrowHistoryIfModified(Long userId, Predicate<String> notModified) {
+        Optional<String> etag = borrowHistoryVersions.etag(userId);
+        if (etag.isPresent() && notModified.test(etag.get())) {
+            return Optional.empty();
+        }
+        return Optional.of(borrowRepo.findDtosByUserId(userId));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BorrowRecordDTO> getActiveBorrows(Long userId) {
-        List<BorrowRecord> records = borrowRepo.findByUserIdAndStatus(userId, BorrowStatus.BORROWED);
-
-        return records.stream().map(borrowRecord -> {
-            BorrowRecordDTO dto = modelMapper.map(borrowRecord, BorrowRecordDTO.class);
-            dto.setUserName(borrowRecord.getUser().getName());
-            dto.setBookId(borrowRecord.getBook().getId());
-            dto.setBookTitle(borrowRecord.getBook().getTitle());
-            dto.setReturnDate(borrowRecord.getReturnDate());
-            dto.setFineAmount(borrowRecord.getFineAmount());
-            return dto;
-        }).toList();
+        return borrowRepo.findDtosByUserIdAndStatus(userId, BorrowStatus.BORROWED);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BorrowRecordDTO> getAllBorrows() {
-        List<BorrowRecord> borrowRecords = borrowRepo.findAll();
-        return borrowRecords.stream().map(borrowRecord -> {
-            BorrowRecordDTO dto = modelMapper.map(borrowRecord, BorrowRecordDTO.class);
-            dto.setUserName(borrowRecord.getUser().getName());
-            dto.setBookId(borrowRecord.getBook().getId());
-            dto.setBookTitle(borrowRecord.getBook().getTitle());
-            dto.setReturnDate(borrowRecord.getReturnDate());
-            dto.setFineAmount(borrowRecord.getFineAmount());
-            return dto;
-        }).toList();
+        return borrowRepo.findAllDtos();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BorrowRecordDTO> getAllBorrows(String branch) {
+        if (branch == null) {
+            return getAllBorrows();
+        }
+        return borrowRepo.findDtosByBranch(inventoryService.branch(branch));
     }
 
     @Override
@@ -217,8 +233,43 @@ public class BorrowServiceImpl implements BorrowService {
     }
 
     @Override
-    public List<BorrowRecord> getBookBorrowHistory(Long bookId) {
-        return borrowRepo.findByBookId(bookId);
+    @Transactional(readOnly = true)
+    public BorrowRecordDTO getBorrowRecordDtoById(Long borrowRecordId) {
+        return borrowRepo.findDtoById(borrowRecordId)
+                .orElseThrow(() -> new ResourceNotFoundException("Borrow record not found."));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BorrowRecordDTO> getBookBorrowHistory(Long bookId) {
+        return borrowRepo.findDtosByBookId(bookId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getBorrowHistoryFields(Long userId, List<String> fields) {
+        return sparseFieldQuery.findBorrowRecordsByUser(fields, userId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getActiveBorrowFields(Long userId, List<String> fields) {
+        return sparseFieldQuery.findBorrowRecordsByUserAndStatus(fields, userId, BorrowStatus.BORROWED);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllBorrowFields(List<String> fields, String branch) {
+        if (branch != null) {
+            return sparseFieldQuery.findBorrowRecordsByBranch(fields, inventoryService.branch(branch));
+        }
+        return sparseFieldQuery.findAllBorrowRecords(fields);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getBookBorrowHistoryFields(Long bookId, List<String> fields) {
+        return sparseFieldQuery.findBorrowRecordsByBook(fields, bookId);
     }
 
     @Override
@@ -231,6 +282,15 @@ public class BorrowServiceImpl implements BorrowService {
         }
 
         borrowRepo.delete(borrowRecord);
+        catalogViewService.bookChanged(borrowRecord.getBook().getId());
+        borrowHistoryVersions.changed(borrowRecord.getUser().getId());
+
+        // A copy held for a reservation goes to the next reader waiting, or back on the shelf
+        if (borrowRecord.getCopy() != null) {
+            inventoryService.release(borrowRecord.getCopy());
+            reservationService.assignBookToNextUser(borrowRecord.getBook().getId(),
+                    borrowRecord.getCopy().getBranch());
+        }
     }
 
     @Override
@@ -244,10 +304,11 @@ public class BorrowServiceImpl implements BorrowService {
 
         borrowRecord.setStatus(BorrowStatus.BORROWED);
         borrowRepo.save(borrowRecord);
+        borrowHistoryVersions.changed(borrowRecord.getUser().getId());
     }
 
     @Override
-    public BorrowRecord updateBorrowRecord(Long borrowRecordId, BorrowRecordDTO updateData) {
+    public BorrowRecordDTO updateBorrowRecord(Long borrowRecordId, BorrowRecordDTO updateData) {
         BorrowRecord borrowRecord = borrowRepo.findById(borrowRecordId)
                 .orElseThrow(() -> new ResourceNotFoundException("Borrow record not found."));
 
@@ -270,6 +331,7 @@ public class BorrowServiceImpl implements BorrowService {
 
         if (!Objects.equals(updateData.getFineAmount(), borrowRecord.getFineAmount())) {
             borrowRecord.setFineAmount((updateData.getFineAmount()));
+            borrowHistoryVersions.changed(borrowRecord.getUser().getId());
         }
 
         // Fine should only be calculated when any relevant field has changed
@@ -280,16 +342,12 @@ public class BorrowServiceImpl implements BorrowService {
                 double fineAmount = fineCalculator.calculateFine(borrowRecord);
                 borrowRecord.setFineAmount(fineAmount);
             }
-            return borrowRepo.save(borrowRecord);
+            catalogViewService.bookChanged(borrowRecord.getBook().getId());
+            borrowHistoryVersions.changed(borrowRecord.getUser().getId());
+            return convertToDTO(borrowRepo.save(borrowRecord));
         }
 
-        if (updated) {
-            System.out.println("Fields changed, saving...");
-            return borrowRepo.save(borrowRecord);
-        } else {
-            System.out.println("No fields changed.");
-            return borrowRecord; // no save = no update SQL query
-        }
+        return convertToDTO(borrowRecord);
     }
 
     public BorrowRecordDTO convertToDTO(BorrowRecord record) {
@@ -297,6 +355,7 @@ public class BorrowServiceImpl implements BorrowService {
 
         dto.setId(record.getId());
         dto.setUserName(record.getUser().getName());
+        dto.setUserId(record.getUser().getId());
         dto.setBookId(record.getBook().getId());
         dto.setBookTitle(record.getBook().getTitle());
         dto.setIssueDate(record.getIssueDate());
@@ -304,6 +363,8 @@ public class BorrowServiceImpl implements BorrowService {
         dto.setReturnDate(record.getReturnDate());
         dto.setFineAmount(record.getFineAmount());
         dto.setStatus(record.getStatus());
+        dto.setFinePaid(record.isFinePaid());
+        dto.setCopyBarcode(record.getCopy() == null ? null : record.getCopy().getBarcode());
 
         return dto;
     }
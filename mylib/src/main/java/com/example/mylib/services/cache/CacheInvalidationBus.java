@@ -0,0 +1,10 @@
+package com.example.mylib.services.cache;
+
+public interface CacheInvalidationBus {
+
+    /**
+     * Announces a change to this node and every other node. Inside a transaction the event is
+     * delivered only if and when it commits; outside one it is sent immediately.
+     */
+    void publish(CacheInvalidationEvent event);
+}
@@ -0,0 +1,54 @@
+package com.example.mylib.services.cache;
+
+/**
+ * A change that makes cached copies of an entity stale. Published on the local node through the
+ * Spring event bus and to every other node through {@link CacheInvalidationBus}; caches subscribe
+ * with {@code @EventListener}.
+ *
+ * @param change   what changed
+ * @param entityId id of the changed book or user; {@code null} for {@link Change#ALL} and
+ *                 {@link Change#BOOKS_BULK_LOADED}
+ * @param remote   whether the change was made on another node
+ */
+public record CacheInvalidationEvent(Change change, Long entityId, boolean remote) {
+
+    public enum Change {
+        // Nothing cached yet, but in-memory indexes over the catalog need to add it
+        BOOK_CREATED,
+        BOOK_UPDATED,
+        BOOK_DELETED,
+        // Written with SQL by a bulk load, not through Hibernate: stale on the writing node too
+        BOOK_BULK_UPDATED,
+        // As above for more books than are worth naming one by one; drop every cached book
+        BOOKS_BULK_LOADED,
+        USER_UPDATED,
+        USER_ROLES_CHANGED,
+        USER_ENABLED_CHANGED,
+        // Notifications may have been missed (listener reconnected); drop everything
+        ALL;
+
+        public boolean isBookChange() {
+            return this == BOOK_CREATED || this == BOOK_UPDATED || this == BOOK_DELETED || isBulkLoad();
+        }
+
+        public boolean isBulkLoad() {
+            return this == BOOK_BULK_UPDATED || this == BOOKS_BULK_LOADED;
+        }
+
+        public boolean isUserChange() {
+            return this == USER_UPDATED || this == USER_ROLES_CHANGED || this == USER_ENABLED_CHANGED;
+        }
+    }
+
+    public static CacheInvalidationEvent of(Change change, Long entityId) {
+        return new CacheInvalidationEvent(change, entityId, false);
+    }
+
+    public static CacheInvalidationEvent all() {
+        return new CacheInvalidationEvent(Change.ALL, null, true);
+    }
+
+    public CacheInvalidationEvent asRemote() {
+        return new CacheInvalidationEvent(change, entityId, true);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.mylib.services.cache;
+
+import com.example.mylib.dto.CacheRegionStatsDTO;
+
+import java.util.List;
+
+public interface CacheStatisticsService {
+
+    // Hit/miss/put counters for every second-level cache region since startup
+    List<CacheRegionStatsDTO> getRegionStatistics();
+}
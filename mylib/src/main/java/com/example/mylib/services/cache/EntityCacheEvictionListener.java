@@ -0,0 +1,46 @@
+package com.example.mylib.services.cache;
+
+import com.example.mylib.entities.Book;
+import com.example.mylib.entities.Users;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies invalidation events to the Hibernate second-level cache. Writes made on this node
+ * already keep it current; this evicts entries changed by other nodes, and by bulk loads, which
+ * bypass Hibernate.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheEvictionListener {
+
+    private static final String USER_ROLES_ROLE = Users.class.getName() + ".roleList";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (!event.remote() && !event.change().isBulkLoad()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        if (event.change() == CacheInvalidationEvent.Change.ALL) {
+            cache.evictAllRegions();
+        } else if (event.change() == CacheInvalidationEvent.Change.BOOKS_BULK_LOADED) {
+            cache.evictEntityData(Book.class);
+        } else if (event.change().isBookChange()) {
+            cache.evictEntityData(Book.class, event.entityId());
+        } else if (event.change().isUserChange()) {
+            cache.evictEntityData(Users.class, event.entityId());
+            cache.evictCollectionData(USER_ROLES_ROLE, event.entityId());
+        }
+        logger.debug("Evicted second-level cache entries for {}", event);
+    }
+}
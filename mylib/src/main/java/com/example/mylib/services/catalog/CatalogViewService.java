@@ -0,0 +1,24 @@
+package com.example.mylib.services.catalog;
+
+import com.example.mylib.dto.CatalogCardDTO;
+
+import java.util.List;
+
+/**
+ * The catalog read model: each book with its copies on the shelf, reservations waiting, next due
+ * date and times borrowed, kept in {@code book_catalog_view} so listings read one narrow row per
+ * book instead of counting copies, reservations and loans on every request.
+ * <p>
+ * Write paths report the books they touch with {@link #bookChanged}, which marks them in the same
+ * transaction; the rows are brought up to date shortly after it commits, so cards may trail a loan
+ * or reservation by up to {@code catalog.view.refresh-interval}.
+ */
+public interface CatalogViewService {
+
+    // Marks the book's row for refresh as the current transaction commits (at once outside one)
+    void bookChanged(Long bookId);
+
+    List<CatalogCardDTO> getCards(int page, int size);
+
+    CatalogCardDTO getCard(Long bookId);
+}
@@ -0,0 +1,10 @@
+package com.example.mylib.services.dashboard;
+
+import com.example.mylib.dto.UserDashboardDTO;
+
+public interface DashboardService {
+
+    // Everything the "my library" page shows, read concurrently; sections that do not finish in
+    // time are reported in UserDashboardDTO.incomplete instead of failing the whole page
+    UserDashboardDTO getUserDashboard(Long userId);
+}
@@ -0,0 +1,18 @@
+package com.example.mylib.services.export;
+
+import com.example.mylib.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    // Every borrow record, as BorrowRecordDTO rows
+    long exportBorrowRecords(ExportFormat format, OutputStream out) throws IOException;
+
+    // Borrow records with a fine, as FineDto rows
+    long exportFines(ExportFormat format, OutputStream out) throws IOException;
+
+    // The whole catalog, as BookDTO rows
+    long exportCatalog(ExportFormat format, OutputStream out) throws IOException;
+}
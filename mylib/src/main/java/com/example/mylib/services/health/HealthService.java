@@ -0,0 +1,13 @@
+package com.example.mylib.services.health;
+
+import com.example.mylib.dto.HealthStatusDTO;
+
+public interface HealthService {
+
+    // Whether the process is alive; answered from memory
+    HealthStatusDTO getLiveness();
+
+    // Whether the instance should receive traffic; answered from the last background checks,
+    // never touching the database on the calling thread
+    HealthStatusDTO getReadiness();
+}
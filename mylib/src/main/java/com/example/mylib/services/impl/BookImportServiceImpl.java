@@ -0,0 +1,309 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.BookImportErrorDTO;
+import com.example.mylib.dto.BookImportReportDTO;
+import com.example.mylib.enums.BookFeedFormat;
+import com.example.mylib.enums.BookImportMode;
+import com.example.mylib.exceptions.InvalidBookRecordException;
+import com.example.mylib.repository.BookBulkRepo;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.ingest.BookImportService;
+import com.example.mylib.services.ingest.BookRecordReader;
+import com.example.mylib.services.ingest.CsvBookRecordReader;
+import com.example.mylib.services.ingest.IsbnNormalizer;
+import com.example.mylib.services.ingest.MarcXmlBookRecordReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Loads feeds with memory bounded by a chunk size, not the feed size. Records are read and
+ * validated one at a time; a bad record is reported and skipped.
+ * <p>
+ * {@link BookImportMode#INSERT}: every {@code ingest.chunk-size} valid records are deduplicated
+ * with one ISBN lookup and inserted in one JDBC batch and transaction. A chunk the database rejects
+ * (e.g. an ISBN inserted concurrently) is reported and skipped as a whole; chunks already committed
+ * stay committed, so a feed can be re-sent after a failure and only the missing books are added.
+ * New books are announced as {@code BOOK_CREATED}, or as one {@code BOOKS_BULK_LOADED} past
+ * {@code ingest.targeted-invalidation-limit}.
+ * <p>
+ * {@link BookImportMode#UPSERT}: the whole feed is COPYed to a staging table and merged in one
+ * transaction (see {@link BookBulkRepo#upsertAll}), then caches are told which books changed,
+ * or to drop every book past {@code ingest.targeted-invalidation-limit}.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    // Column lengths of library_books
+    private static final List<ColumnLimit> COLUMN_LIMITS = List.of(
+            new ColumnLimit("title", BookDTO::getTitle, 500),
+            new ColumnLimit("author", BookDTO::getAuthor, 1000),
+            new ColumnLimit("category", BookDTO::getCategory, 255),
+            new ColumnLimit("publisher", BookDTO::getPublisher, 500),
+            new ColumnLimit("language", BookDTO::getLanguage, 100),
+            new ColumnLimit("coverUrl", BookDTO::getCoverUrl, 1000),
+            new ColumnLimit("price", BookDTO::getPrice, 100),
+            new ColumnLimit("location", BookDTO::getLocation, 255));
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BookRepo bookRepo;
+    private final BookBulkRepo bookBulkRepo;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final int chunkSize;
+    private final int copyChunkSize;
+    private final int maxReportedErrors;
+    private final int targetedInvalidationLimit;
+
+    public BookImportServiceImpl(BookRepo bookRepo,
+                                 BookBulkRepo bookBulkRepo,
+                                 CacheInvalidationBus cacheInvalidationBus,
+                                 @Value("${ingest.chunk-size}") int chunkSize,
+                                 @Value("${ingest.copy-chunk-size}") int copyChunkSize,
+                                 @Value("${ingest.max-reported-errors}") int maxReportedErrors,
+                                 @Value("${ingest.targeted-invalidation-limit}") int targetedInvalidationLimit) {
+        this.bookRepo = bookRepo;
+        this.bookBulkRepo = bookBulkRepo;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.chunkSize = chunkSize;
+        this.copyChunkSize = copyChunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.targetedInvalidationLimit = targetedInvalidationLimit;
+    }
+
+    @Override
+    public BookImportReportDTO importBooks(InputStream feed, BookFeedFormat format, BookImportMode mode) {
+        long started = System.nanoTime();
+        BookImportReportDTO report = new BookImportReportDTO();
+        report.setFormat(format);
+        report.setMode(mode);
+
+        try (BookRecordReader reader = open(feed, format)) {
+            ValidRecords records = new ValidRecords(reader, report);
+            if (mode == BookImportMode.UPSERT) {
+                upsert(records, report);
+            } else {
+                insertNew(records, report);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            String message = e instanceof UncheckedIOException unchecked ? unchecked.getCause().getMessage() : e.getMessage();
+            logger.warn("Book import ({}, {}) stopped after {} records: {}", format, mode, report.getRecordsRead(), message);
+            report.setAborted(mode == BookImportMode.UPSERT ? message + "; nothing was changed" : message);
+        }
+
+        long nanos = System.nanoTime() - started;
+        report.setDurationMillis(nanos / 1_000_000);
+        report.setRowsPerSecond(nanos == 0 ? 0 : Math.round(report.getRecordsRead() * 1e9 / nanos));
+        logger.info("Book import ({}, {}) finished in {} ms ({} rows/s): {} read, {} inserted, {} updated, "
+                        + "{} duplicates, {} rejected", format, mode, report.getDurationMillis(), report.getRowsPerSecond(),
+                report.getRecordsRead(), report.getInserted(), report.getUpdated(), report.getDuplicates(),
+                report.getRejected());
+        return report;
+    }
+
+    private void insertNew(ValidRecords records, BookImportReportDTO report) {
+        // ISBN -> book, in feed order; also drops repeats within the chunk
+        Map<String, BookDTO> chunk = new LinkedHashMap<>();
+        List<Long> created = new ArrayList<>();
+        long chunkStart = 1;
+        try {
+            while (records.hasNext()) {
+                BookDTO book = records.next();
+                if (chunk.putIfAbsent(book.getIsbn(), book) != null) {
+                    report.setDuplicates(report.getDuplicates() + 1);
+                }
+                if (chunk.size() >= chunkSize) {
+                    collectIds(write(chunk, chunkStart, records.recordNumber(), report), created);
+                    chunkStart = records.recordNumber() + 1;
+                }
+            }
+            collectIds(write(chunk, chunkStart, records.recordNumber(), report), created);
+        } finally {
+            // Nothing cached is stale, but in-memory indexes over the catalog need the committed books
+            if (report.getInserted() > targetedInvalidationLimit) {
+                cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOKS_BULK_LOADED, null));
+            } else {
+                created.forEach(id -> cacheInvalidationBus.publish(
+                        CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_CREATED, id)));
+            }
+        }
+    }
+
+    private void collectIds(List<BookDTO> inserted, List<Long> ids) {
+        if (ids.size() + inserted.size() <= targetedInvalidationLimit) {
+            inserted.forEach(book -> ids.add(book.getId()));
+        }
+    }
+
+    // One transaction for the whole feed: a feed that breaks off part way changes nothing
+    private void upsert(ValidRecords records, BookImportReportDTO report) {
+        BookBulkRepo.UpsertResult result;
+        try {
+            result = bookBulkRepo.upsertAll(records, copyChunkSize, targetedInvalidationLimit);
+        } catch (DataAccessException e) {
+            logger.error("Book upsert failed: {}", e.getMostSpecificCause().getMessage());
+            report.setAborted("Merge failed; nothing was changed: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+        report.setInserted(result.getInserted());
+        report.setUpdated(result.getUpdated());
+        report.setUnchanged(result.getUnchanged());
+        report.setDuplicates(result.getStaged() - result.getDistinct());
+
+        // The load bypassed Hibernate, so cached books are stale on every node, this one included
+        if (result.getChangedIds() == null) {
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOKS_BULK_LOADED, null));
+        } else {
+            result.getChangedIds().forEach(id -> cacheInvalidationBus.publish(
+                    CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_BULK_UPDATED, id)));
+        }
+    }
+
+    private static BookRecordReader open(InputStream feed, BookFeedFormat format) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvBookRecordReader(feed);
+            case MARCXML -> new MarcXmlBookRecordReader(feed);
+        };
+    }
+
+    // Normalizes the ISBN in place; returns why the book cannot be imported, or null
+    private static String validate(BookDTO book) {
+        if (book.getIsbn() == null || book.getIsbn().isBlank()) {
+            return "Missing ISBN";
+        }
+        String isbn = IsbnNormalizer.normalize(book.getIsbn()).orElse(null);
+        if (isbn == null) {
+            return "Invalid ISBN: " + book.getIsbn();
+        }
+        book.setIsbn(isbn);
+        if (book.getTitle() == null || book.getTitle().isBlank()) {
+            return "Missing title";
+        }
+        if (book.getQuantity() < 0) {
+            return "Negative quantity: " + book.getQuantity();
+        }
+        for (ColumnLimit limit : COLUMN_LIMITS) {
+            String value = limit.value().apply(book);
+            if (value != null && value.length() > limit.maxLength()) {
+                return limit.field() + " longer than " + limit.maxLength() + " characters";
+            }
+        }
+        return null;
+    }
+
+    // Returns the books inserted, with their ids
+    private List<BookDTO> write(Map<String, BookDTO> chunk, long firstRecord, long lastRecord,
+                                BookImportReportDTO report) {
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+        Set<String> existing = bookRepo.findExistingIsbns(chunk.keySet());
+        report.setDuplicates(report.getDuplicates() + existing.size());
+        chunk.keySet().removeAll(existing);
+        List<BookDTO> books = new ArrayList<>(chunk.values());
+        chunk.clear();
+        if (books.isEmpty()) {
+            return List.of();
+        }
+        try {
+            bookBulkRepo.insertAll(books);
+            report.setInserted(report.getInserted() + books.size());
+            logger.info("Book import progress: {} read, {} inserted, {} duplicates, {} rejected",
+                    report.getRecordsRead(), report.getInserted(), report.getDuplicates(), report.getRejected());
+            return books;
+        } catch (DataAccessException e) {
+            logger.warn("Book import chunk of records {}-{} failed: {}", firstRecord, lastRecord,
+                    e.getMostSpecificCause().getMessage());
+            report.setRejected(report.getRejected() + books.size() - 1);
+            reject(report, firstRecord, null, "Records " + firstRecord + "-" + lastRecord + " not imported ("
+                    + books.size() + " books): " + e.getMostSpecificCause().getMessage());
+            return List.of();
+        }
+    }
+
+    private void reject(BookImportReportDTO report, long record, String isbn, String message) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new BookImportErrorDTO(record, isbn, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * The feed's records that pass validation, in order; rejected ones are reported as they are
+     * skipped. A broken feed surfaces as UncheckedIOException.
+     */
+    private final class ValidRecords implements Iterator<BookDTO> {
+        private final BookRecordReader reader;
+        private final BookImportReportDTO report;
+        private BookDTO next;
+        private boolean done;
+
+        ValidRecords(BookRecordReader reader, BookImportReportDTO report) {
+            this.reader = reader;
+            this.report = report;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !done) {
+                BookDTO book;
+                try {
+                    book = reader.next();
+                } catch (InvalidBookRecordException e) {
+                    report.setRecordsRead(report.getRecordsRead() + 1);
+                    reject(report, reader.recordNumber(), null, e.getMessage());
+                    continue;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (book == null) {
+                    done = true;
+                    break;
+                }
+                report.setRecordsRead(report.getRecordsRead() + 1);
+                String problem = validate(book);
+                if (problem == null) {
+                    next = book;
+                } else {
+                    reject(report, reader.recordNumber(), book.getIsbn(), problem);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public BookDTO next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BookDTO book = next;
+            next = null;
+            return book;
+        }
+
+        long recordNumber() {
+            return reader.recordNumber();
+        }
+    }
+
+    private record ColumnLimit(String field, Function<BookDTO, String> value, int maxLength) {
+    }
+}
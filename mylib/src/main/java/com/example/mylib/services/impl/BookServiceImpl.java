@@ -1,20 +1,40 @@
 package com.example.mylib.services.impl;
 
+import com.example.mylib.dto.AuthorDTO;
 import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.CategoryDTO;
 import com.example.mylib.entities.Book;
 import com.example.mylib.exceptions.ResourceNotFoundException;
+import com.example.mylib.repository.AuthorRepo;
+import com.example.mylib.repository.BookDimensionRepo;
+import com.example.mylib.repository.BookInventoryRepo;
 import com.example.mylib.repository.BookRepo;
+import com.example.mylib.repository.BorrowHistoryVersionRepo;
+import com.example.mylib.repository.CategoryRepo;
+import com.example.mylib.repository.SparseFieldQuery;
+import com.example.mylib.services.books.BookCatalog;
 import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.books.BookSnapshot;
+import com.example.mylib.services.borrow.BorrowHistoryVersions;
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.ingest.IsbnNormalizer;
+import com.example.mylib.services.inventory.InventoryService;
+import com.example.mylib.services.search.FuzzySearchService;
 import com.example.mylib.services.Reservation.ReservationService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,6 +47,28 @@ public class BookServiceImpl implements BookService {
     private ModelMapper modelMapper;
     @Autowired
     private ReservationService reservationService;
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+    @Autowired
+    private SparseFieldQuery sparseFieldQuery;
+    @Autowired
+    private FuzzySearchService fuzzySearchService;
+    @Autowired
+    private BookDimensionRepo bookDimensionRepo;
+    @Autowired
+    private BookInventoryRepo bookInventoryRepo;
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private AuthorRepo authorRepo;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private BookCatalog bookCatalog;
+    @Autowired
+    private BorrowHistoryVersionRepo borrowHistoryVersionRepo;
+    @Autowired
+    private BorrowHistoryVersions borrowHistoryVersions;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final BooksImageServiceImpl imageService;
 
@@ -43,19 +85,29 @@ public class BookServiceImpl implements BookService {
         return fileUrl;
     }
 
+    // The row, its author and category links, its copies and the notifications commit together.
+    // The links and copies are written with SQL, so the row is flushed first
     @Override
+    @Transactional
     public Book saveBook(Book book) {
+        book.setIsbn(normalizeIsbn(book.getIsbn()));
         if (book.getIsbn() != null && !book.getIsbn().trim().isEmpty()) {
             if (bookRepo.existsByIsbn(book.getIsbn())) {
                 throw new IllegalArgumentException("A book with ISBN " + book.getIsbn() + " already exists.");
             }
         }
-        return bookRepo.save(book);
+        Book savedBook = bookRepo.saveAndFlush(book);
+        bookDimensionRepo.link(List.of(savedBook.getId()));
+        bookInventoryRepo.stock(List.of(savedBook.getId()));
+        cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_CREATED, savedBook.getId()));
+        return savedBook;
     }
 
     @Override
+    @Transactional
     public BookDTO saveBookDto(BookDTO bookDto) {
         logger.debug("Processing book save request for ISBN: {}", bookDto.getIsbn());
+        bookDto.setIsbn(normalizeIsbn(bookDto.getIsbn()));
 
         // Validate ISBN uniqueness
         if (bookDto.getIsbn() != null && !bookDto.getIsbn().trim().isEmpty()) {
@@ -81,44 +133,97 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional
     public List<BookDTO> saveBookDtos(List<BookDTO> bookDtos) {
+        bookDtos.forEach(bookDto -> bookDto.setIsbn(normalizeIsbn(bookDto.getIsbn())));
         List<Book> newBooks = bookDtos.stream().map(bookDTO -> modelMapper.map(bookDTO, Book.class))
                 .toList();
-        List<Book> savedBooks = bookRepo.saveAll(newBooks);
+        List<Book> savedBooks = bookRepo.saveAllAndFlush(newBooks);
+        bookDimensionRepo.link(savedBooks.stream().map(Book::getId).toList());
+        bookInventoryRepo.stock(savedBooks.stream().map(Book::getId).toList());
+        savedBooks.forEach(book -> cacheInvalidationBus.publish(
+                CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_CREATED, book.getId())));
         return savedBooks.stream().map(book -> modelMapper.map(book, BookDTO.class)).toList();
     }
 
+    // The form bulk imports store (13 digits, no hyphens), so one book cannot be added twice
+    // under two spellings; ISBNs that do not validate are kept as entered, trimmed
+    private static String normalizeIsbn(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            return isbn;
+        }
+        return IsbnNormalizer.normalize(isbn).orElse(isbn.trim());
+    }
+
     @Override
     public Book getBookById(Long bookId) {
         return bookRepo.findById(bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("Book not found bookId: " + bookId));
     }
 
+    // Listings and lookups read the in-memory snapshot, without a transaction; the database only
+    // until it is built, or for a book changed since
     @Override
     public List<BookDTO> getAllBookDtos() {
-        List<Book> books = bookRepo.findAll();
-        return books.stream().map(book -> modelMapper.map(book, BookDTO.class))
-                .collect(Collectors.toList());
+        return bookCatalog.snapshot().map(BookSnapshot::all).orElseGet(() -> bookRepo.findAll().stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList()));
     }
 
     @Override
     public BookDTO getBookDtoById(Long bookId) {
-        Book tempBook = bookRepo.findById(bookId)
-                .orElseThrow(() -> new ResourceNotFoundException("Book not found bookId: " + bookId));
-        return modelMapper.map(tempBook, BookDTO.class);
+        return bookCatalog.find(bookId).orElseGet(() -> {
+            Book tempBook = bookRepo.findById(bookId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Book not found bookId: " + bookId));
+            return modelMapper.map(tempBook, BookDTO.class);
+        });
+    }
+
+    @Override
+    public Optional<BookDTO> getBookDtoByIdIfModified(Long bookId, Predicate<String> notModified) {
+        BookDTO book = getBookDtoById(bookId);
+        return notModified.test(bookId + "-" + book.getVersion()) ? Optional.empty() : Optional.of(book);
+    }
+
+    // The ETag and the listing come from the same snapshot
+    @Override
+    public Optional<List<BookDTO>> getAllBookDtosIfModified(Predicate<String> notModified) {
+        Optional<BookSnapshot> snapshot = bookCatalog.snapshot();
+        if (snapshot.isEmpty()) {
+            return Optional.of(getAllBookDtos());
+        }
+        return notModified.test(snapshot.get().etag()) ? Optional.empty() : Optional.of(snapshot.get().all());
     }
 
     @Override
+    @Transactional
     public void deleteBookById(Long bookId) {
+        // The book's borrow records go with it
+        List<Long> borrowers = borrowHistoryVersionRepo.findBorrowersOf(bookId);
         bookRepo.delete(getBookById(bookId));
+        cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_DELETED, bookId));
+        borrowHistoryVersions.changed(borrowers);
     }
 
     @Override
+    @Transactional
     public BookDTO updateBookById(Long bookId, BookDTO newBookDto) {
         try {
             Book existingBook = getBookById(bookId);
 
+            // Reject edits made against a stale copy; the quantity in the DTO is measured against
+            // the one the client read, which borrows and returns since may have changed, so an
+            // edit without the version it was made against cannot be applied safely
+            if (newBookDto.getVersion() == null) {
+                throw new IllegalArgumentException("Cannot update: the version of the book edited is required.");
+            }
+            Long currentVersion = existingBook.getVersion();
+            if (!newBookDto.getVersion().equals(currentVersion)) {
+                throw new ObjectOptimisticLockingFailureException(Book.class, bookId);
+            }
+
             // Check for ISBN uniqueness if changed
+            newBookDto.setIsbn(normalizeIsbn(newBookDto.getIsbn()));
             String newIsbn = newBookDto.getIsbn();
             if (newIsbn != null && !newIsbn.trim().isEmpty() && !newIsbn.equals(existingBook.getIsbn())) {
                 if (bookRepo.existsByIsbn(newIsbn.trim())) {
@@ -129,26 +234,43 @@ public class BookServiceImpl implements BookService {
 
             int oldQuantity = existingBook.getQuantity();
             int newQuantity = newBookDto.getQuantity();
+            String oldTitle = existingBook.getTitle();
 
             // Map only non-null fields from DTO to entity
             modelMapper.map(newBookDto, existingBook); // Will skip null fields if config is set
+            existingBook.setVersion(currentVersion);
+            // Quantity counts copies on the shelf; a change adds or withdraws copies at the
+            // default branch, and the count is refreshed from them
+            existingBook.setQuantity(oldQuantity);
 
-            Book updatedBook = bookRepo.save(existingBook);
+            Book updatedBook = bookRepo.saveAndFlush(existingBook);
+            bookDimensionRepo.link(List.of(bookId));
+            cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_UPDATED, bookId));
+            // Borrow histories show the title
+            if (!Objects.equals(oldTitle, updatedBook.getTitle())) {
+                borrowHistoryVersions.changed(borrowHistoryVersionRepo.findBorrowersOf(bookId));
+            }
+            int adjusted = inventoryService.adjustCopies(bookId, null, newQuantity - oldQuantity);
+            int delta = newQuantity < oldQuantity ? -adjusted : adjusted;
 
             logger.debug("Book '{}' updated. Quantity changed from {} to {}",
-                    updatedBook.getTitle(), oldQuantity, newQuantity);
+                    updatedBook.getTitle(), oldQuantity, oldQuantity + delta);
 
-            if (newQuantity > oldQuantity && updatedBook.isAvailable()) {
+            if (delta > 0 && updatedBook.isAvailable()) {
                 logger.debug("Processing reservations due to increased quantity for book '{}'", updatedBook.getTitle());
-                try {
-                    reservationService.assignBookToNextUser(bookId);
-                } catch (Exception e) {
-                    logger.error("Failed to process reservations for book '{}': {}", updatedBook.getTitle(),
-                            e.getMessage());
-                }
+                reservationService.assignBookToNextUser(bookId, null);
             }
 
-            return modelMapper.map(updatedBook, BookDTO.class);
+            // Recount now rather than on the next availability refresh, which would bump the
+            // version again: the client gets back the version its next edit must carry. The
+            // recount is SQL, so the cached entity is evicted as after any refresh
+            bookRepo.flush();
+            bookInventoryRepo.refreshQuantities(List.of(bookId)).forEach(recounted -> cacheInvalidationBus.publish(
+                    CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_BULK_UPDATED, recounted)));
+            return bookRepo.findDtosByIdIn(List.of(bookId)).get(0);
+        } catch (ObjectOptimisticLockingFailureException | IllegalArgumentException | ResourceNotFoundException e) {
+            // The caller answers these: a stale edit, a duplicate ISBN or missing version, no such book
+            throw e;
         } catch (Exception e) {
             logger.error("Error updating book with ID {}: {}", bookId, e.getMessage());
             throw new RuntimeException("Failed to update book: " + e.getMessage(), e);
@@ -157,13 +279,84 @@ public class BookServiceImpl implements BookService {
 
     @Override
     public List<BookDTO> searchBooks(String query) {
-        String searchQuery = "%" + query + "%";
+        Optional<BookSnapshot> snapshot = bookCatalog.snapshot();
+        if (snapshot.isPresent()) {
+            return snapshot.get().search(query);
+        }
+        // Containing adds the wildcards itself and escapes any in the argument
         List<Book> books = bookRepo
                 .findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCaseOrCategoryContainingIgnoreCase(
-                        searchQuery, searchQuery, searchQuery);
+                        query, query, query);
         return books.stream()
                 .map(book -> modelMapper.map(book, BookDTO.class))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> searchBooksFuzzy(String query) {
+        List<Long> ids = fuzzySearchService.search(query);
+        Map<Long, Book> books = bookRepo.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, book -> book));
+        // In rank order; a book deleted since the index saw it is skipped
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllBookFields(List<String> fields) {
+        return sparseFieldQuery.findBooks(fields, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchBookFields(String query, List<String> fields) {
+        return sparseFieldQuery.findBooks(fields, query);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> searchBookFieldsFuzzy(String query, List<String> fields) {
+        return sparseFieldQuery.findBooksById(fields, fuzzySearchService.search(query));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AuthorDTO getAuthorByName(String name) {
+        return authorRepo.findByName(name)
+                .map(author -> new AuthorDTO(author.getId(), author.getName()))
+                .orElseThrow(() -> new ResourceNotFoundException("No author named " + name));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getBooksByAuthor(Long authorId, int page, int size) {
+        if (!authorRepo.existsById(authorId)) {
+            throw new ResourceNotFoundException("Author not found authorId: " + authorId);
+        }
+        return bookRepo.findByAuthorId(authorId, PageRequest.of(page, size)).stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryDTO> getCategories() {
+        return categoryRepo.findAllWithBookCounts();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookDTO> getBooksByCategory(Long categoryId, int page, int size) {
+        if (!categoryRepo.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category not found categoryId: " + categoryId);
+        }
+        return bookRepo.findByCategoryId(categoryId, PageRequest.of(page, size)).stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
 }
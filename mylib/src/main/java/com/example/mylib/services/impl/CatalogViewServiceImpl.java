@@ -0,0 +1,89 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.CatalogCardDTO;
+import com.example.mylib.exceptions.ResourceNotFoundException;
+import com.example.mylib.repository.CatalogViewRepo;
+import com.example.mylib.services.catalog.CatalogViewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Projects loans, returns and reservations into {@code book_catalog_view}. The books changed in a
+ * transaction are collected and marked in {@code book_catalog_view_dirty} just before it commits,
+ * in one statement, so the marks commit or roll back with the change and no node has to stay up to
+ * project it. Every refresh-interval, each node takes marked books in batches and recomputes their
+ * rows; nodes skip the books another has taken, so no full recompute is needed to catch up.
+ */
+@Service
+public class CatalogViewServiceImpl implements CatalogViewService {
+
+    private static final int REFRESH_BATCH = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final CatalogViewRepo catalogViewRepo;
+
+    public CatalogViewServiceImpl(CatalogViewRepo catalogViewRepo) {
+        this.catalogViewRepo = catalogViewRepo;
+    }
+
+    @Override
+    public void bookChanged(Long bookId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            catalogViewRepo.markDirty(List.of(bookId));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> books = new TreeSet<>();
+            TransactionSynchronizationManager.bindResource(this, books);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    catalogViewRepo.markDirty(books);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResource(CatalogViewServiceImpl.this);
+                }
+            });
+            pending = books;
+        }
+        pending.add(bookId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CatalogCardDTO> getCards(int page, int size) {
+        return catalogViewRepo.findCards(page * size, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogCardDTO getCard(Long bookId) {
+        return catalogViewRepo.findCard(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found bookId: " + bookId));
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.view.refresh-interval}")
+    public void refreshView() {
+        try {
+            // A batch that fails is rolled back, and its books stay marked for the next refresh
+            while (catalogViewRepo.refreshDirty(REFRESH_BATCH) == REFRESH_BATCH) {
+                logger.debug("Refreshed the catalog view of {} books, more are marked", REFRESH_BATCH);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to refresh the catalog view: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.BorrowRecordDTO;
+import com.example.mylib.dto.ReservationDTO;
+import com.example.mylib.dto.UserDashboardDTO;
+import com.example.mylib.services.Reservation.ReservationService;
+import com.example.mylib.services.borrow.BorrowService;
+import com.example.mylib.services.dashboard.DashboardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads the sections of a user's dashboard at the same time, one virtual thread each, so the page
+ * costs about as much as its slowest query.
+ * <p>
+ * All subtasks share one deadline ({@code dashboard.subtask-timeout} after the fan-out). A section
+ * that is late or fails is cancelled and reported as incomplete; the others are still returned.
+ * The executor is scoped to the call and shut down before returning, so no subtask outlives the
+ * request except one stuck in a JDBC call that ignores interruption, which then finishes on its own.
+ * <p>
+ * Each section holds a connection while it reads, so sections of all dashboards together are
+ * capped at {@code dashboard.max-concurrent-reads}; the rest wait their turn within the deadline.
+ * Without the cap a few dashboards could take the whole pool, and nothing else bounds the callers
+ * queueing on it when virtual threads (and so {@code ConnectionLimitingDataSource}) are off.
+ */
+@Service
+public class DashboardServiceImpl implements DashboardService {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BorrowService borrowService;
+    private final ReservationService reservationService;
+    private final Duration subtaskTimeout;
+    private final Semaphore reads;
+
+    public DashboardServiceImpl(BorrowService borrowService,
+                                ReservationService reservationService,
+                                @Value("${dashboard.subtask-timeout}") Duration subtaskTimeout,
+                                @Value("${dashboard.max-concurrent-reads}") int maxConcurrentReads) {
+        this.borrowService = borrowService;
+        this.reservationService = reservationService;
+        this.subtaskTimeout = subtaskTimeout;
+        this.reads = new Semaphore(maxConcurrentReads, true);
+    }
+
+    @Override
+    public UserDashboardDTO getUserDashboard(Long userId) {
+        Map<String, String> incomplete = new LinkedHashMap<>();
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            long deadline = System.nanoTime() + subtaskTimeout.toNanos();
+            Future<List<BorrowRecordDTO>> active = submit(scope, deadline, () -> borrowService.getActiveBorrows(userId));
+            Future<List<BorrowRecordDTO>> history = submit(scope, deadline, () -> borrowService.getBorrowHistory(userId));
+            Future<List<ReservationDTO>> reservations = submit(scope, deadline,
+                    () -> reservationService.getUsersReservations(userId));
+
+            UserDashboardDTO dashboard = new UserDashboardDTO();
+            dashboard.setUserId(userId);
+            dashboard.setActiveBorrows(join("activeBorrows", active, deadline, incomplete));
+            dashboard.setBorrowHistory(join("borrowHistory", history, deadline, incomplete));
+            dashboard.setReservations(join("reservations", reservations, deadline, incomplete));
+            // Same figure as FineService.getTotalFineForUser, which would read the history again
+            if (dashboard.getBorrowHistory() != null) {
+                dashboard.setTotalFine(dashboard.getBorrowHistory().stream()
+                        .filter(record -> record.getFineAmount() > 0)
+                        .mapToDouble(BorrowRecordDTO::getFineAmount)
+                        .sum());
+            } else {
+                incomplete.put("totalFine", "Needs borrowHistory");
+            }
+            dashboard.setIncomplete(incomplete);
+            return dashboard;
+        } finally {
+            scope.shutdownNow();
+        }
+    }
+
+    // Runs the read once one of the permits is free, if that is before the deadline
+    private <T> Future<T> submit(ExecutorService scope, long deadline, Callable<T> read) {
+        return scope.submit(() -> {
+            if (!reads.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("No database connection free for the dashboard");
+            }
+            try {
+                return read.call();
+            } finally {
+                reads.release();
+            }
+        });
+    }
+
+    private <T> T join(String section, Future<T> future, long deadline, Map<String, String> incomplete) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Dashboard section '{}' timed out after {}", section, subtaskTimeout);
+            incomplete.put(section, "Timed out after " + subtaskTimeout.toMillis() + " ms");
+        } catch (ExecutionException e) {
+            logger.error("Dashboard section '{}' failed: {}", section, e.getCause().getMessage());
+            incomplete.put(section, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            incomplete.put(section, "Interrupted");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.FacetCountDTO;
+import com.example.mylib.dto.FacetedSearchDTO;
+import com.example.mylib.entities.Book;
+import com.example.mylib.enums.BookFacet;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.services.search.CatalogTextIndex;
+import com.example.mylib.services.search.CompressedBitmap;
+import com.example.mylib.services.search.FacetIndex;
+import com.example.mylib.services.search.FacetedSearchService;
+import com.example.mylib.services.search.FuzzyIndex;
+import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Faceted search over the {@link FacetIndex} kept by {@link CatalogTextIndex}: the query's words are
+ * matched through the {@link FuzzyIndex} built alongside it, filters and counts are bitmap
+ * intersections, and the books changed since the indexes were built are counted one by one. Only
+ * the requested page of books is read from the database.
+ */
+@Service
+public class FacetedSearchServiceImpl implements FacetedSearchService {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final CatalogTextIndex catalogTextIndex;
+    private final BookRepo bookRepo;
+    private final ModelMapper modelMapper;
+    private final long timeBudgetNanos;
+    private final int maxExpansions;
+    private final int maxValues;
+
+    public FacetedSearchServiceImpl(CatalogTextIndex catalogTextIndex,
+                                    BookRepo bookRepo,
+                                    ModelMapper modelMapper,
+                                    @Value("${search.fuzzy.time-budget}") Duration timeBudget,
+                                    @Value("${search.fuzzy.max-expansions}") int maxExpansions,
+                                    @Value("${search.facets.max-values}") int maxValues) {
+        this.catalogTextIndex = catalogTextIndex;
+        this.bookRepo = bookRepo;
+        this.modelMapper = modelMapper;
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.maxExpansions = maxExpansions;
+        this.maxValues = maxValues;
+    }
+
+    @Override
+    public FacetedSearchDTO search(String query, Map<BookFacet, List<String>> selected, int page, int size) {
+        long started = System.nanoTime();
+        CatalogTextIndex.Snapshot snapshot = catalogTextIndex.snapshot();
+        FacetIndex facets = snapshot.facets();
+
+        // Docs matching the query; null when there is none
+        List<String> words = query == null || query.isBlank() ? List.of() : FuzzyIndex.queryWords(query);
+        CompressedBitmap candidates = null;
+        boolean complete = true;
+        if (query != null && !query.isBlank()) {
+            long deadline = started + timeBudgetNanos;
+            List<FuzzyIndex.Expansions> expanded = new ArrayList<>();
+            for (String word : words) {
+                expanded.add(snapshot.fuzzy().expand(word, FuzzyIndex.allowedEdits(word), maxExpansions, deadline));
+            }
+            FuzzyIndex.DocMatches matched = snapshot.fuzzy().matchingDocs(expanded, deadline);
+            candidates = matched.docs();
+            complete = matched.complete();
+        }
+
+        // Changed books are left out of the index's counts and counted as they are now
+        List<CatalogTextIndex.PendingBook> pending = List.copyOf(catalogTextIndex.pending());
+        int[] excludedDocs = pending.stream()
+                .mapToInt(book -> facets.indexOfBook(book.id()))
+                .filter(doc -> doc >= 0)
+                .sorted()
+                .toArray();
+        FacetIndex.Counts counts = facets.count(candidates, excludedDocs, selected);
+
+        Map<BookFacet, Map<String, Integer>> pendingCounts = new EnumMap<>(BookFacet.class);
+        List<Long> pendingMatches = new ArrayList<>();
+        for (CatalogTextIndex.PendingBook book : pending) {
+            if (book.deleted() || (candidates != null && (words.isEmpty() || book.edits(words) < 0))) {
+                continue;
+            }
+            List<BookFacet> failed = new ArrayList<>();
+            for (BookFacet facet : BookFacet.values()) {
+                List<String> chosen = selected.getOrDefault(facet, List.of());
+                if (!chosen.isEmpty() && !chosen.contains(book.value(facet))) {
+                    failed.add(facet);
+                }
+            }
+            if (failed.isEmpty()) {
+                pendingMatches.add(book.id());
+            }
+            // A facet's counts ignore its own filter
+            for (BookFacet facet : BookFacet.values()) {
+                if (book.value(facet) != null && (failed.isEmpty() || failed.equals(List.of(facet)))) {
+                    pendingCounts.computeIfAbsent(facet, f -> new HashMap<>()).merge(book.value(facet), 1, Integer::sum);
+                }
+            }
+        }
+        pendingMatches.sort(null);
+
+        Map<String, List<FacetCountDTO>> facetCounts = new LinkedHashMap<>();
+        for (BookFacet facet : BookFacet.values()) {
+            facetCounts.put(facet.getParameter(), facetCounts(facets.values(facet), counts.counts().get(facet),
+                    pendingCounts.getOrDefault(facet, Map.of()), selected.getOrDefault(facet, List.of())));
+        }
+        long total = counts.matches().cardinality() + pendingMatches.size();
+        List<Long> ids = page(facets, counts.matches(), pendingMatches, page, size);
+        logger.debug("Faceted search for '{}' {} matched {} books in {} us", query, selected, total,
+                (System.nanoTime() - started) / 1000);
+        return new FacetedSearchDTO(total, books(ids), facetCounts, complete);
+    }
+
+    // Values with books, and the selected ones even without, most books first
+    private List<FacetCountDTO> facetCounts(List<String> values, int[] indexed, Map<String, Integer> changed,
+                                            List<String> chosen) {
+        Map<String, Integer> counts = new HashMap<>(changed);
+        for (int value = 0; value < indexed.length; value++) {
+            if (indexed[value] > 0) {
+                counts.merge(values.get(value), indexed[value], Integer::sum);
+            }
+        }
+        List<FacetCountDTO> top = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxValues)
+                .map(entry -> new FacetCountDTO(entry.getKey(), entry.getValue(), chosen.contains(entry.getKey())))
+                .collect(Collectors.toCollection(ArrayList::new));
+        for (String value : chosen) {
+            if (top.stream().noneMatch(count -> count.getValue().equals(value))) {
+                top.add(new FacetCountDTO(value, counts.getOrDefault(value, 0), true));
+            }
+        }
+        return top;
+    }
+
+    // Ids of the requested page in id order, merging the indexed matches with the changed books
+    private static List<Long> page(FacetIndex facets, CompressedBitmap matches, List<Long> pendingMatches,
+                                   int page, int size) {
+        long from = (long) page * size;
+        int[] docs = matches.first((int) Math.min(Integer.MAX_VALUE, from + size));
+        List<Long> ids = new ArrayList<>(size);
+        int d = 0;
+        int p = 0;
+        for (long position = 0; position < from + size && (d < docs.length || p < pendingMatches.size()); position++) {
+            long id;
+            if (p == pendingMatches.size() || (d < docs.length && facets.bookId(docs[d]) < pendingMatches.get(p))) {
+                id = facets.bookId(docs[d++]);
+            } else {
+                id = pendingMatches.get(p++);
+            }
+            if (position >= from) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private List<BookDTO> books(List<Long> ids) {
+        Map<Long, Book> books = bookRepo.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        // A book deleted since it was counted is skipped
+        return ids.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .toList();
+    }
+}
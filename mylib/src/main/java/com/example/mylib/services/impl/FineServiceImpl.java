@@ -10,6 +10,7 @@ import com.example.mylib.services.fine.FineService;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.ModelMap;
 
 import java.time.temporal.ChronoUnit;
@@ -33,6 +34,7 @@ public class FineServiceImpl implements FineService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public double getTotalFineForUser(Long userId) {
         List<BorrowRecordDTO> borrowRecordDTOS = borrowService.getBorrowHistory(userId);
         return borrowRecordDTOS
@@ -68,6 +70,7 @@ public class FineServiceImpl implements FineService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<FineDto> getAllFines() {
         List<BorrowRecordDTO> borrowRecordDTOS = borrowService.getAllBorrows();
         return borrowRecordDTOS
@@ -0,0 +1,69 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.services.search.CatalogTextIndex;
+import com.example.mylib.services.search.FuzzyIndex;
+import com.example.mylib.services.search.FuzzySearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typo-tolerant search over the {@link FuzzyIndex} kept by {@link CatalogTextIndex}, merged with
+ * the books changed since it was built. Each query has {@code search.fuzzy.time-budget} for
+ * expanding its words and intersecting their books; past it the search returns what it has.
+ */
+@Service
+public class FuzzySearchServiceImpl implements FuzzySearchService {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final CatalogTextIndex catalogTextIndex;
+    private final long timeBudgetNanos;
+    private final int maxExpansions;
+    private final int maxResults;
+
+    public FuzzySearchServiceImpl(CatalogTextIndex catalogTextIndex,
+                                  @Value("${search.fuzzy.time-budget}") Duration timeBudget,
+                                  @Value("${search.fuzzy.max-expansions}") int maxExpansions,
+                                  @Value("${search.fuzzy.max-results}") int maxResults) {
+        this.catalogTextIndex = catalogTextIndex;
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.maxExpansions = maxExpansions;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public List<Long> search(String query) {
+        List<String> words = FuzzyIndex.queryWords(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        FuzzyIndex index = catalogTextIndex.fuzzyIndex();
+        long started = System.nanoTime();
+        long deadline = started + timeBudgetNanos;
+
+        List<FuzzyIndex.Expansions> expanded = new ArrayList<>();
+        for (String word : words) {
+            expanded.add(index.expand(word, FuzzyIndex.allowedEdits(word), maxExpansions, deadline));
+        }
+        FuzzyIndex.Matches found = index.search(expanded, maxResults, deadline, catalogTextIndex::isPending);
+        List<FuzzyIndex.Match> matches = new ArrayList<>(found.matches());
+        for (CatalogTextIndex.PendingBook book : catalogTextIndex.pending()) {
+            int edits = book.deleted() ? -1 : book.edits(words);
+            if (edits >= 0) {
+                matches.add(new FuzzyIndex.Match(book.id(), edits, book.popularity()));
+            }
+        }
+        matches.sort(FuzzyIndex.Match.RANKING);
+
+        if (!found.complete()) {
+            logger.debug("Fuzzy search for '{}' ran out of its budget; expanded to {}", query, expanded);
+        }
+        logger.trace("Fuzzy search for '{}' took {} us", query, (System.nanoTime() - started) / 1000);
+        return matches.stream().limit(maxResults).map(FuzzyIndex.Match::bookId).toList();
+    }
+}
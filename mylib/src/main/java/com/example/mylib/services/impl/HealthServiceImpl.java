@@ -0,0 +1,199 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.config.ReplicaLagMonitor;
+import com.example.mylib.dto.HealthCheckDTO;
+import com.example.mylib.dto.HealthStatusDTO;
+import com.example.mylib.enums.HealthState;
+import com.example.mylib.services.health.HealthService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liveness and readiness for the load balancer. Probes only read in-memory state: the database
+ * and connection pool are checked every {@code health.check.interval} and the latest results are
+ * kept for the probes to report. The checks have a thread of their own rather than the @Scheduled
+ * pool, where an hourly rebuild or reconcile would delay them until readiness reported them stale.
+ */
+@Service
+public class HealthServiceImpl implements HealthService, SmartLifecycle {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ApplicationAvailability availability;
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final Duration interval;
+    private final int dbTimeoutSeconds;
+
+    private volatile List<HealthCheckDTO> lastChecks = List.of();
+    private volatile Instant lastCheckedAt;
+    private volatile ScheduledExecutorService scheduler;
+
+    public HealthServiceImpl(JdbcTemplate jdbcTemplate,
+                             DataSource dataSource,
+                             ApplicationAvailability availability,
+                             ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                             @Value("${health.check.interval}") Duration interval,
+                             @Value("${health.check.db-timeout}") Duration dbTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.availability = availability;
+        this.replicaLagMonitor = replicaLagMonitor.getIfAvailable();
+        this.interval = interval;
+        this.dbTimeoutSeconds = (int) Math.max(1, dbTimeout.toSeconds());
+    }
+
+    @Override
+    public HealthStatusDTO getLiveness() {
+        LivenessState liveness = availability.getLivenessState();
+        HealthState state = liveness == LivenessState.BROKEN ? HealthState.DOWN : HealthState.UP;
+        return new HealthStatusDTO(state, List.of(new HealthCheckDTO("liveness", state, liveness.name(), Instant.now())));
+    }
+
+    @Override
+    public HealthStatusDTO getReadiness() {
+        List<HealthCheckDTO> checks = new ArrayList<>(lastChecks);
+        Instant now = Instant.now();
+
+        // Readiness only turns to ACCEPTING_TRAFFIC once ApplicationStartupListener has finished
+        ReadinessState readiness = availability.getReadinessState();
+        checks.add(new HealthCheckDTO("warmup",
+                readiness == ReadinessState.ACCEPTING_TRAFFIC ? HealthState.UP : HealthState.DOWN,
+                readiness.name(), now));
+
+        Instant checkedAt = lastCheckedAt;
+        if (checkedAt == null) {
+            checks.add(new HealthCheckDTO("checks", HealthState.DOWN, "No background check has completed yet", now));
+        } else if (checkedAt.isBefore(now.minus(interval.multipliedBy(3)))) {
+            checks.add(new HealthCheckDTO("checks", HealthState.DOWN, "Background checks are stale", checkedAt));
+        }
+        return new HealthStatusDTO(overall(checks), checks);
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // An exception would cancel the schedule, and the checks would go stale
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                runChecks();
+            } catch (RuntimeException e) {
+                logger.error("Health check failed", e);
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService executor = scheduler;
+        scheduler = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    public void runChecks() {
+        HikariPoolMXBean pool = poolBean();
+        List<HealthCheckDTO> checks = new ArrayList<>();
+        checks.add(checkDatabase(pool));
+        if (pool != null) {
+            checks.add(checkPool(pool));
+        }
+        if (replicaLagMonitor != null) {
+            checks.add(checkReplica());
+        }
+        HealthState previous = overall(lastChecks);
+        lastChecks = List.copyOf(checks);
+        lastCheckedAt = Instant.now();
+        HealthState current = overall(checks);
+        if (current != previous) {
+            logger.info("Health changed from {} to {}: {}", previous, current, checks);
+        }
+    }
+
+    private HealthCheckDTO checkDatabase(HikariPoolMXBean pool) {
+        try {
+            Boolean valid = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    connection.isValid(dbTimeoutSeconds));
+            return Boolean.TRUE.equals(valid)
+                    ? new HealthCheckDTO("database", HealthState.UP, "Connection valid", Instant.now())
+                    : new HealthCheckDTO("database", HealthState.DOWN, "Connection not valid", Instant.now());
+        } catch (CannotGetJdbcConnectionException e) {
+            // A pool exhausted by real traffic also times out here; that instance is busy, not broken
+            if (pool != null && pool.getThreadsAwaitingConnection() > 0) {
+                return new HealthCheckDTO("database", HealthState.DEGRADED,
+                        "No free connection to check with: " + e.getMessage(), Instant.now());
+            }
+            return new HealthCheckDTO("database", HealthState.DOWN, e.getMessage(), Instant.now());
+        } catch (RuntimeException e) {
+            return new HealthCheckDTO("database", HealthState.DOWN, e.getMessage(), Instant.now());
+        }
+    }
+
+    private HealthCheckDTO checkPool(HikariPoolMXBean pool) {
+        int active = pool.getActiveConnections();
+        int total = pool.getTotalConnections();
+        int waiting = pool.getThreadsAwaitingConnection();
+        String detail = "active=" + active + " idle=" + pool.getIdleConnections() + " total=" + total
+                + " waiting=" + waiting;
+        HealthState state = waiting > 0 && active >= total ? HealthState.DEGRADED : HealthState.UP;
+        return new HealthCheckDTO("connection-pool", state, detail, Instant.now());
+    }
+
+    // Reads falling back to the primary still succeed, so a lagging replica only degrades
+    private HealthCheckDTO checkReplica() {
+        HealthState state = replicaLagMonitor.isReplicaUsable() ? HealthState.UP : HealthState.DEGRADED;
+        return new HealthCheckDTO("replica", state, replicaLagMonitor.getStatus(), Instant.now());
+    }
+
+    private HikariPoolMXBean poolBean() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class)
+                    ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                    : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static HealthState overall(List<HealthCheckDTO> checks) {
+        HealthState worst = HealthState.UP;
+        for (HealthCheckDTO check : checks) {
+            if (check.getState().ordinal() > worst.ordinal()) {
+                worst = check.getState();
+            }
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.BookCopyDTO;
+import com.example.mylib.entities.BookCopy;
+import com.example.mylib.enums.CopyStatus;
+import com.example.mylib.exceptions.ResourceNotFoundException;
+import com.example.mylib.repository.BookCopyRepo;
+import com.example.mylib.repository.BookInventoryRepo;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.catalog.CatalogViewService;
+import com.example.mylib.services.inventory.InventoryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies are claimed with {@code FOR UPDATE SKIP LOCKED} ({@link BookCopyRepo#lockUnclaimed}), so
+ * the only row a checkout writes is its copy's. The books whose copies changed are collected after
+ * each commit and their {@code quantity} recounted every refresh-interval, one UPDATE for all of
+ * them; a burst of checkouts of a title costs one write of its book row instead of one each. A
+ * periodic recount of every book repairs counts a node went down before refreshing.
+ */
+@Service
+public class InventoryServiceImpl implements InventoryService {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BookCopyRepo bookCopyRepo;
+    private final BookInventoryRepo bookInventoryRepo;
+    private final BookRepo bookRepo;
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final CatalogViewService catalogViewService;
+    private final String defaultBranch;
+    // Books whose copies changed in committed transactions since the last refresh
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    public InventoryServiceImpl(BookCopyRepo bookCopyRepo, BookInventoryRepo bookInventoryRepo, BookRepo bookRepo,
+                                CacheInvalidationBus cacheInvalidationBus, CatalogViewService catalogViewService,
+                                @Value("${library.default-branch}") String defaultBranch) {
+        this.bookCopyRepo = bookCopyRepo;
+        this.bookInventoryRepo = bookInventoryRepo;
+        this.bookRepo = bookRepo;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.catalogViewService = catalogViewService;
+        this.defaultBranch = branch(defaultBranch);
+    }
+
+    @Override
+    public String branch(String requested) {
+        if (requested == null || requested.isBlank()) {
+            return defaultBranch;
+        }
+        return requested.strip().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    @Transactional
+    public Optional<BookCopy> claimCopy(Long bookId, String branch, CopyStatus status) {
+        List<BookCopy> free = bookCopyRepo.lockUnclaimed(bookId, branch(branch), CopyStatus.AVAILABLE,
+                PageRequest.of(0, 1));
+        if (free.isEmpty()) {
+            return Optional.empty();
+        }
+        BookCopy copy = free.get(0);
+        copy.setStatus(status);
+        availabilityChanged(bookId);
+        return Optional.of(copy);
+    }
+
+    @Override
+    @Transactional
+    public void lend(BookCopy copy) {
+        copy.setStatus(CopyStatus.ON_LOAN);
+        bookCopyRepo.save(copy);
+    }
+
+    @Override
+    @Transactional
+    public void release(BookCopy copy) {
+        copy.setStatus(CopyStatus.AVAILABLE);
+        bookCopyRepo.save(copy);
+        availabilityChanged(copy.getBook().getId());
+    }
+
+    @Override
+    public long availableCopies(Long bookId, String branch) {
+        return bookCopyRepo.countByBookIdAndBranchAndStatus(bookId, branch(branch), CopyStatus.AVAILABLE);
+    }
+
+    @Override
+    public Map<String, Long> availabilityByBranch(Long bookId) {
+        if (!bookRepo.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found bookId: " + bookId);
+        }
+        Map<String, Long> available = new LinkedHashMap<>();
+        for (Object[] row : bookCopyRepo.countByBranch(bookId, CopyStatus.AVAILABLE)) {
+            available.put((String) row[0], (Long) row[1]);
+        }
+        return available;
+    }
+
+    @Override
+    public boolean holdsCopies(Long bookId, String branch) {
+        return bookCopyRepo.existsByBookIdAndBranchAndStatusNot(bookId, branch(branch), CopyStatus.WITHDRAWN);
+    }
+
+    @Override
+    @Transactional
+    public int adjustCopies(Long bookId, String branch, int delta) {
+        int adjusted;
+        if (delta > 0) {
+            adjusted = bookInventoryRepo.addCopies(bookId, delta, null, branch(branch), null).size();
+        } else if (delta < 0) {
+            List<BookCopy> free = bookCopyRepo.lockUnclaimed(bookId, branch(branch), CopyStatus.AVAILABLE,
+                    PageRequest.of(0, -delta));
+            free.forEach(copy -> copy.setStatus(CopyStatus.WITHDRAWN));
+            adjusted = free.size();
+        } else {
+            return 0;
+        }
+        availabilityChanged(bookId);
+        return adjusted;
+    }
+
+    @Override
+    @Transactional
+    public BookCopyDTO addCopy(Long bookId, BookCopyDTO copy) {
+        if (!bookRepo.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found bookId: " + bookId);
+        }
+        String barcode = copy.getBarcode() == null || copy.getBarcode().isBlank() ? null : copy.getBarcode().strip();
+        Long copyId;
+        try {
+            copyId = bookInventoryRepo.addCopies(bookId, 1, barcode, branch(copy.getBranch()), copy.getLocation()).get(0);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("A copy with barcode " + barcode + " already exists.");
+        }
+        availabilityChanged(bookId);
+        return bookCopyRepo.findById(copyId)
+                .map(added -> new BookCopyDTO(added.getId(), bookId, added.getBarcode(), added.getBranch(),
+                        added.getLocation(), added.getStatus()))
+                .orElseThrow();
+    }
+
+    @Override
+    public List<BookCopyDTO> getCopies(Long bookId) {
+        if (!bookRepo.existsById(bookId)) {
+            throw new ResourceNotFoundException("Book not found bookId: " + bookId);
+        }
+        return bookCopyRepo.findDtosByBookId(bookId);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.availability.refresh-interval}")
+    public void refreshAvailability() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        // Changes committed after the ids are taken are marked again and picked up next time
+        List<Long> bookIds = new ArrayList<>(changed);
+        bookIds.forEach(changed::remove);
+        try {
+            published(bookInventoryRepo.refreshQuantities(bookIds));
+        } catch (RuntimeException e) {
+            changed.addAll(bookIds);
+            logger.warn("Failed to refresh the availability of {} books: {}", bookIds.size(), e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${inventory.availability.reconcile-interval}",
+            fixedDelayString = "${inventory.availability.reconcile-interval}")
+    public void reconcileAvailability() {
+        List<Long> repaired = published(bookInventoryRepo.refreshAllQuantities());
+        if (!repaired.isEmpty()) {
+            logger.info("Recounted the available copies of {} books", repaired.size());
+        }
+    }
+
+    // Quantities are written with SQL, so cached books are stale on this node too
+    private List<Long> published(List<Long> bookIds) {
+        bookIds.forEach(bookId -> cacheInvalidationBus.publish(
+                CacheInvalidationEvent.of(CacheInvalidationEvent.Change.BOOK_BULK_UPDATED, bookId)));
+        return bookIds;
+    }
+
+    private void availabilityChanged(Long bookId) {
+        catalogViewService.bookChanged(bookId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changed.add(bookId);
+                }
+            });
+        } else {
+            changed.add(bookId);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.PinningSiteDTO;
+import com.example.mylib.services.threads.PinningMonitor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records where virtual threads get pinned to their carrier thread, using the JDK's
+ * {@code jdk.VirtualThreadPinned} JFR event (emitted when a virtual thread blocks inside a
+ * synchronized block or native frame for longer than the threshold). Events are streamed
+ * in-process, grouped by stack trace, and each new site is logged once at WARN.
+ * <p>
+ * Only runs when {@code threads.pinning-detection.enabled} is set, which defaults to the
+ * virtual-thread switch: on platform threads the event never fires.
+ */
+@Service
+public class JfrPinningMonitor implements PinningMonitor, SmartLifecycle {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_FRAMES = 12;
+    private static final int MAX_SITES = 500;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final Map<List<String>, Site> sites = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final Duration threshold;
+
+    private volatile RecordingStream stream;
+
+    public JfrPinningMonitor(@Value("${threads.pinning-detection.enabled}") boolean enabled,
+                             @Value("${threads.pinning-detection.threshold}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public List<PinningSiteDTO> getPinningSites() {
+        return sites.entrySet().stream()
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingLong(PinningSiteDTO::getCount).reversed())
+                .toList();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        RecordingStream recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::record);
+        recording.startAsync();
+        stream = recording;
+        logger.info("Recording virtual thread pinning longer than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        RecordingStream recording = stream;
+        stream = null;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void record(RecordedEvent event) {
+        List<String> frames = frames(event.getStackTrace());
+        Site site = sites.get(frames);
+        if (site == null) {
+            if (sites.size() >= MAX_SITES) {
+                return;
+            }
+            Site created = new Site();
+            site = sites.putIfAbsent(frames, created);
+            if (site == null) {
+                site = created;
+                logger.warn("Virtual thread pinned for {} ms at:\n\t{}",
+                        event.getDuration().toMillis(), String.join("\n\t", frames));
+            }
+        }
+        site.add(event.getDuration().toNanos());
+    }
+
+    private static List<String> frames(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return List.of("<no stack trace>");
+        }
+        return stackTrace.getFrames().stream()
+                .limit(MAX_FRAMES)
+                .map(JfrPinningMonitor::describe)
+                .toList();
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+
+    private static final class Site {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        PinningSiteDTO toDto(List<String> frames) {
+            return new PinningSiteDTO(frames, count.sum(), totalNanos.sum() / 1e6, maxNanos.get() / 1e6);
+        }
+    }
+}
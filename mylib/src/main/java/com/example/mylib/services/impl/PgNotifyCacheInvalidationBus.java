@@ -0,0 +1,208 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Cache invalidation over PostgreSQL LISTEN/NOTIFY, so every node drops its cached copies after a
+ * write on any node without an external broker.
+ * <p>
+ * Events go out with {@code pg_notify} inside the writer's transaction, which PostgreSQL only
+ * delivers once that transaction commits. Each node keeps one dedicated connection outside the
+ * pool LISTENing on the channel and republishes what it receives as a Spring event. A node's own
+ * notifications are skipped there because it has already published them locally after commit.
+ * <p>
+ * With {@code cache.invalidation.enabled=false} (single node, or a database other than
+ * PostgreSQL) events are only published locally.
+ */
+@Service
+public class PgNotifyCacheInvalidationBus implements CacheInvalidationBus, SmartLifecycle {
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final int POLL_TIMEOUT_MILLIS = 5_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private volatile boolean running;
+    private volatile Connection listenerConnection;
+    private Thread listenerThread;
+
+    public PgNotifyCacheInvalidationBus(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        ApplicationEventPublisher eventPublisher,
+                                        DataSourceProperties dataSourceProperties,
+                                        @Value("${cache.invalidation.enabled}") boolean enabled,
+                                        @Value("${cache.invalidation.channel}") String channel) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel name: " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(CacheInvalidationEvent event) {
+        if (enabled) {
+            // Joins the caller's transaction if there is one, so nothing is sent on rollback
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute("SELECT pg_notify(?, ?)",
+                    (PreparedStatementCallback<Boolean>) statement -> {
+                        statement.setString(1, channel);
+                        statement.setString(2, encode(event));
+                        return statement.execute();
+                    }));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eventPublisher.publishEvent(event);
+                }
+            });
+        } else {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Connection connection = listenerConnection;
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("Error closing cache invalidation listener connection: {}", e.getMessage());
+            }
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                listenerConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                logger.info("Listening for cache invalidations on channel '{}'", channel);
+                if (reconnecting) {
+                    // Whatever was sent while we were disconnected is lost
+                    eventPublisher.publishEvent(CacheInvalidationEvent.all());
+                }
+                reconnecting = true;
+                backoff = INITIAL_BACKOFF_MILLIS;
+                receive(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Cache invalidation listener disconnected, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                // A silently dropped connection never errors while waiting, so probe it when idle
+                if (!connection.isValid(POLL_TIMEOUT_MILLIS / 1000)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                dispatch(notification.getParameter());
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        // payload: CHANGE:entityId:nodeId
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3) {
+            logger.warn("Ignoring malformed cache invalidation payload: {}", payload);
+            return;
+        }
+        if (nodeId.equals(parts[2])) {
+            return;
+        }
+        try {
+            CacheInvalidationEvent.Change change = CacheInvalidationEvent.Change.valueOf(parts[0]);
+            Long entityId = parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+            eventPublisher.publishEvent(CacheInvalidationEvent.of(change, entityId).asRemote());
+        } catch (IllegalArgumentException e) {
+            // Sent by a node running a different version
+            logger.warn("Ignoring unknown cache invalidation payload: {}", payload);
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply cache invalidation {}: {}", payload, e.getMessage(), e);
+        }
+    }
+
+    private String encode(CacheInvalidationEvent event) {
+        return event.change().name() + ":" + (event.entityId() == null ? "" : event.entityId()) + ":" + nodeId;
+    }
+}
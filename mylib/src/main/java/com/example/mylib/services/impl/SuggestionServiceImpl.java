@@ -0,0 +1,73 @@
+package com.example.mylib.services.impl;
+
+import com.example.mylib.dto.SuggestionDTO;
+import com.example.mylib.enums.SuggestionType;
+import com.example.mylib.services.search.CatalogTextIndex;
+import com.example.mylib.services.search.PrefixIndex;
+import com.example.mylib.services.search.SearchText;
+import com.example.mylib.services.search.SuggestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves {@code /book/suggest} from the {@link PrefixIndex} kept by {@link CatalogTextIndex},
+ * merged with the books changed since it was built.
+ * <p>
+ * Between rebuilds an author's score is not adjusted for changed or deleted books.
+ */
+@Service
+@RequiredArgsConstructor
+public class SuggestionServiceImpl implements SuggestionService {
+
+    private static final int MAX_LIMIT = 50;
+
+    private final CatalogTextIndex catalogTextIndex;
+
+    @Override
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        String normalized = SearchText.normalize(prefix);
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        PrefixIndex index = catalogTextIndex.prefixIndex();
+        if (catalogTextIndex.pending().isEmpty()) {
+            return index.top(normalized, size, bookId -> false);
+        }
+
+        // Titles by book id, authors by normalized name; the overlay's copy of a book wins
+        Map<String, SuggestionDTO> merged = new LinkedHashMap<>();
+        for (SuggestionDTO suggestion : index.top(normalized, size, catalogTextIndex::isPending)) {
+            merged.put(key(suggestion), suggestion);
+        }
+        for (CatalogTextIndex.PendingBook book : catalogTextIndex.pending()) {
+            if (book.deleted()) {
+                continue;
+            }
+            if (PrefixIndex.matches(book.normalizedTitle(), normalized)) {
+                SuggestionDTO title = new SuggestionDTO(book.title(), SuggestionType.TITLE, book.id(), book.popularity());
+                merged.put(key(title), title);
+            }
+            if (PrefixIndex.matches(book.normalizedAuthor(), normalized)) {
+                SuggestionDTO author = new SuggestionDTO(book.author(), SuggestionType.AUTHOR, null, book.popularity());
+                merged.putIfAbsent(key(author), author);
+            }
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparingLong(SuggestionDTO::getScore).reversed()
+                        .thenComparing(SuggestionDTO::getText))
+                .limit(size)
+                .toList();
+    }
+
+    private static String key(SuggestionDTO suggestion) {
+        return suggestion.getType() == SuggestionType.TITLE
+                ? "t" + suggestion.getBookId()
+                : "a" + SearchText.normalize(suggestion.getText());
+    }
+}
@@ -7,6 +7,8 @@ import com.example.mylib.payload.AppConstants;
 import com.example.mylib.repository.UserRepo;
 import com.example.mylib.services.User.MyUserDetailsService;
 import com.example.mylib.services.User.UserService;
+import com.example.mylib.services.cache.CacheInvalidationBus;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
 import com.example.mylib.services.mail.EmailHelper;
 import com.example.mylib.services.mail.MailService;
 import com.example.mylib.services.users.UserImage;
@@ -52,6 +54,9 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
     private final BCryptPasswordEncoder encoder;
 
     @Autowired
@@ -184,7 +189,9 @@ public class UserServiceImpl implements UserService {
         Users user = userRepo.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found with ID: " + userId));
         user.setRoleList(roles);
-        return userRepo.save(user);
+        Users savedUser = userRepo.save(user);
+        cacheInvalidationBus.publish(CacheInvalidationEvent.of(CacheInvalidationEvent.Change.USER_ROLES_CHANGED, userId));
+        return savedUser;
     }
 
     @Override
@@ -0,0 +1,13 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookImportReportDTO;
+import com.example.mylib.enums.BookFeedFormat;
+import com.example.mylib.enums.BookImportMode;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+
+    // Loads a vendor feed into the catalog; see BookImportMode for what happens to ISBNs it already has
+    BookImportReportDTO importBooks(InputStream feed, BookFeedFormat format, BookImportMode mode);
+}
@@ -0,0 +1,24 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pulls books out of a vendor feed one record at a time, so a feed of any size is read in
+ * constant memory. The ISBN is returned as found; normalizing it is up to the caller.
+ */
+public interface BookRecordReader extends Closeable {
+
+    /**
+     * The next record, or null at the end of the feed. A record that is readable but cannot be
+     * mapped throws {@link com.example.mylib.exceptions.InvalidBookRecordException} once it has been
+     * consumed, so the caller can skip it and carry on. An IOException means the feed itself is
+     * broken and reading cannot continue.
+     */
+    BookDTO next() throws IOException;
+
+    // 1-based position of the record last returned or rejected
+    long recordNumber();
+}
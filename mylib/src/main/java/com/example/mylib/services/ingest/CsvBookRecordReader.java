@@ -0,0 +1,158 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.exceptions.InvalidBookRecordException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads RFC 4180 CSV whose header row names {@link BookDTO} properties, so a catalog export can be
+ * loaded back as is. Header names are matched ignoring case and separators ({@code page_count},
+ * {@code Page Count} and {@code pageCount} are the same column); unknown columns such as
+ * {@code id} and {@code version} are ignored. Dates are accepted as ISO or dd/MM/yyyy, the format
+ * the API writes.
+ */
+public class CsvBookRecordReader implements BookRecordReader {
+
+    private static final DateTimeFormatter API_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final Map<String, BiConsumer<BookDTO, String>> COLUMNS = Map.ofEntries(
+            Map.entry("title", BookDTO::setTitle),
+            Map.entry("author", BookDTO::setAuthor),
+            Map.entry("category", BookDTO::setCategory),
+            Map.entry("available", (book, value) -> book.setAvailable(Boolean.parseBoolean(value))),
+            Map.entry("publisher", BookDTO::setPublisher),
+            Map.entry("isbn", BookDTO::setIsbn),
+            Map.entry("edition", (book, value) -> book.setEdition(Year.of(parseInt("edition", value)))),
+            Map.entry("language", BookDTO::setLanguage),
+            Map.entry("publicationdate", (book, value) -> book.setPublicationDate(parseDate(value))),
+            Map.entry("quantity", (book, value) -> book.setQuantity(parseInt("quantity", value))),
+            Map.entry("coverurl", BookDTO::setCoverUrl),
+            Map.entry("pagecount", (book, value) -> book.setPageCount(parseInt("pageCount", value))),
+            Map.entry("price", BookDTO::setPrice),
+            Map.entry("location", BookDTO::setLocation));
+
+    private final BufferedReader reader;
+    private final List<BiConsumer<BookDTO, String>> setters = new ArrayList<>();
+    private final boolean hasAvailable;
+    private long recordNumber;
+
+    public CsvBookRecordReader(InputStream in) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IOException("Feed is empty; expected a header row");
+        }
+        List<String> keys = header.stream().map(column -> column.replaceAll("[^A-Za-z]", "").toLowerCase()).toList();
+        if (!keys.contains("isbn")) {
+            throw new IOException("Header has no isbn column: " + header);
+        }
+        keys.forEach(key -> setters.add(COLUMNS.get(key)));
+        hasAvailable = keys.contains("available");
+    }
+
+    @Override
+    public BookDTO next() throws IOException {
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isBlank());
+        recordNumber++;
+
+        BookDTO book = new BookDTO();
+        book.setQuantity(1);    // Feeds usually describe titles, not copies
+        for (int i = 0; i < row.size() && i < setters.size(); i++) {
+            BiConsumer<BookDTO, String> setter = setters.get(i);
+            String value = row.get(i).trim();
+            if (setter != null && !value.isEmpty()) {
+                setter.accept(book, value);
+            }
+        }
+        if (!hasAvailable) {
+            book.setAvailable(book.getQuantity() > 0);
+        }
+        return book;
+    }
+
+    @Override
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // One row split into fields; quoted fields may contain separators, doubled quotes and line breaks
+    private List<String> readRow() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next >= 0) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int parseInt(String column, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidBookRecordException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return value.contains("/") ? LocalDate.parse(value, API_DATE) : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidBookRecordException("Invalid publicationDate: " + value);
+        }
+    }
+}
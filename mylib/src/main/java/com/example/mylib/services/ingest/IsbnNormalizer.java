@@ -0,0 +1,60 @@
+package com.example.mylib.services.ingest;
+
+import java.util.Optional;
+
+/**
+ * Brings ISBNs from feeds to one form so they can be compared with the catalog: 13 digits, no
+ * separators. ISBN-10s are converted (978 prefix, recomputed check digit); anything whose check
+ * digit does not match is rejected. Qualifiers feeds append, as in MARC {@code 020 $a
+ * 0306406152 (pbk.)}, are dropped.
+ */
+public final class IsbnNormalizer {
+
+    private IsbnNormalizer() {
+    }
+
+    public static Optional<String> normalize(String raw) {
+        if (raw == null) {
+            return Optional.empty();
+        }
+        for (String token : raw.trim().split("\\s+")) {
+            String isbn = token.replaceAll("[^0-9Xx]", "").toUpperCase();
+            if (isbn.length() == 10 && isValidIsbn10(isbn)) {
+                return Optional.of(toIsbn13(isbn));
+            }
+            if (isbn.length() == 13 && isbn.indexOf('X') < 0 && isValidIsbn13(isbn)) {
+                return Optional.of(isbn);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isValidIsbn10(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            if (c == 'X' && i != 9) {
+                return false;
+            }
+            sum += (c == 'X' ? 10 : c - '0') * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static boolean isValidIsbn13(String isbn) {
+        return isbn13CheckDigit(isbn) == isbn.charAt(12) - '0';
+    }
+
+    private static String toIsbn13(String isbn10) {
+        String stem = "978" + isbn10.substring(0, 9);
+        return stem + isbn13CheckDigit(stem);
+    }
+
+    private static int isbn13CheckDigit(String isbn) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (isbn.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.exceptions.InvalidBookRecordException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads MARC 21 slim XML with StAX, holding one {@code <record>} at a time. Fields used:
+ * <ul>
+ *   <li>020 $a ISBN (the first that normalizes), $c price</li>
+ *   <li>245 $a $b title, 100/110/700 $a author</li>
+ *   <li>264 or 260 $b publisher, $c year (else 008/07-10) as edition</li>
+ *   <li>650/655 $a category, 041 $a (else 008/35-37) language, 300 $a page count</li>
+ * </ul>
+ * DTDs and external entities are disabled.
+ */
+public class MarcXmlBookRecordReader implements BookRecordReader {
+
+    private static final Pattern YEAR = Pattern.compile("(\\d{4})");
+    private static final Pattern PAGES = Pattern.compile("(\\d+)\\s*(?:p\\b|pages)");
+
+    private final XMLStreamReader xml;
+    private long recordNumber;
+
+    public MarcXmlBookRecordReader(InputStream in) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            this.xml = factory.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Cannot read MARCXML: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public BookDTO next() throws IOException {
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && xml.getLocalName().equals("record")) {
+                    recordNumber++;
+                    return toBook(readRecord());
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed MARCXML after record " + recordNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // Tag -> occurrences of that field, each a map of subfield code -> first value; controlfields under code ""
+    private Map<String, List<Map<String, String>>> readRecord() throws XMLStreamException {
+        Map<String, List<Map<String, String>>> fields = new HashMap<>();
+        Map<String, String> field = null;
+        String subfieldCode = null;
+        StringBuilder text = new StringBuilder();
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                text.setLength(0);
+                switch (xml.getLocalName()) {
+                    case "controlfield", "datafield" -> {
+                        field = new HashMap<>();
+                        fields.computeIfAbsent(xml.getAttributeValue(null, "tag"), tag -> new ArrayList<>()).add(field);
+                    }
+                    case "subfield" -> subfieldCode = xml.getAttributeValue(null, "code");
+                    default -> { }
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text.append(xml.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "controlfield" -> field.put("", text.toString());
+                    case "subfield" -> {
+                        if (field != null && subfieldCode != null) {
+                            field.putIfAbsent(subfieldCode, text.toString().trim());
+                        }
+                    }
+                    case "record" -> {
+                        return fields;
+                    }
+                    default -> { }
+                }
+            }
+        }
+        return fields;
+    }
+
+    private BookDTO toBook(Map<String, List<Map<String, String>>> fields) {
+        BookDTO book = new BookDTO();
+        List<Map<String, String>> isbns = fields.getOrDefault("020", List.of());
+        String isbn = isbns.stream().map(f -> f.get("a")).filter(a -> a != null && IsbnNormalizer.normalize(a).isPresent())
+                .findFirst()
+                .orElse(isbns.stream().map(f -> f.get("a")).filter(a -> a != null).findFirst().orElse(null));
+        book.setIsbn(isbn);
+        book.setPrice(first(fields, "c", "020"));
+
+        String title = first(fields, "a", "245");
+        String subtitle = first(fields, "b", "245");
+        if (title != null && subtitle != null) {
+            title = trimPunctuation(title) + ": " + subtitle;
+        }
+        book.setTitle(trimPunctuation(title));
+        book.setAuthor(trimPunctuation(first(fields, "a", "100", "110", "700")));
+        book.setPublisher(trimPunctuation(first(fields, "b", "264", "260")));
+        book.setCategory(trimPunctuation(first(fields, "a", "650", "655")));
+
+        String fixed = first(fields, "", "008");
+        String year = first(fields, "c", "264", "260");
+        if (year == null && fixed != null && fixed.length() >= 11) {
+            year = fixed.substring(7, 11);
+        }
+        if (year != null) {
+            Matcher matcher = YEAR.matcher(year);
+            if (matcher.find()) {
+                book.setEdition(Year.of(Integer.parseInt(matcher.group(1))));
+            }
+        }
+
+        String language = first(fields, "a", "041");
+        if (language == null && fixed != null && fixed.length() >= 38) {
+            language = fixed.substring(35, 38).trim();
+        }
+        book.setLanguage(languageName(language));
+
+        String extent = first(fields, "a", "300");
+        if (extent != null) {
+            Matcher matcher = PAGES.matcher(extent);
+            if (matcher.find()) {
+                book.setPageCount(Integer.parseInt(matcher.group(1)));
+            }
+        }
+
+        book.setQuantity(1);
+        book.setAvailable(true);
+        if (book.getTitle() == null) {
+            throw new InvalidBookRecordException("Record has no 245 $a title");
+        }
+        return book;
+    }
+
+    private static String first(Map<String, List<Map<String, String>>> fields, String code, String... tags) {
+        for (String tag : tags) {
+            for (Map<String, String> field : fields.getOrDefault(tag, List.of())) {
+                String value = field.get(code);
+                if (value != null && !value.isBlank()) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    // ISBD punctuation MARC leaves at the end of a subfield (" /", " :", ",", ".")
+    private static String trimPunctuation(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.strip().replaceAll("[\\s/:;,=.]+$", "");
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    // MARC language codes are ISO 639-2 ("eng"); the catalog stores display names ("English")
+    private static String languageName(String code) {
+        if (code == null || code.isBlank()) {
+            return null;
+        }
+        String name = Locale.of(code.trim()).getDisplayLanguage(Locale.ENGLISH);
+        return name.isEmpty() || name.equalsIgnoreCase(code.trim()) ? code.trim() : name;
+    }
+}
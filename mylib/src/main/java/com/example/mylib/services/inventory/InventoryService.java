@@ -0,0 +1,58 @@
+package com.example.mylib.services.inventory;
+
+import com.example.mylib.dto.BookCopyDTO;
+import com.example.mylib.entities.BookCopy;
+import com.example.mylib.enums.CopyStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Physical copies of books and their circulation status. A checkout or reservation allocation
+ * claims any free copy of the title, skipping copies other transactions are claiming, so
+ * concurrent checkouts of one title neither wait for nor fail on each other.
+ * <p>
+ * Every copy is shelved at a branch, and a loan or reservation is made at one: copies are only
+ * claimed at the branch asking for them. Branches are upper-case codes; see {@link #branch}.
+ * <p>
+ * {@code Book.quantity} is a cached count of a book's copies on the shelf, refreshed shortly
+ * after each change; decisions about lending read the copies themselves.
+ */
+public interface InventoryService {
+
+    // The branch code for the one requested: trimmed and upper-cased, the default branch if blank
+    String branch(String requested);
+
+    /**
+     * Takes a copy of the book off the shelf at the branch into the given status
+     * ({@link CopyStatus#ON_LOAN} or {@link CopyStatus#ON_HOLD}); empty if every copy there is out
+     * or being claimed. Must be called inside a transaction, which holds the copy until it ends.
+     */
+    Optional<BookCopy> claimCopy(Long bookId, String branch, CopyStatus status);
+
+    // A copy held for a reader goes out on loan
+    void lend(BookCopy copy);
+
+    // A copy back on the shelf
+    void release(BookCopy copy);
+
+    long availableCopies(Long bookId, String branch);
+
+    // Copies on the shelf by branch, for branches with any
+    Map<String, Long> availabilityByBranch(Long bookId);
+
+    // Whether the branch has copies of the book in circulation, on the shelf or not
+    boolean holdsCopies(Long bookId, String branch);
+
+    /**
+     * Puts copies on the shelf at the branch ({@code delta > 0}) or withdraws free ones there
+     * ({@code delta < 0}); returns how many were added or withdrawn, fewer than asked if there
+     * were not enough free copies.
+     */
+    int adjustCopies(Long bookId, String branch, int delta);
+
+    BookCopyDTO addCopy(Long bookId, BookCopyDTO copy);
+
+    List<BookCopyDTO> getCopies(Long bookId);
+}
@@ -0,0 +1,295 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.dto.BookIndexDTO;
+import com.example.mylib.enums.BookFacet;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.repository.BorrowRepo;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.warmup.WarmupTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the in-memory catalog indexes current: {@link PrefixIndex} over titles and authors for
+ * typeahead, {@link FuzzyIndex} over their words for typo-tolerant search and {@link FacetIndex}
+ * over category, language, publisher and edition for faceted search. All three are built together
+ * in one pass over the catalog, at startup as a warm-up task, so the fuzzy and facet indexes number
+ * books the same way.
+ * <p>
+ * Book changes arrive as {@link CacheInvalidationEvent}s, from this node and others, and only mark
+ * the book dirty; every {@code search.index.refresh-interval} the dirty books are re-read in one
+ * query and those whose title, author or facet values really changed (most events are circulation
+ * changing the quantity) go into a small overlay of {@link PendingBook}s, which searches merge with
+ * the indexes.
+ * The indexes are rebuilt from scratch, which also recounts popularity, every
+ * {@code search.index.rebuild-interval}, once the overlay holds {@code search.index.max-pending}
+ * books, and after a bulk load.
+ */
+@Component
+public class CatalogTextIndex implements WarmupTask {
+
+    private static final int REFRESH_BATCH = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final BookRepo bookRepo;
+    private final BorrowRepo borrowRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPending;
+
+    private volatile Snapshot snapshot;
+    // Books changed since the snapshot was built, by id
+    private final Map<Long, PendingBook> pending = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean rebuildRequested;
+
+    public CatalogTextIndex(BookRepo bookRepo,
+                            BorrowRepo borrowRepo,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${search.index.max-pending}") int maxPending) {
+        this.bookRepo = bookRepo;
+        this.borrowRepo = borrowRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPending = maxPending;
+    }
+
+    public PrefixIndex prefixIndex() {
+        return snapshot().prefix();
+    }
+
+    public FuzzyIndex fuzzyIndex() {
+        return snapshot().fuzzy();
+    }
+
+    /** The indexes as last built together; their books are numbered the same way. */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /** Books changed since the indexes were built; their entries in the indexes are stale. */
+    public Collection<PendingBook> pending() {
+        return pending.values();
+    }
+
+    public boolean isPending(long bookId) {
+        return pending.containsKey(bookId);
+    }
+
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        long upTo = sequence.get();
+        Map<Long, Integer> popularity = popularity(borrowRepo.countBorrowsByBook());
+        PrefixIndex.Builder prefix = PrefixIndex.builder();
+        FuzzyIndex.Builder fuzzy = FuzzyIndex.builder();
+        FacetIndex.Builder facets = FacetIndex.builder();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<BookIndexDTO> books = bookRepo.streamIndexFields()) {
+                books.forEach(book -> {
+                    int borrows = popularity.getOrDefault(book.getId(), 0);
+                    prefix.addTitle(book.getId(), book.getTitle(), book.getAuthor(), borrows);
+                    fuzzy.addBook(book.getId(), book.getTitle(), book.getAuthor(), borrows);
+                    facets.addBook(book.getId(), book.getCategory(), book.getLanguage(), book.getPublisher(),
+                            FacetIndex.valueOf(book.getEdition()));
+                });
+            }
+        });
+        Snapshot built = new Snapshot(prefix.build(), fuzzy.build(), facets.build());
+        snapshot = built;
+        // The rebuild read every change applied to the overlay before it started
+        pending.values().removeIf(book -> book.sequence() <= upTo);
+        logger.info("Built catalog indexes in {} ms: {} titles, {} authors, {} distinct words, {} KB of facet bitmaps",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), built.prefix().titleCount(),
+                built.prefix().size() - built.prefix().titleCount(), built.fuzzy().termCount(),
+                built.facets().bitmapBytes() / 1024);
+    }
+
+    @Override
+    public String name() {
+        return "catalog-text-index";
+    }
+
+    @Override
+    public void warmUp() {
+        rebuild();
+    }
+
+    @EventListener
+    public void onInvalidation(CacheInvalidationEvent event) {
+        if (event.change() == CacheInvalidationEvent.Change.ALL
+                || event.change() == CacheInvalidationEvent.Change.BOOKS_BULK_LOADED) {
+            rebuildRequested = true;
+        } else if (event.change().isBookChange()) {
+            dirty.add(event.entityId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval}")
+    public synchronized void refresh() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            // Not built yet; the first build reads every change
+            dirty.clear();
+            return;
+        }
+        if (rebuildRequested) {
+            // Events are published after commit, so the rebuild sees every change marked so far
+            rebuildRequested = false;
+            dirty.clear();
+            rebuild();
+            return;
+        }
+        List<Long> batch = new ArrayList<>();
+        for (Iterator<Long> ids = dirty.iterator(); ids.hasNext(); ) {
+            batch.add(ids.next());
+            ids.remove();
+            if (batch.size() == REFRESH_BATCH || !ids.hasNext()) {
+                apply(current, batch);
+                batch.clear();
+            }
+        }
+        if (pending.size() >= maxPending) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval}", fixedDelayString = "${search.index.rebuild-interval}")
+    public void rebuildPeriodically() {
+        if (snapshot != null) {
+            rebuildRequested = true;
+        }
+    }
+
+    private void apply(Snapshot current, List<Long> ids) {
+        Map<Long, BookIndexDTO> books = new HashMap<>();
+        bookRepo.findIndexFieldsByIdIn(ids).forEach(book -> books.put(book.getId(), book));
+        List<BookIndexDTO> changed = new ArrayList<>();
+        for (Long id : ids) {
+            BookIndexDTO book = books.get(id);
+            int doc = current.prefix().indexOfBook(id);
+            if (book == null) {
+                if (doc >= 0) {
+                    pending.put(id, PendingBook.deleted(id, sequence.incrementAndGet()));
+                } else {
+                    pending.remove(id);
+                }
+            } else if (doc >= 0 && unchanged(current, doc, book)) {
+                pending.remove(id);
+            } else {
+                changed.add(book);
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> popularity = popularity(
+                borrowRepo.countBorrowsByBookIn(changed.stream().map(BookIndexDTO::getId).toList()));
+        for (BookIndexDTO book : changed) {
+            pending.put(book.getId(), PendingBook.of(book, popularity.getOrDefault(book.getId(), 0),
+                    sequence.incrementAndGet()));
+        }
+        logger.debug("Catalog text overlay now holds {} changed books", pending.size());
+    }
+
+    private static boolean unchanged(Snapshot current, int doc, BookIndexDTO book) {
+        PendingBook now = PendingBook.of(book, 0, 0);
+        int facetDoc = current.facets().indexOfBook(book.getId());
+        for (BookFacet facet : BookFacet.values()) {
+            if (!Objects.equals(current.facets().value(facet, facetDoc), now.value(facet))) {
+                return false;
+            }
+        }
+        return current.prefix().title(doc).equals(now.title())
+                && SearchText.normalize(current.prefix().authorOf(doc)).equals(now.normalizedAuthor());
+    }
+
+    private static Map<Long, Integer> popularity(List<Object[]> counts) {
+        Map<Long, Integer> popularity = new HashMap<>(counts.size() * 2);
+        for (Object[] row : counts) {
+            popularity.put((Long) row[0], (int) Math.min(Integer.MAX_VALUE, (Long) row[1]));
+        }
+        return popularity;
+    }
+
+    public record Snapshot(PrefixIndex prefix, FuzzyIndex fuzzy, FacetIndex facets) {
+    }
+
+    /**
+     * A book added, changed or deleted since the indexes were built, with its title, author and
+     * facet values as they are now.
+     */
+    public record PendingBook(long id, String title, String author, String normalizedTitle,
+                              String normalizedAuthor, String category, String language, String publisher,
+                              String edition, int popularity, boolean deleted, long sequence) {
+
+        static PendingBook of(BookIndexDTO book, int popularity, long sequence) {
+            return new PendingBook(book.getId(), Objects.toString(book.getTitle(), "").strip(),
+                    book.getAuthor() == null ? null : book.getAuthor().strip(), SearchText.normalize(book.getTitle()),
+                    SearchText.normalize(book.getAuthor()), FacetIndex.valueOf(book.getCategory()),
+                    FacetIndex.valueOf(book.getLanguage()), FacetIndex.valueOf(book.getPublisher()),
+                    FacetIndex.valueOf(book.getEdition()), popularity, false, sequence);
+        }
+
+        static PendingBook deleted(long id, long sequence) {
+            return new PendingBook(id, null, null, "", "", null, null, null, null, 0, true, sequence);
+        }
+
+        public String value(BookFacet facet) {
+            return switch (facet) {
+                case CATEGORY -> category;
+                case LANGUAGE -> language;
+                case PUBLISHER -> publisher;
+                case EDITION -> edition;
+            };
+        }
+
+        /**
+         * Typos between the query words and this book's title and author, the way {@link FuzzyIndex}
+         * counts them, or -1 if some word matches none of them.
+         */
+        public int edits(List<String> words) {
+            String[] bookWords = SearchText.words((normalizedTitle + " " + normalizedAuthor).strip());
+            int edits = 0;
+            for (String word : words) {
+                int allowed = FuzzyIndex.allowedEdits(word);
+                int best = allowed + 1;
+                for (String bookWord : bookWords) {
+                    if (!SearchText.isNumber(bookWord) && !SearchText.isStopWord(bookWord)) {
+                        best = Math.min(best, SearchText.typos(word, bookWord, allowed));
+                    }
+                }
+                if (best > allowed) {
+                    return -1;
+                }
+                edits += best;
+            }
+            return edits;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package com.example.mylib.services.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of non-negative ints, compressed the way Roaring bitmaps are: the values are split
+ * into chunks of 65536 by their high 16 bits, and each chunk holds its low 16 bits either as a
+ * sorted {@code char[]} (up to 4096 values, 2 bytes each) or as a 1024-word bitset (8 KB, whatever
+ * the count). A value held by few books costs little, one held by most is a bitset, and
+ * intersections and counts work a chunk at a time, word by word where both sides are bitsets.
+ */
+public final class CompressedBitmap {
+
+    public static final CompressedBitmap EMPTY = new CompressedBitmap(new char[0], new char[0][], new long[0][], 0);
+
+    // A chunk holding more values than this is a bitset: 4096 chars take as much room as 1024 longs
+    private static final int MAX_ARRAY = 4096;
+    private static final int WORDS = 1024;
+
+    private final char[] keys;          // high 16 bits of each chunk, ascending
+    private final char[][] arrays;      // chunk -> sorted low 16 bits, or null if a bitset
+    private final long[][] bitsets;     // chunk -> 1024 words, or null if an array
+    private final int cardinality;
+
+    private CompressedBitmap(char[] keys, char[][] arrays, long[][] bitsets, int cardinality) {
+        this.keys = keys;
+        this.arrays = arrays;
+        this.bitsets = bitsets;
+        this.cardinality = cardinality;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** The values {@code 0} to {@code size - 1}. */
+    public static CompressedBitmap range(int size) {
+        Builder builder = builder();
+        for (int value = 0; value < size; value++) {
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    /** The first {@code length} values of an ascending array. */
+    public static CompressedBitmap of(int[] sorted, int length) {
+        Builder builder = builder();
+        for (int i = 0; i < length; i++) {
+            builder.add(sorted[i]);
+        }
+        return builder.build();
+    }
+
+    /** Values in any of the bitmaps. */
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        CompressedBitmap union = EMPTY;
+        for (CompressedBitmap bitmap : bitmaps) {
+            union = union.or(bitmap);
+        }
+        return union;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int value) {
+        int chunk = Arrays.binarySearch(keys, (char) (value >>> 16));
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) value;
+        return arrays[chunk] != null
+                ? Arrays.binarySearch(arrays[chunk], low) >= 0
+                : (bitsets[chunk][low >>> 6] & (1L << low)) != 0;
+    }
+
+    public CompressedBitmap and(CompressedBitmap other) {
+        Builder result = builder();
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                if (bitsets[i] != null && other.bitsets[j] != null) {
+                    long[] words = new long[WORDS];
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] = bitsets[i][w] & other.bitsets[j][w];
+                    }
+                    result.addChunk(keys[i], words);
+                } else if (arrays[i] != null && other.arrays[j] != null) {
+                    result.addChunk(keys[i], intersect(arrays[i], other.arrays[j]));
+                } else {
+                    result.addChunk(keys[i], arrays[i] != null
+                            ? filter(arrays[i], other.bitsets[j], true)
+                            : filter(other.arrays[j], bitsets[i], true));
+                }
+                i++;
+                j++;
+            }
+        }
+        return result.build();
+    }
+
+    /** Values in this bitmap but not in {@code other}. */
+    public CompressedBitmap andNot(CompressedBitmap other) {
+        Builder result = builder();
+        for (int i = 0, j = 0; i < keys.length; ) {
+            if (j == other.keys.length || keys[i] < other.keys[j]) {
+                result.share(this, i);
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                long[] subtrahend = other.bitsets[j] != null ? other.bitsets[j] : toBitset(other.arrays[j]);
+                if (arrays[i] != null) {
+                    result.addChunk(keys[i], filter(arrays[i], subtrahend, false));
+                } else {
+                    long[] words = new long[WORDS];
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] = bitsets[i][w] & ~subtrahend[w];
+                    }
+                    result.addChunk(keys[i], words);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result.build();
+    }
+
+    public CompressedBitmap or(CompressedBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        Builder result = builder();
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                result.share(this, i);
+                i++;
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                result.share(other, j);
+                j++;
+            } else {
+                if (arrays[i] != null && other.arrays[j] != null
+                        && arrays[i].length + other.arrays[j].length <= MAX_ARRAY) {
+                    result.addChunk(keys[i], union(arrays[i], other.arrays[j]));
+                } else {
+                    long[] words = arrays[i] != null ? toBitset(arrays[i]) : bitsets[i].clone();
+                    if (other.arrays[j] != null) {
+                        for (char low : other.arrays[j]) {
+                            words[low >>> 6] |= 1L << low;
+                        }
+                    } else {
+                        for (int w = 0; w < WORDS; w++) {
+                            words[w] |= other.bitsets[j][w];
+                        }
+                    }
+                    result.addChunk(keys[i], words);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result.build();
+    }
+
+    /** Size of the intersection, without building it. */
+    public int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                if (bitsets[i] != null && other.bitsets[j] != null) {
+                    for (int w = 0; w < WORDS; w++) {
+                        count += Long.bitCount(bitsets[i][w] & other.bitsets[j][w]);
+                    }
+                } else if (arrays[i] != null && other.arrays[j] != null) {
+                    count += intersectionSize(arrays[i], other.arrays[j]);
+                } else {
+                    char[] array = arrays[i] != null ? arrays[i] : other.arrays[j];
+                    long[] words = arrays[i] != null ? other.bitsets[j] : bitsets[i];
+                    for (char low : array) {
+                        if ((words[low >>> 6] & (1L << low)) != 0) {
+                            count++;
+                        }
+                    }
+                }
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /** Calls {@code action} with each value, ascending. */
+    public void forEach(IntConsumer action) {
+        for (int chunk = 0; chunk < keys.length; chunk++) {
+            int high = keys[chunk] << 16;
+            if (arrays[chunk] != null) {
+                for (char low : arrays[chunk]) {
+                    action.accept(high | low);
+                }
+            } else {
+                long[] words = bitsets[chunk];
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    }
+                }
+            }
+        }
+    }
+
+    /** The smallest {@code limit} values, ascending. */
+    public int[] first(int limit) {
+        int[] values = new int[Math.min(limit, cardinality)];
+        int filled = 0;
+        for (int chunk = 0; chunk < keys.length && filled < values.length; chunk++) {
+            int high = keys[chunk] << 16;
+            if (arrays[chunk] != null) {
+                for (int k = 0; k < arrays[chunk].length && filled < values.length; k++) {
+                    values[filled++] = high | arrays[chunk][k];
+                }
+            } else {
+                long[] words = bitsets[chunk];
+                for (int w = 0; w < WORDS && filled < values.length; w++) {
+                    for (long word = words[w]; word != 0 && filled < values.length; word &= word - 1) {
+                        values[filled++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    /** Approximate heap footprint, for logging. */
+    public long sizeInBytes() {
+        long bytes = 16 + keys.length * 2L;
+        for (int chunk = 0; chunk < keys.length; chunk++) {
+            bytes += arrays[chunk] != null ? 16 + arrays[chunk].length * 2L : 16 + WORDS * 8L;
+        }
+        return bytes;
+    }
+
+    private static char[] intersect(char[] a, char[] b) {
+        char[] result = new char[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static int intersectionSize(char[] a, char[] b) {
+        int size = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                size++;
+                i++;
+                j++;
+            }
+        }
+        return size;
+    }
+
+    private static char[] union(char[] a, char[] b) {
+        char[] result = new char[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[size++] = a[i++];
+            } else if (i == a.length || a[i] > b[j]) {
+                result[size++] = b[j++];
+            } else {
+                result[size++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // The values of the array whose bit is set (keep) or clear (!keep)
+    private static char[] filter(char[] array, long[] words, boolean keep) {
+        char[] result = new char[array.length];
+        int size = 0;
+        for (char low : array) {
+            if (((words[low >>> 6] & (1L << low)) != 0) == keep) {
+                result[size++] = low;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] toBitset(char[] array) {
+        long[] words = new long[WORDS];
+        for (char low : array) {
+            words[low >>> 6] |= 1L << low;
+        }
+        return words;
+    }
+
+    /** Collects values in ascending order, or whole chunks in ascending key order. */
+    public static final class Builder {
+        private char[] keys = new char[16];
+        private char[][] arrays = new char[16][];
+        private long[][] bitsets = new long[16][];
+        private int chunks;
+        private int cardinality;
+
+        // The chunk being filled by add()
+        private int openKey = -1;
+        private char[] open = new char[MAX_ARRAY];
+        private long[] openBitset;
+        private int openSize;
+
+        private Builder() {
+        }
+
+        public Builder add(int value) {
+            int key = value >>> 16;
+            if (key != openKey) {
+                if (key < openKey || (chunks > 0 && key <= keys[chunks - 1])) {
+                    throw new IllegalStateException("Values must be added in ascending order");
+                }
+                close();
+                openKey = key;
+            }
+            char low = (char) value;
+            if (openBitset == null) {
+                if (openSize > 0 && low <= open[openSize - 1]) {
+                    if (low == open[openSize - 1]) {
+                        return this;
+                    }
+                    throw new IllegalStateException("Values must be added in ascending order");
+                }
+                if (openSize == MAX_ARRAY) {
+                    openBitset = toBitset(open);
+                } else {
+                    open[openSize++] = low;
+                    return this;
+                }
+            }
+            if ((openBitset[low >>> 6] & (1L << low)) == 0) {
+                openBitset[low >>> 6] |= 1L << low;
+                openSize++;
+            }
+            return this;
+        }
+
+        public CompressedBitmap build() {
+            close();
+            return new CompressedBitmap(Arrays.copyOf(keys, chunks), Arrays.copyOf(arrays, chunks),
+                    Arrays.copyOf(bitsets, chunks), cardinality);
+        }
+
+        private void close() {
+            if (openKey < 0 || openSize == 0) {
+                openKey = -1;
+                return;
+            }
+            if (openBitset != null) {
+                append(openKey, null, openBitset, openSize);
+            } else {
+                append(openKey, Arrays.copyOf(open, openSize), null, openSize);
+            }
+            openKey = -1;
+            openBitset = null;
+            openSize = 0;
+        }
+
+        // A chunk of another bitmap, shared rather than copied: chunks are never modified once built
+        private void share(CompressedBitmap source, int chunk) {
+            if (source.arrays[chunk] != null) {
+                addChunk(source.keys[chunk], source.arrays[chunk]);
+            } else {
+                int size = 0;
+                for (long word : source.bitsets[chunk]) {
+                    size += Long.bitCount(word);
+                }
+                append(source.keys[chunk], null, source.bitsets[chunk], size);
+            }
+        }
+
+        private void addChunk(char key, char[] array) {
+            if (array.length > 0) {
+                append(key, array, null, array.length);
+            }
+        }
+
+        private void addChunk(char key, long[] words) {
+            int size = 0;
+            for (long word : words) {
+                size += Long.bitCount(word);
+            }
+            if (size == 0) {
+                return;
+            }
+            if (size > MAX_ARRAY) {
+                append(key, null, words, size);
+                return;
+            }
+            char[] array = new char[size];
+            int filled = 0;
+            for (int w = 0; w < WORDS; w++) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    array[filled++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                }
+            }
+            append(key, array, null, size);
+        }
+
+        private void append(int key, char[] array, long[] bitset, int size) {
+            if (chunks == keys.length) {
+                keys = Arrays.copyOf(keys, chunks * 2);
+                arrays = Arrays.copyOf(arrays, chunks * 2);
+                bitsets = Arrays.copyOf(bitsets, chunks * 2);
+            }
+            keys[chunks] = (char) key;
+            arrays[chunks] = array;
+            bitsets[chunks] = bitset;
+            chunks++;
+            cardinality += size;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.enums.BookFacet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the catalog's facet values ({@link BookFacet}): for every value, the books
+ * having it as a {@link CompressedBitmap} of book numbers (docs, in ascending id order), and for
+ * every book its value of each facet.
+ * <p>
+ * A faceted search is bitmap algebra: the values selected within a facet are OR-ed, the facets
+ * AND-ed with each other and with the books matching the text query. Each facet's counts are over
+ * the books passing every filter but its own, so the other values of a facet the user already
+ * narrowed on stay visible. Counts over the whole catalog are precomputed; otherwise they are the
+ * sizes of intersections, or, when few books are left, tallied book by book.
+ */
+public final class FacetIndex {
+
+    private static final BookFacet[] FACETS = BookFacet.values();
+
+    private final long[] bookIds;       // doc -> book id, ascending
+    private final CompressedBitmap all;
+    private final Map<BookFacet, Values> facets = new EnumMap<>(BookFacet.class);
+
+    private FacetIndex(Builder builder) {
+        this.bookIds = Arrays.copyOf(builder.bookIds, builder.docs);
+        this.all = CompressedBitmap.range(builder.docs);
+        for (BookFacet facet : FACETS) {
+            facets.put(facet, builder.values.get(facet).build(builder.docs));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** The value a book has for a facet: trimmed, null if blank. */
+    public static String valueOf(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().strip();
+        return text.isEmpty() ? null : text;
+    }
+
+    public int size() {
+        return bookIds.length;
+    }
+
+    public int indexOfBook(long bookId) {
+        return Arrays.binarySearch(bookIds, bookId);
+    }
+
+    public long bookId(int doc) {
+        return bookIds[doc];
+    }
+
+    public String value(BookFacet facet, int doc) {
+        Values values = facets.get(facet);
+        int value = values.valueOfDoc[doc];
+        return value < 0 ? null : values.values[value];
+    }
+
+    /** The values of a facet, sorted; {@link Counts#counts} are indexed the same way. */
+    public List<String> values(BookFacet facet) {
+        return Arrays.asList(facets.get(facet).values);
+    }
+
+    /** Approximate heap footprint of the bitmaps, for logging. */
+    public long bitmapBytes() {
+        long bytes = 0;
+        for (Values values : facets.values()) {
+            for (CompressedBitmap books : values.books) {
+                bytes += books.sizeInBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The books matching the query and every filter, and the counts of each facet's values.
+     *
+     * @param candidates   docs matching the text query, or null for every book
+     * @param excludedDocs docs left out entirely, ascending (books changed since the index was built)
+     * @param selected     the values selected per facet; none selected means no filter on it
+     */
+    public Counts count(CompressedBitmap candidates, int[] excludedDocs,
+                        Map<BookFacet, ? extends Collection<String>> selected) {
+        CompressedBitmap base = candidates == null ? all : candidates;
+        CompressedBitmap excluded = CompressedBitmap.of(excludedDocs, excludedDocs.length);
+        if (!excluded.isEmpty()) {
+            base = base.andNot(excluded);
+        }
+        Map<BookFacet, CompressedBitmap> filters = new EnumMap<>(BookFacet.class);
+        selected.forEach((facet, chosen) -> {
+            if (!chosen.isEmpty()) {
+                filters.put(facet, selection(facet, chosen));
+            }
+        });
+        CompressedBitmap matches = base;
+        for (CompressedBitmap filter : filters.values()) {
+            matches = matches.and(filter);
+        }
+
+        Map<BookFacet, int[]> counts = new EnumMap<>(BookFacet.class);
+        for (BookFacet facet : FACETS) {
+            if (!filters.containsKey(facet)) {
+                counts.put(facet, tally(facet, matches, candidates == null && filters.isEmpty(), excludedDocs));
+                continue;
+            }
+            CompressedBitmap others = base;
+            for (Map.Entry<BookFacet, CompressedBitmap> filter : filters.entrySet()) {
+                if (filter.getKey() != facet) {
+                    others = others.and(filter.getValue());
+                }
+            }
+            counts.put(facet, tally(facet, others, candidates == null && filters.size() == 1, excludedDocs));
+        }
+        return new Counts(matches, counts);
+    }
+
+    // Books of the facet's values among the given ones; wholeCatalog if they are all but the excluded
+    private int[] tally(BookFacet facet, CompressedBitmap books, boolean wholeCatalog, int[] excludedDocs) {
+        Values values = facets.get(facet);
+        int[] counts = new int[values.values.length];
+        if (wholeCatalog) {
+            for (int value = 0; value < counts.length; value++) {
+                counts[value] = values.books[value].cardinality();
+            }
+            for (int doc : excludedDocs) {
+                if (values.valueOfDoc[doc] >= 0) {
+                    counts[values.valueOfDoc[doc]]--;
+                }
+            }
+        } else if (books.cardinality() * 8L < values.valued) {
+            // Few books left: cheaper to look each one up than to intersect every value's bitmap
+            books.forEach(doc -> {
+                if (values.valueOfDoc[doc] >= 0) {
+                    counts[values.valueOfDoc[doc]]++;
+                }
+            });
+        } else {
+            for (int value = 0; value < counts.length; value++) {
+                counts[value] = books.andCardinality(values.books[value]);
+            }
+        }
+        return counts;
+    }
+
+    private CompressedBitmap selection(BookFacet facet, Collection<String> chosen) {
+        Values values = facets.get(facet);
+        List<CompressedBitmap> books = new ArrayList<>();
+        for (String value : chosen) {
+            int index = Arrays.binarySearch(values.values, value);
+            if (index >= 0) {
+                books.add(values.books[index]);
+            }
+        }
+        return CompressedBitmap.or(books);
+    }
+
+    /**
+     * Books passing the query and every filter ({@code matches}), and per facet the count of each
+     * of its {@link #values}.
+     */
+    public record Counts(CompressedBitmap matches, Map<BookFacet, int[]> counts) {
+    }
+
+    private record Values(String[] values, CompressedBitmap[] books, int[] valueOfDoc, int valued) {
+    }
+
+    /** Collects books in ascending id order, then builds the index. */
+    public static final class Builder {
+        private long[] bookIds = new long[1024];
+        private int docs;
+        private final Map<BookFacet, ValuesBuilder> values = new EnumMap<>(BookFacet.class);
+
+        private Builder() {
+            for (BookFacet facet : FACETS) {
+                values.put(facet, new ValuesBuilder());
+            }
+        }
+
+        public Builder addBook(long bookId, String category, String language, String publisher, String edition) {
+            if (docs > 0 && bookId <= bookIds[docs - 1]) {
+                throw new IllegalStateException("Books must be added in ascending id order");
+            }
+            if (docs == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, docs * 2);
+            }
+            int doc = docs++;
+            bookIds[doc] = bookId;
+            values.get(BookFacet.CATEGORY).add(doc, valueOf(category));
+            values.get(BookFacet.LANGUAGE).add(doc, valueOf(language));
+            values.get(BookFacet.PUBLISHER).add(doc, valueOf(publisher));
+            values.get(BookFacet.EDITION).add(doc, valueOf(edition));
+            return this;
+        }
+
+        public FacetIndex build() {
+            return new FacetIndex(this);
+        }
+    }
+
+    private static final class ValuesBuilder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<CompressedBitmap.Builder> books = new ArrayList<>();
+        private int[] valueOfDoc = new int[1024];   // in the order values were first seen
+
+        void add(int doc, String value) {
+            if (doc == valueOfDoc.length) {
+                valueOfDoc = Arrays.copyOf(valueOfDoc, doc * 2);
+            }
+            if (value == null) {
+                valueOfDoc[doc] = -1;
+                return;
+            }
+            int id = ids.computeIfAbsent(value, v -> {
+                books.add(CompressedBitmap.builder());
+                return books.size() - 1;
+            });
+            books.get(id).add(doc);
+            valueOfDoc[doc] = id;
+        }
+
+        Values build(int docs) {
+            String[] sorted = ids.keySet().toArray(new String[0]);
+            Arrays.sort(sorted);
+            int[] rank = new int[sorted.length];
+            CompressedBitmap[] bitmaps = new CompressedBitmap[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                int id = ids.get(sorted[i]);
+                rank[id] = i;
+                bitmaps[i] = books.get(id).build();
+            }
+            int[] byDoc = Arrays.copyOf(valueOfDoc, docs);
+            int valued = 0;
+            for (int doc = 0; doc < docs; doc++) {
+                if (byDoc[doc] >= 0) {
+                    byDoc[doc] = rank[byDoc[doc]];
+                    valued++;
+                }
+            }
+            return new Values(sorted, bitmaps, byDoc, valued);
+        }
+    }
+}
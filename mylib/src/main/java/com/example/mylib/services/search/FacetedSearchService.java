@@ -0,0 +1,16 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.dto.FacetedSearchDTO;
+import com.example.mylib.enums.BookFacet;
+
+import java.util.List;
+import java.util.Map;
+
+public interface FacetedSearchService {
+
+    /**
+     * Books matching the query (typo-tolerant, as fuzzy search; blank for the whole catalog) and,
+     * for every facet with values selected, one of them; with the count of each facet value.
+     */
+    FacetedSearchDTO search(String query, Map<BookFacet, List<String>> selected, int page, int size);
+}
@@ -0,0 +1,393 @@
+package com.example.mylib.services.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Immutable typo-tolerant index over the words of book titles and authors.
+ * <p>
+ * Every distinct word is a term with a posting list of the books containing it. A query word is
+ * first expanded to the terms within a few typos of it (see {@link #allowedEdits} and
+ * {@link SearchText#typos}), found with a BK-tree: terms hang off each other by Levenshtein
+ * distance, so by the triangle inequality only children whose edge is within the search radius of
+ * the query's distance to their parent can hold a match. The books matching every query word
+ * through one of its expansions are then ranked by total typos, then popularity.
+ * <p>
+ * Posting lists are sorted arrays of book numbers, merged and intersected with cursors, so a query
+ * costs time linear in the postings of its expansions. Stop words and numbers are not indexed.
+ * Expansion and intersection stop at a deadline, returning what they found so far, so a short or
+ * very common word cannot hold a query up.
+ */
+public final class FuzzyIndex {
+
+    // Deadline checked every this many BK-tree nodes or candidate books
+    private static final int DEADLINE_STRIDE = 64;
+
+    private final long[] bookIds;       // doc -> book id, ascending
+    private final int[] popularity;
+    private final String[] terms;       // sorted
+    private final int[][] postings;     // term -> docs, ascending
+    private final int root;
+    private final int[] firstChild;     // BK-tree over term indexes; -1 for none
+    private final int[] nextSibling;
+    private final int[] edge;           // distance from the parent
+
+    private FuzzyIndex(Builder builder) {
+        this.bookIds = Arrays.copyOf(builder.bookIds, builder.docs);
+        this.popularity = Arrays.copyOf(builder.popularity, builder.docs);
+        this.terms = builder.postings.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        this.postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            postings[i] = builder.postings.get(terms[i]).toArray();
+        }
+
+        this.firstChild = new int[terms.length];
+        this.nextSibling = new int[terms.length];
+        this.edge = new int[terms.length];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        this.root = terms.length == 0 ? -1 : 0;
+        for (int term = 1; term < terms.length; term++) {
+            insert(term);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Typos a query word may be away from a term: none below 4 letters, 1 up to 5, then 2. */
+    public static int allowedEdits(String word) {
+        return word.length() < 4 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /** The words of a query that are looked up: no numbers, and no stop words unless that is all there is. */
+    public static List<String> queryWords(String query) {
+        Set<String> words = new LinkedHashSet<>();
+        Set<String> stopWords = new LinkedHashSet<>();
+        for (String word : SearchText.words(SearchText.normalize(query))) {
+            if (!SearchText.isNumber(word)) {
+                (SearchText.isStopWord(word) ? stopWords : words).add(word);
+            }
+        }
+        return List.copyOf(words.isEmpty() ? stopWords : words);
+    }
+
+    public int size() {
+        return bookIds.length;
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Terms within {@code maxEdits} of {@code word}, closest and then most common first, at most
+     * {@code limit}. The exact term, if indexed, is always included.
+     *
+     * @param deadline {@link System#nanoTime()} at which to stop searching and return what was found
+     */
+    public Expansions expand(String word, int maxEdits, int limit, long deadline) {
+        List<Expansion> found = new ArrayList<>();
+        int exact = Arrays.binarySearch(terms, word);
+        if (exact >= 0) {
+            found.add(new Expansion(terms[exact], exact, 0));
+        }
+        boolean complete = true;
+        if (maxEdits > 0 && root >= 0) {
+            // A swap of adjacent letters is one typo but two Levenshtein edits
+            int radius = Math.min(maxEdits + 1, 2 * maxEdits);
+            Deque<Integer> nodes = new ArrayDeque<>();
+            nodes.push(root);
+            int visited = 0;
+            while (!nodes.isEmpty()) {
+                if (++visited % DEADLINE_STRIDE == 0 && System.nanoTime() - deadline > 0) {
+                    complete = false;
+                    break;
+                }
+                int node = nodes.pop();
+                int distance = SearchText.distance(word, terms[node], word.length() + terms[node].length());
+                if (distance > 0 && distance <= radius) {
+                    int typos = SearchText.typos(word, terms[node], maxEdits);
+                    if (typos <= maxEdits) {
+                        found.add(new Expansion(terms[node], node, typos));
+                    }
+                }
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    if (Math.abs(edge[child] - distance) <= radius) {
+                        nodes.push(child);
+                    }
+                }
+            }
+        }
+        found.sort(Comparator.comparingInt(Expansion::distance)
+                .thenComparing(expansion -> -postings[expansion.term].length));
+        return new Expansions(word, found.size() > limit ? List.copyOf(found.subList(0, limit)) : found, complete);
+    }
+
+    /**
+     * Books matching every expanded word through one of its expansions, fewest total edits first,
+     * then most popular, skipping books matched by {@code excludedBooks}.
+     */
+    public Matches search(List<Expansions> words, int limit, long deadline, LongPredicate excludedBooks) {
+        Candidates candidates = candidates(words, deadline);
+        boolean complete = candidates.complete;
+
+        // Worst of the best so far on top
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, Match.RANKING.reversed());
+        for (int i = 0; i < candidates.size; i++) {
+            int doc = candidates.docs[i];
+            Match worst = best.size() < limit ? null : best.peek();
+            if (worst != null && (candidates.edits[i] > worst.edits()
+                    || (candidates.edits[i] == worst.edits() && popularity[doc] <= worst.popularity()))) {
+                continue;
+            }
+            if (excludedBooks.test(bookIds[doc])) {
+                continue;
+            }
+            best.add(new Match(bookIds[doc], candidates.edits[i], popularity[doc]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(Match.RANKING);
+        return new Matches(matches, complete);
+    }
+
+    /**
+     * Every book matching all the expanded words, as docs: positions in ascending id order, the
+     * same as those of a {@link FacetIndex} built from the same books.
+     */
+    public DocMatches matchingDocs(List<Expansions> words, long deadline) {
+        Candidates candidates = candidates(words, deadline);
+        return new DocMatches(CompressedBitmap.of(candidates.docs, candidates.size), candidates.complete);
+    }
+
+    private Candidates candidates(List<Expansions> words, long deadline) {
+        boolean complete = words.stream().allMatch(Expansions::complete);
+        if (words.isEmpty() || words.stream().anyMatch(word -> word.terms().isEmpty())) {
+            Candidates none = new Candidates(0);
+            none.complete = complete;
+            return none;
+        }
+        // Smallest posting lists first: the candidates only shrink
+        List<Expansions> ordered = new ArrayList<>(words);
+        ordered.sort(Comparator.comparingLong(this::postingCount));
+
+        Candidates candidates = union(ordered.get(0), deadline);
+        for (Expansions word : ordered.subList(1, ordered.size())) {
+            candidates = intersect(candidates, word, deadline);
+        }
+        candidates.complete &= complete;
+        return candidates;
+    }
+
+    // Merge of the expansions' posting lists, each doc with its fewest edits
+    private Candidates union(Expansions word, long deadline) {
+        List<Expansion> terms = word.terms();
+        int[] cursors = new int[terms.size()];
+        Candidates union = new Candidates((int) Math.min(postingCount(word), 1024));
+        while (true) {
+            if ((union.size + 1) % (DEADLINE_STRIDE * 64) == 0 && System.nanoTime() - deadline > 0) {
+                union.complete = false;
+                return union;
+            }
+            int next = Integer.MAX_VALUE;
+            int edits = Integer.MAX_VALUE;
+            for (int t = 0; t < cursors.length; t++) {
+                int[] posting = postings[terms.get(t).term];
+                if (cursors[t] < posting.length && posting[cursors[t]] <= next) {
+                    edits = posting[cursors[t]] < next ? terms.get(t).distance : Math.min(edits, terms.get(t).distance);
+                    next = posting[cursors[t]];
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                return union;
+            }
+            for (int t = 0; t < cursors.length; t++) {
+                int[] posting = postings[terms.get(t).term];
+                if (cursors[t] < posting.length && posting[cursors[t]] == next) {
+                    cursors[t]++;
+                }
+            }
+            union.add(next, edits);
+        }
+    }
+
+    // The candidates also in one of the word's expansions, adding its fewest edits
+    private Candidates intersect(Candidates candidates, Expansions word, long deadline) {
+        List<Expansion> terms = word.terms();
+        int[] cursors = new int[terms.size()];
+        Candidates remaining = new Candidates(candidates.size);
+        remaining.complete = candidates.complete;
+        for (int i = 0; i < candidates.size; i++) {
+            if ((i + 1) % (DEADLINE_STRIDE * 64) == 0 && System.nanoTime() - deadline > 0) {
+                // Only the candidates checked so far are known to match
+                remaining.complete = false;
+                break;
+            }
+            int doc = candidates.docs[i];
+            int edits = Integer.MAX_VALUE;
+            for (int t = 0; t < cursors.length; t++) {
+                int[] posting = postings[terms.get(t).term];
+                int cursor = advance(posting, cursors[t], doc);
+                cursors[t] = cursor;
+                if (cursor < posting.length && posting[cursor] == doc) {
+                    edits = Math.min(edits, terms.get(t).distance);
+                }
+            }
+            if (edits != Integer.MAX_VALUE) {
+                remaining.add(doc, candidates.edits[i] + edits);
+            }
+        }
+        return remaining;
+    }
+
+    // First position at or after from holding a doc >= target: gallop, then binary search
+    private static int advance(int[] posting, int from, int target) {
+        int step = 1;
+        int high = from;
+        while (high < posting.length && posting[high] < target) {
+            from = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(posting, from, Math.min(high + 1, posting.length), target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private long postingCount(Expansions word) {
+        long count = 0;
+        for (Expansion expansion : word.terms()) {
+            count += postings[expansion.term].length;
+        }
+        return count;
+    }
+
+    private void insert(int term) {
+        int node = root;
+        while (true) {
+            int distance = SearchText.distance(terms[term], terms[node], terms[term].length() + terms[node].length());
+            int child = firstChild[node];
+            while (child >= 0 && edge[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child < 0) {
+                edge[term] = distance;
+                nextSibling[term] = firstChild[node];
+                firstChild[node] = term;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    public record Expansion(String text, int term, int distance) {
+    }
+
+    /** A query word and the terms it was expanded to; not complete if the deadline cut the search short. */
+    public record Expansions(String word, List<Expansion> terms, boolean complete) {
+    }
+
+    public record Match(long bookId, int edits, int popularity) {
+        public static final Comparator<Match> RANKING = Comparator.comparingInt(Match::edits)
+                .thenComparing(Comparator.comparingInt(Match::popularity).reversed())
+                .thenComparingLong(Match::bookId);
+    }
+
+    public record Matches(List<Match> matches, boolean complete) {
+    }
+
+    public record DocMatches(CompressedBitmap docs, boolean complete) {
+    }
+
+    /** Collects books in ascending id order, then builds the index. */
+    public static final class Builder {
+        private long[] bookIds = new long[1024];
+        private int[] popularity = new int[1024];
+        private int docs;
+        private final Map<String, IntList> postings = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder addBook(long bookId, String title, String author, int popularity) {
+            if (docs > 0 && bookId <= bookIds[docs - 1]) {
+                throw new IllegalStateException("Books must be added in ascending id order");
+            }
+            if (docs == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, docs * 2);
+                this.popularity = Arrays.copyOf(this.popularity, docs * 2);
+            }
+            int doc = docs++;
+            bookIds[doc] = bookId;
+            this.popularity[doc] = popularity;
+            for (String text : new String[] {title, author}) {
+                for (String word : SearchText.words(SearchText.normalize(text))) {
+                    if (!SearchText.isNumber(word) && !SearchText.isStopWord(word)) {
+                        postings.computeIfAbsent(word, w -> new IntList()).addOnce(doc);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public FuzzyIndex build() {
+            return new FuzzyIndex(this);
+        }
+    }
+
+    // Ascending docs, each with the edits it matched by so far
+    private static final class Candidates {
+        private int[] docs;
+        private int[] edits;
+        private int size;
+        private boolean complete = true;
+
+        Candidates(int capacity) {
+            this.docs = new int[Math.max(capacity, 1)];
+            this.edits = new int[docs.length];
+        }
+
+        void add(int doc, int edit) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                edits = Arrays.copyOf(edits, size * 2);
+            }
+            docs[size] = doc;
+            edits[size++] = edit;
+        }
+    }
+
+    // Ascending doc numbers; a doc is only ever added after the ones before it
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void addOnce(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.mylib.services.search;
+
+import java.util.List;
+
+public interface FuzzySearchService {
+
+    /**
+     * Ids of the books whose title or author has, for every word of the query, a word within a
+     * few typos of it; fewest typos first, then most borrowed.
+     */
+    List<Long> search(String query);
+}
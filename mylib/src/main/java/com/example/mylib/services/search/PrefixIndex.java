@@ -0,0 +1,398 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.dto.SuggestionDTO;
+import com.example.mylib.enums.SuggestionType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+/**
+ * Immutable typeahead index over book titles and authors, weighted by popularity.
+ * <p>
+ * Every title and distinct author is a document. Documents are normalized (see
+ * {@link SearchText#normalize}) and stored back to back as UTF-8 in one byte array, each ending in
+ * a NUL. A key is the offset of a word start in that array, so "lord of the rings" is found by
+ * "lord", "rings" and "the rings" without storing any suffix twice; stop words are only keys at the
+ * start of a document. Keys are sorted by the text that follows them, so the keys starting with a
+ * prefix are one contiguous range found by two binary searches.
+ * <p>
+ * A max segment tree over the sorted keys gives the heaviest key in any range in O(log n), and
+ * the top k documents are drawn from the range by repeatedly splitting it around its heaviest key,
+ * so a query costs O((k + duplicates) log n) however many keys match.
+ * <p>
+ * Titles are added in book id order, which {@link #indexOfBook} relies on.
+ */
+public final class PrefixIndex {
+
+    // Ranges split around a key that was skipped (duplicate or excluded) still count towards this
+    private static final int MAX_EXPANSIONS = 1000;
+
+    private final byte[] text;
+    private final int[] docStart;
+    private final String[] display;
+    private final long[] bookIds;       // first titleCount docs; authors follow
+    private final int[] titleAuthor;    // author doc of each title doc, -1 if none
+    private final int[] weight;
+    private final int titleCount;
+    private final int[] keys;           // offsets into text, sorted by the text that follows
+    private final int[] keyDoc;
+    private final int[] tree;           // tree[n + i] = i; tree[p] = heavier of its children
+
+    private PrefixIndex(Builder builder) {
+        this.titleCount = builder.titles;
+        int docs = builder.display.size();
+        this.display = builder.display.toArray(new String[0]);
+        this.bookIds = Arrays.copyOf(builder.bookIds, titleCount);
+        this.titleAuthor = Arrays.copyOf(builder.titleAuthor, titleCount);
+        this.weight = new int[docs];
+        for (int i = 0; i < docs; i++) {
+            weight[i] = i < titleCount ? builder.titleWeight[i] : builder.authorWeight.get(i - titleCount);
+        }
+
+        this.text = new byte[builder.textLength];
+        this.docStart = new int[docs];
+        int keyCount = 0;
+        int offset = 0;
+        for (int doc = 0; doc < docs; doc++) {
+            byte[] bytes = builder.normalized.get(doc);
+            docStart[doc] = offset;
+            System.arraycopy(bytes, 0, text, offset, bytes.length);
+            offset += bytes.length + 1;
+            keyCount += builder.keyOffsets.get(doc).length;
+        }
+        this.keys = new int[keyCount];
+        this.keyDoc = new int[keyCount];
+        int k = 0;
+        for (int doc = 0; doc < docs; doc++) {
+            for (int start : builder.keyOffsets.get(doc)) {
+                keys[k] = docStart[doc] + start;
+                keyDoc[k++] = doc;
+            }
+        }
+        sort(text, keys, keyDoc, 0, keyCount - 1, 0);
+
+        this.tree = new int[2 * keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            tree[keyCount + i] = i;
+        }
+        for (int p = keyCount - 1; p > 0; p--) {
+            tree[p] = heavier(tree[2 * p], tree[2 * p + 1]);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether {@code normalizedPrefix} starts one of the keys of {@code normalizedText}, i.e.
+     * whether the index would match the text. For documents kept outside an index.
+     */
+    public static boolean matches(String normalizedText, String normalizedPrefix) {
+        if (normalizedText.startsWith(normalizedPrefix)) {
+            return true;
+        }
+        for (int start : wordStarts(normalizedText)) {
+            if (start > 0 && normalizedText.startsWith(normalizedPrefix, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return display.length;
+    }
+
+    public int titleCount() {
+        return titleCount;
+    }
+
+    /** Document of the title of the given book, or -1 if the book is not in this index. */
+    public int indexOfBook(long bookId) {
+        int index = Arrays.binarySearch(bookIds, bookId);
+        return index < 0 ? -1 : index;
+    }
+
+    public String title(int doc) {
+        return display[doc];
+    }
+
+    public String authorOf(int doc) {
+        return titleAuthor[doc] < 0 ? null : display[titleAuthor[doc]];
+    }
+
+    /**
+     * Up to {@code limit} documents with a key starting with the normalized prefix, heaviest
+     * first, skipping titles of books matched by {@code excludedBooks}.
+     */
+    public List<SuggestionDTO> top(String normalizedPrefix, int limit, LongPredicate excludedBooks) {
+        List<SuggestionDTO> results = new ArrayList<>(limit);
+        byte[] prefix = normalizedPrefix.getBytes(StandardCharsets.UTF_8);
+        int from = bound(prefix, false);
+        int to = bound(prefix, true);
+        if (from >= to || limit <= 0) {
+            return results;
+        }
+
+        PriorityQueue<Range> ranges = new PriorityQueue<>();
+        ranges.add(range(from, to));
+        Set<Integer> seen = new HashSet<>();
+        for (int expansions = 0; !ranges.isEmpty() && results.size() < limit && expansions < MAX_EXPANSIONS;
+             expansions++) {
+            Range range = ranges.poll();
+            int doc = keyDoc[range.best];
+            if (seen.add(doc)) {
+                if (doc >= titleCount) {
+                    results.add(new SuggestionDTO(display[doc], SuggestionType.AUTHOR, null, weight[doc]));
+                } else if (!excludedBooks.test(bookIds[doc])) {
+                    results.add(new SuggestionDTO(display[doc], SuggestionType.TITLE, bookIds[doc], weight[doc]));
+                }
+            }
+            if (range.from < range.best) {
+                ranges.add(range(range.from, range.best));
+            }
+            if (range.best + 1 < range.to) {
+                ranges.add(range(range.best + 1, range.to));
+            }
+        }
+        return results;
+    }
+
+    // First key whose text is >= prefix (or, with after, > every text starting with prefix)
+    private int bound(byte[] prefix, boolean after) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(keys[mid], prefix);
+            if (cmp < 0 || (after && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Compares the text at offset with prefix over prefix.length bytes; 0 if it starts with prefix
+    private int comparePrefix(int offset, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            int c = text[offset + i] & 0xff;
+            int p = prefix[i] & 0xff;
+            if (c != p) {
+                return c - p;       // a NUL (end of document) sorts before everything
+            }
+        }
+        return 0;
+    }
+
+    private Range range(int from, int to) {
+        int best = -1;
+        int left = from + keys.length;
+        int right = to + keys.length;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                best = best < 0 ? tree[left] : heavier(best, tree[left]);
+                left++;
+            }
+            if ((right & 1) == 1) {
+                right--;
+                best = best < 0 ? tree[right] : heavier(best, tree[right]);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+        return new Range(from, to, best, weight[keyDoc[best]]);
+    }
+
+    // Heavier key; on a tie the earlier one, i.e. the alphabetically first
+    private int heavier(int a, int b) {
+        int wa = weight[keyDoc[a]];
+        int wb = weight[keyDoc[b]];
+        if (wa != wb) {
+            return wa > wb ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    // Bentley-Sedgewick multikey quicksort of NUL-terminated byte strings, on key offsets
+    private static void sort(byte[] text, int[] keys, int[] docs, int low, int high, int depth) {
+        while (high > low) {
+            if (high - low < 16) {
+                insertionSort(text, keys, docs, low, high, depth);
+                return;
+            }
+            int pivot = byteAt(text, keys[(low + high) >>> 1], depth);
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i <= gt) {
+                int c = byteAt(text, keys[i], depth);
+                if (c < pivot) {
+                    swap(keys, docs, lt++, i++);
+                } else if (c > pivot) {
+                    swap(keys, docs, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            sort(text, keys, docs, low, lt - 1, depth);
+            if (pivot > 0) {
+                sort(text, keys, docs, lt, gt, depth + 1);
+            }
+            low = gt + 1;
+        }
+    }
+
+    private static void insertionSort(byte[] text, int[] keys, int[] docs, int low, int high, int depth) {
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(text, keys[j], keys[j - 1], depth) < 0; j--) {
+                swap(keys, docs, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(byte[] text, int a, int b, int depth) {
+        for (int i = depth; ; i++) {
+            int ca = byteAt(text, a, i);
+            int cb = byteAt(text, b, i);
+            if (ca != cb || ca == 0) {
+                return ca - cb;
+            }
+        }
+    }
+
+    private static int byteAt(byte[] text, int offset, int depth) {
+        return text[offset + depth] & 0xff;
+    }
+
+    private static void swap(int[] keys, int[] docs, int i, int j) {
+        int key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int doc = docs[i];
+        docs[i] = docs[j];
+        docs[j] = doc;
+    }
+
+    // Char offsets of the words of a normalized text that are keys; the first word always is
+    private static List<Integer> wordStarts(String normalized) {
+        List<Integer> starts = new ArrayList<>();
+        int start = 0;
+        while (start < normalized.length()) {
+            int end = normalized.indexOf(' ', start);
+            if (end < 0) {
+                end = normalized.length();
+            }
+            if (start == 0 || !SearchText.isStopWord(normalized.substring(start, end))) {
+                starts.add(start);
+            }
+            start = end + 1;
+        }
+        return starts;
+    }
+
+    private record Range(int from, int to, int best, int weight) implements Comparable<Range> {
+        @Override
+        public int compareTo(Range other) {
+            return weight != other.weight ? Integer.compare(other.weight, weight) : Integer.compare(best, other.best);
+        }
+    }
+
+    /**
+     * Collects titles, in ascending book id order, then builds the index. Authors are taken from
+     * the titles, merged by normalized name, and weighted by the sum of their books' weights.
+     */
+    public static final class Builder {
+        private final List<String> display = new ArrayList<>();
+        private final List<byte[]> normalized = new ArrayList<>();
+        private final List<int[]> keyOffsets = new ArrayList<>();
+        private long[] bookIds = new long[1024];
+        private int[] titleWeight = new int[1024];
+        private int[] titleAuthor = new int[1024];
+        private int titles;
+        private int textLength;
+        private long lastBookId = Long.MIN_VALUE;
+        // Authors are numbered in order of first appearance; their docs follow the titles
+        private final Map<String, Integer> authorNumbers = new HashMap<>();
+        private final List<String> authorDisplay = new ArrayList<>();
+        private final List<Integer> authorWeight = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder addTitle(long bookId, String title, String author, int popularity) {
+            if (bookId <= lastBookId) {
+                throw new IllegalStateException("Titles must be added in ascending book id order");
+            }
+            String key = SearchText.normalize(title);
+            if (key.isEmpty()) {
+                return this;
+            }
+            lastBookId = bookId;
+            if (titles == bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, titles * 2);
+                titleWeight = Arrays.copyOf(titleWeight, titles * 2);
+                titleAuthor = Arrays.copyOf(titleAuthor, titles * 2);
+            }
+            bookIds[titles] = bookId;
+            titleWeight[titles] = popularity;
+            titleAuthor[titles] = author(author, popularity);
+            titles++;
+            addDocument(title.strip(), key);
+            return this;
+        }
+
+        public PrefixIndex build() {
+            for (int i = 0; i < authorDisplay.size(); i++) {
+                addDocument(authorDisplay.get(i), SearchText.normalize(authorDisplay.get(i)));
+            }
+            // Author numbers become doc numbers now that the number of titles is known
+            for (int i = 0; i < titles; i++) {
+                if (titleAuthor[i] >= 0) {
+                    titleAuthor[i] += titles;
+                }
+            }
+            return new PrefixIndex(this);
+        }
+
+        private int author(String author, int popularity) {
+            String key = SearchText.normalize(author);
+            if (key.isEmpty()) {
+                return -1;
+            }
+            Integer number = authorNumbers.get(key);
+            if (number == null) {
+                number = authorDisplay.size();
+                authorNumbers.put(key, number);
+                authorDisplay.add(author.strip());
+                authorWeight.add(0);
+            }
+            authorWeight.set(number, authorWeight.get(number) + popularity);
+            return number;
+        }
+
+        private void addDocument(String text, String key) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            List<Integer> starts = wordStarts(key);
+            int[] offsets = new int[starts.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                // char offsets to byte offsets
+                offsets[i] = key.substring(0, starts.get(i)).getBytes(StandardCharsets.UTF_8).length;
+            }
+            display.add(text);
+            normalized.add(bytes);
+            keyOffsets.add(offsets);
+            textLength += bytes.length + 1;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.dto.SuggestionDTO;
+
+import java.util.List;
+
+public interface SuggestionService {
+
+    /** Titles and authors with a word starting with {@code prefix}, most borrowed first. */
+    List<SuggestionDTO> suggest(String prefix, int limit);
+}
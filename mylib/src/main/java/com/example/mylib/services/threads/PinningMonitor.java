@@ -0,0 +1,12 @@
+package com.example.mylib.services.threads;
+
+import com.example.mylib.dto.PinningSiteDTO;
+
+import java.util.List;
+
+public interface PinningMonitor {
+
+    // Call sites where a virtual thread was pinned to its carrier for longer than the threshold,
+    // most frequent first
+    List<PinningSiteDTO> getPinningSites();
+}
@@ -0,0 +1,15 @@
+package com.example.mylib.services.warmup;
+
+/**
+ * A unit of startup work run by {@code ApplicationStartupListener} before the instance reports
+ * itself ready: loading caches, building in-memory indexes, exercising hot code paths.
+ * <p>
+ * Tasks run in parallel with each other, so they must not depend on one another's results. A
+ * failing task is logged and skipped; the instance still becomes ready, just colder.
+ */
+public interface WarmupTask {
+
+    String name();
+
+    void warmUp();
+}
@@ -0,0 +1,26 @@
+-- Read model for catalog cards: per book, the copies on the shelf, readers waiting, the earliest
+-- date a lent copy is due back and how often it has been borrowed. Listings read these from one
+-- row per book instead of counting book_reservation and borrow_records for every card.
+-- CatalogViewServiceImpl recomputes the rows of books whose circulation changed shortly after
+-- each change, and every row periodically. Books without a row yet (new ones) have no waitlist
+-- or loans, and their copies on the shelf are library_books.quantity.
+
+CREATE TABLE book_catalog_view (
+    book_id          bigint  NOT NULL PRIMARY KEY REFERENCES library_books (book_id) ON DELETE CASCADE,
+    available_copies integer NOT NULL,
+    waitlist_length  integer NOT NULL,
+    next_due_date    date,
+    borrow_count     bigint  NOT NULL
+);
+
+-- Backfill, the rows CatalogViewRepo computes for changed books
+INSERT INTO book_catalog_view (book_id, available_copies, waitlist_length, next_due_date, borrow_count)
+SELECT b.book_id,
+       (SELECT count(*) FROM library_book_copies c WHERE c.book_id = b.book_id AND c.status = 'AVAILABLE'),
+       (SELECT count(*) FROM book_reservation r WHERE r.book_id = b.book_id AND r.status = 'PENDING'),
+       (SELECT min(r.due_date) FROM borrow_records r
+        WHERE r.book_id = b.book_id AND r.status IN ('BORROWED', 'RETURN_PENDING')),
+       (SELECT count(*) FROM borrow_records r WHERE r.book_id = b.book_id)
+FROM library_books b;
+
+ANALYZE book_catalog_view;
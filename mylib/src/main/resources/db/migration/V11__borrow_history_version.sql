@@ -0,0 +1,7 @@
+-- A counter per user, bumped in the same transaction as any change to what the user's borrow
+-- history shows (their loans, and the titles and name in it), so /borrow/history/{userId} can
+-- answer If-None-Match from one primary-key read instead of the join. Not mapped on Users: it is
+-- only read and written with SQL (BorrowHistoryVersionRepo).
+
+-- A constant default fills existing rows without rewriting the table
+ALTER TABLE users ADD COLUMN borrows_version bigint NOT NULL DEFAULT 0;
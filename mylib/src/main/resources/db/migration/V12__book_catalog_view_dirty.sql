@@ -0,0 +1,10 @@
+-- Books whose book_catalog_view row is out of date. Loans, returns and reservations insert their
+-- book here in the transaction that changes it, so a change committed is a change marked, even if
+-- the node that made it goes down before projecting it. CatalogViewRepo.refreshDirty takes rows
+-- out (skipping rows another node has taken, or a writer still holds) and recomputes their books
+-- in one transaction, so a refresh that fails leaves them here for the next one.
+
+CREATE TABLE book_catalog_view_dirty (
+    book_id   bigint      NOT NULL PRIMARY KEY,
+    marked_at timestamptz NOT NULL DEFAULT now()
+);
@@ -0,0 +1,75 @@
+-- Schema as previously created by ddl-auto=update. Existing databases are baselined at this
+-- version (spring.flyway.baseline-on-migrate) and only pick up the migrations after it.
+
+CREATE TABLE library_books (
+    book_id          bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title            varchar(500),
+    author           varchar(1000),
+    category         varchar(255),
+    available        boolean NOT NULL,
+    publisher        varchar(500),
+    isbn             varchar(20) UNIQUE,
+    edition          integer,
+    language         varchar(100),
+    publication_date date,
+    cover_url        varchar(1000),
+    quantity         integer NOT NULL,
+    description      text,
+    page_count       integer,
+    price            varchar(100),
+    location         varchar(255),
+    version          bigint
+);
+
+CREATE TABLE users (
+    user_id               bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_email            varchar(255),
+    user_name             varchar(255),
+    password              varchar(255),
+    about                 varchar(255),
+    profile_pic           varchar(255),
+    phone_number          varchar(255),
+    enabled               boolean NOT NULL,
+    email_token           varchar(255),
+    email_verified        boolean NOT NULL,
+    phone_verified        boolean NOT NULL,
+    password_reset_token  varchar(255),
+    password_reset_expiry timestamp(6),
+    provider              varchar(255) CHECK (provider IN ('SELF', 'GOOGLE', 'GITHUB')),
+    provider_id           varchar(255)
+);
+
+CREATE TABLE users_role_list (
+    users_user_id bigint NOT NULL REFERENCES users (user_id),
+    role_list     varchar(255)
+);
+
+CREATE TABLE borrow_records (
+    borrow_record_id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id                bigint NOT NULL REFERENCES users (user_id),
+    book_id                bigint NOT NULL REFERENCES library_books (book_id),
+    issue_date             date,
+    due_date               date,
+    return_date            date,
+    fine_amount            float(53) NOT NULL,
+    fine_paid              boolean NOT NULL,
+    status                 varchar(255) CHECK (status IN ('BORROWED', 'RETURNED', 'PENDING', 'RETURN_PENDING')),
+    is_from_reservation    boolean,
+    reservation_created_at timestamp(6),
+    version                bigint
+);
+
+CREATE TABLE book_reservation (
+    reservation_id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id        bigint NOT NULL REFERENCES users (user_id),
+    book_id        bigint NOT NULL REFERENCES library_books (book_id),
+    status         varchar(20) CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELED', 'COMPLETED')),
+    reservations   integer,
+    created_at     timestamp(6)
+);
+
+CREATE TABLE health (
+    id      bigint PRIMARY KEY,
+    status  varchar(255),
+    message varchar(255)
+);
@@ -0,0 +1,30 @@
+-- Moves primary keys off IDENTITY columns onto sequences so Hibernate can batch inserts.
+-- Existing databases arrive here with IDENTITY columns created by ddl-auto or V1.
+--
+-- Sequences step by 50 to match allocationSize on the entities. With the pooled-lo optimizer
+-- each nextval() reserves [value, value + 49], so ids handed out by the application and rows
+-- inserted by hand through the column default never overlap.
+
+ALTER TABLE library_books ALTER COLUMN book_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS library_books_seq INCREMENT BY 50;
+SELECT setval('library_books_seq', (SELECT COALESCE(MAX(book_id), 0) + 1 FROM library_books), false);
+ALTER TABLE library_books ALTER COLUMN book_id SET DEFAULT nextval('library_books_seq');
+ALTER SEQUENCE library_books_seq OWNED BY library_books.book_id;
+
+ALTER TABLE users ALTER COLUMN user_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+SELECT setval('users_seq', (SELECT COALESCE(MAX(user_id), 0) + 1 FROM users), false);
+ALTER TABLE users ALTER COLUMN user_id SET DEFAULT nextval('users_seq');
+ALTER SEQUENCE users_seq OWNED BY users.user_id;
+
+ALTER TABLE borrow_records ALTER COLUMN borrow_record_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS borrow_records_seq INCREMENT BY 50;
+SELECT setval('borrow_records_seq', (SELECT COALESCE(MAX(borrow_record_id), 0) + 1 FROM borrow_records), false);
+ALTER TABLE borrow_records ALTER COLUMN borrow_record_id SET DEFAULT nextval('borrow_records_seq');
+ALTER SEQUENCE borrow_records_seq OWNED BY borrow_records.borrow_record_id;
+
+ALTER TABLE book_reservation ALTER COLUMN reservation_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS book_reservation_seq INCREMENT BY 50;
+SELECT setval('book_reservation_seq', (SELECT COALESCE(MAX(reservation_id), 0) + 1 FROM book_reservation), false);
+ALTER TABLE book_reservation ALTER COLUMN reservation_id SET DEFAULT nextval('book_reservation_seq');
+ALTER SEQUENCE book_reservation_seq OWNED BY book_reservation.reservation_id;
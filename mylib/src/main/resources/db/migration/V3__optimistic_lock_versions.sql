@@ -0,0 +1,6 @@
+-- borrow_records gained a @Version column; databases upgraded straight from an older release
+-- may not have it yet. Rows without a version are given one so Hibernate can increment it.
+
+ALTER TABLE borrow_records ADD COLUMN IF NOT EXISTS version bigint;
+UPDATE borrow_records SET version = 0 WHERE version IS NULL;
+UPDATE library_books SET version = 0 WHERE version IS NULL;
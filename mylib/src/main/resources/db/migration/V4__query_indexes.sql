@@ -0,0 +1,31 @@
+-- Indexes for the repository finders. PostgreSQL does not index foreign keys on its own, so
+-- before this every lookup by user or book scanned the whole table.
+-- CONCURRENTLY keeps the tables writable while the indexes build; Flyway runs this script
+-- outside a transaction for that reason.
+
+-- BorrowRepo.findByUserId / findByUserIdAndStatus / findByUserIdAndBookId (borrow history,
+-- active loans, eligibility check on every borrow request)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrow_records_user_status
+    ON borrow_records (user_id, status);
+
+-- BorrowRepo.findByBookId / findByBookIdAndStatusAndFromReservation (approval checks)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrow_records_book_status_reservation
+    ON borrow_records (book_id, status, is_from_reservation);
+
+-- ReservationRepo.findNextReservation: the FIFO queue only ever reads pending reservations,
+-- which are a small fraction of the table, already in created_at order
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_reservation_pending_queue
+    ON book_reservation (book_id, created_at)
+    WHERE status = 'PENDING';
+
+-- ReservationRepo.findByUserId / findByUserAndBook / findByUserAndBookAndStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_reservation_user_book
+    ON book_reservation (user_id, book_id, status);
+
+-- UserRepo.findByEmail on every login and token validation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email
+    ON users (user_email);
+
+-- Users.roleList is fetched eagerly with every user
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_role_list_user
+    ON users_role_list (users_user_id);
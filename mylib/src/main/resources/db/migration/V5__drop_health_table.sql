@@ -0,0 +1,2 @@
+-- The health controller no longer persists a status row; probes are answered from memory.
+DROP TABLE IF EXISTS health;
@@ -0,0 +1,69 @@
+-- Authors and categories as their own tables, linked many-to-many to books, so "books by this
+-- author" and category browsing are index lookups instead of case-insensitive scans of
+-- library_books. library_books.author and .category stay as the display text the API and bulk
+-- loads write; BookDimensionRepo keeps the links in step with them.
+--
+-- Several authors or categories in one field are separated by ';'. Names are matched on a key
+-- ignoring case and runs of whitespace; the first spelling seen is the one kept.
+
+CREATE FUNCTION catalog_name_key(name text) RETURNS text
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+    AS $$ SELECT lower(regexp_replace(btrim(name), '\s+', ' ', 'g')) $$;
+
+CREATE SEQUENCE library_authors_seq INCREMENT BY 50;
+CREATE TABLE library_authors (
+    author_id bigint        NOT NULL DEFAULT nextval('library_authors_seq') PRIMARY KEY,
+    name      varchar(1000) NOT NULL,
+    name_key  varchar(1000) NOT NULL,
+    CONSTRAINT uk_library_authors_name_key UNIQUE (name_key)
+);
+ALTER SEQUENCE library_authors_seq OWNED BY library_authors.author_id;
+
+CREATE SEQUENCE library_categories_seq INCREMENT BY 50;
+CREATE TABLE library_categories (
+    category_id bigint       NOT NULL DEFAULT nextval('library_categories_seq') PRIMARY KEY,
+    name        varchar(255) NOT NULL,
+    name_key    varchar(255) NOT NULL,
+    CONSTRAINT uk_library_categories_name_key UNIQUE (name_key)
+);
+ALTER SEQUENCE library_categories_seq OWNED BY library_categories.category_id;
+
+-- The primary keys serve lookups by book; the second indexes serve browsing, in book id order
+CREATE TABLE library_book_authors (
+    book_id   bigint NOT NULL REFERENCES library_books (book_id) ON DELETE CASCADE,
+    author_id bigint NOT NULL REFERENCES library_authors (author_id),
+    PRIMARY KEY (book_id, author_id)
+);
+CREATE INDEX idx_library_book_authors_author ON library_book_authors (author_id, book_id);
+
+CREATE TABLE library_book_categories (
+    book_id     bigint NOT NULL REFERENCES library_books (book_id) ON DELETE CASCADE,
+    category_id bigint NOT NULL REFERENCES library_categories (category_id),
+    PRIMARY KEY (book_id, category_id)
+);
+CREATE INDEX idx_library_book_categories_category ON library_book_categories (category_id, book_id);
+
+-- Backfill, the same statements BookDimensionRepo.link runs for changed books
+INSERT INTO library_authors (name, name_key)
+SELECT DISTINCT ON (catalog_name_key(part)) btrim(part), catalog_name_key(part)
+FROM library_books b, regexp_split_to_table(b.author, ';') AS part
+WHERE catalog_name_key(part) <> ''
+ORDER BY catalog_name_key(part), b.book_id;
+
+INSERT INTO library_book_authors (book_id, author_id)
+SELECT DISTINCT b.book_id, a.author_id
+FROM library_books b, regexp_split_to_table(b.author, ';') AS part, library_authors a
+WHERE a.name_key = catalog_name_key(part);
+
+INSERT INTO library_categories (name, name_key)
+SELECT DISTINCT ON (catalog_name_key(part)) btrim(part), catalog_name_key(part)
+FROM library_books b, regexp_split_to_table(b.category, ';') AS part
+WHERE catalog_name_key(part) <> ''
+ORDER BY catalog_name_key(part), b.book_id;
+
+INSERT INTO library_book_categories (book_id, category_id)
+SELECT DISTINCT b.book_id, c.category_id
+FROM library_books b, regexp_split_to_table(b.category, ';') AS part, library_categories c
+WHERE c.name_key = catalog_name_key(part);
+
+ANALYZE library_authors, library_categories, library_book_authors, library_book_categories;
@@ -0,0 +1,54 @@
+-- Physical copies of a title, each with its own barcode, shelf and circulation status. Borrowing
+-- and reservation allocation claim a free copy row (FOR UPDATE SKIP LOCKED) instead of
+-- decrementing library_books.quantity, which is now the cached count of AVAILABLE copies kept
+-- by InventoryServiceImpl.
+--
+-- Status: AVAILABLE on the shelf, ON_HOLD set aside for a reader whose reservation came up,
+-- ON_LOAN with a borrower, WITHDRAWN taken out of circulation (kept for the loan history).
+
+-- Barcode given to copies registered without one
+CREATE FUNCTION library_copy_barcode(copy_id bigint) RETURNS varchar
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+    AS $$ SELECT 'C' || lpad(copy_id::text, 10, '0') $$;
+
+-- Copies are added with SQL, one nextval each, so ids (and generated barcodes) step by one
+CREATE SEQUENCE library_book_copies_seq;
+CREATE TABLE library_book_copies (
+    copy_id  bigint       NOT NULL DEFAULT nextval('library_book_copies_seq') PRIMARY KEY,
+    book_id  bigint       NOT NULL REFERENCES library_books (book_id) ON DELETE CASCADE,
+    barcode  varchar(50)  NOT NULL,
+    branch   varchar(100),
+    location varchar(255),
+    status   varchar(20)  NOT NULL CHECK (status IN ('AVAILABLE', 'ON_HOLD', 'ON_LOAN', 'WITHDRAWN')),
+    CONSTRAINT uk_library_book_copies_barcode UNIQUE (barcode)
+);
+ALTER SEQUENCE library_book_copies_seq OWNED BY library_book_copies.copy_id;
+-- Claiming and counting a title's free copies, and listing its copies
+CREATE INDEX idx_library_book_copies_book_status ON library_book_copies (book_id, status);
+
+-- The copy a loan or allocated reservation holds; null for loans made before copies existed
+ALTER TABLE borrow_records
+    ADD COLUMN copy_id bigint REFERENCES library_book_copies (copy_id) ON DELETE SET NULL;
+
+-- Backfill: one copy for each borrow holding one, linked to it...
+WITH held AS (
+    SELECT r.borrow_record_id, r.book_id, b.location, nextval('library_book_copies_seq') AS copy_id,
+           CASE WHEN r.status = 'PENDING' THEN 'ON_HOLD' ELSE 'ON_LOAN' END AS status
+    FROM borrow_records r
+    JOIN library_books b ON b.book_id = r.book_id
+    WHERE r.status IN ('BORROWED', 'RETURN_PENDING') OR (r.status = 'PENDING' AND r.is_from_reservation)
+), copies AS (
+    INSERT INTO library_book_copies (copy_id, book_id, barcode, location, status)
+    SELECT copy_id, book_id, library_copy_barcode(copy_id), location, status FROM held
+)
+UPDATE borrow_records r SET copy_id = held.copy_id
+FROM held
+WHERE r.borrow_record_id = held.borrow_record_id;
+
+-- ...and quantity copies on the shelf, as BookInventoryRepo.stock does for new books
+INSERT INTO library_book_copies (copy_id, book_id, barcode, location, status)
+SELECT copy_id, book_id, library_copy_barcode(copy_id), location, 'AVAILABLE'
+FROM (SELECT nextval('library_book_copies_seq') AS copy_id, b.book_id, b.location
+      FROM library_books b, generate_series(1, b.quantity)) AS shelved;
+
+ANALYZE library_book_copies;
@@ -0,0 +1,13 @@
+-- The branch a copy is shelved at, and the branch a loan or reservation is made at. Loans claim
+-- copies, and returned copies go to reservations, within their own branch; catalog, users and
+-- search stay shared by every branch. Branches are codes (upper case); rows written before
+-- branches existed belong to MAIN, the default library.default-branch.
+
+UPDATE library_book_copies SET branch = 'MAIN' WHERE branch IS NULL;
+ALTER TABLE library_book_copies
+    ALTER COLUMN branch SET DEFAULT 'MAIN',
+    ALTER COLUMN branch SET NOT NULL;
+
+-- A constant default fills existing rows without rewriting the tables
+ALTER TABLE borrow_records ADD COLUMN branch varchar(100) NOT NULL DEFAULT 'MAIN';
+ALTER TABLE book_reservation ADD COLUMN branch varchar(100) NOT NULL DEFAULT 'MAIN';
@@ -0,0 +1,23 @@
+-- Branch-scoped versions of the circulation indexes, so a branch's queries read only its own
+-- index range. CONCURRENTLY keeps the tables writable while they build; Flyway runs this script
+-- outside a transaction for that reason.
+
+-- BookCopyRepo.lockUnclaimed / countByBookIdAndBranchAndStatus: a title's free copies at a branch
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_library_book_copies_book_branch_status
+    ON library_book_copies (book_id, branch, status);
+DROP INDEX CONCURRENTLY IF EXISTS idx_library_book_copies_book_status;
+
+-- ReservationRepo.lockNextReservations: a branch's FIFO queue for a title
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_reservation_pending_branch_queue
+    ON book_reservation (book_id, branch, created_at)
+    WHERE status = 'PENDING';
+DROP INDEX CONCURRENTLY IF EXISTS idx_book_reservation_pending_queue;
+
+-- BorrowRepo.findDtosByBranch (a branch desk's loans) and
+-- findByBookIdAndBranchAndStatusAndFromReservation (reservations waiting at the branch on approval)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_borrow_records_branch_status
+    ON borrow_records (branch, status);
+
+-- ReservationRepo.findDtosByBranch
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_reservation_branch_status
+    ON book_reservation (branch, status);
@@ -0,0 +1,100 @@
+package com.example.mylib.controllers;
+
+import jakarta.persistence.Entity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Controllers return DTOs, never JPA entities: entities drag lazy associations, password hashes and
+ * tokens into the response. Walks the declared return type of every handler method, through
+ * ResponseEntity, collections, maps, arrays and the fields of the application's own classes, and
+ * fails on any {@code @Entity} it reaches. Handlers declaring {@code ResponseEntity<?>} are only
+ * checked as far as their type says.
+ */
+class HandlerReturnTypeTest {
+
+    private static final String BASE_PACKAGE = "com.example.mylib";
+
+    @Test
+    void handlersDoNotReturnEntities() throws ClassNotFoundException {
+        List<String> leaks = new ArrayList<>();
+        List<Class<?>> controllers = controllers();
+        assertFalse(controllers.isEmpty(), "No controllers found under " + BASE_PACKAGE);
+        for (Class<?> controller : controllers) {
+            for (Method method : controller.getDeclaredMethods()) {
+                if (AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class)) {
+                    findEntity(ResolvableType.forMethodReturnType(method), new HashSet<>())
+                            .ifPresent(path -> leaks.add(controller.getSimpleName() + "." + method.getName()
+                                    + " returns " + path));
+                }
+            }
+        }
+        assertTrue(leaks.isEmpty(), "Handlers returning JPA entities; map them to DTOs:\n" + String.join("\n", leaks));
+    }
+
+    private static List<Class<?>> controllers() throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        // @RestController is meta-annotated with @Controller
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Controller.class));
+        List<Class<?>> controllers = new ArrayList<>();
+        for (BeanDefinition candidate : scanner.findCandidateComponents(BASE_PACKAGE)) {
+            controllers.add(ClassUtils.forName(candidate.getBeanClassName(), HandlerReturnTypeTest.class.getClassLoader()));
+        }
+        return controllers;
+    }
+
+    // The path from the type to the first entity in it, if there is one
+    private static Optional<String> findEntity(ResolvableType type, Set<Class<?>> visited) {
+        Class<?> raw = type.resolve();
+        if (raw == null || raw == Object.class) {
+            return Optional.empty();
+        }
+        if (raw.isAnnotationPresent(Entity.class)) {
+            return Optional.of(raw.getSimpleName());
+        }
+        if (type.isArray()) {
+            return findEntity(type.getComponentType(), visited).map(path -> path + "[]");
+        }
+        for (ResolvableType generic : type.getGenerics()) {
+            Optional<String> found = findEntity(generic, visited);
+            if (found.isPresent()) {
+                return found.map(path -> type.toString() + " > " + path);
+            }
+        }
+        if (!raw.getName().startsWith(BASE_PACKAGE) || raw.isEnum() || !visited.add(raw)) {
+            return Optional.empty();
+        }
+        for (Class<?> declaring = raw; declaring != null && declaring != Object.class;
+             declaring = declaring.getSuperclass()) {
+            for (Field field : declaring.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Optional<String> found = findEntity(ResolvableType.forField(field, type), visited);
+                if (found.isPresent()) {
+                    return found.map(path -> raw.getSimpleName() + "." + field.getName() + " > " + path);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+}
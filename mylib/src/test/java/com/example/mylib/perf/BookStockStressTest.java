@@ -0,0 +1,312 @@
+package com.example.mylib.perf;
+
+import com.example.mylib.dto.BookCopyDTO;
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.entities.Book;
+import com.example.mylib.entities.BorrowRecord;
+import com.example.mylib.entities.Users;
+import com.example.mylib.enums.BorrowStatus;
+import com.example.mylib.enums.CopyStatus;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.repository.BorrowRepo;
+import com.example.mylib.repository.UserRepo;
+import com.example.mylib.services.Reservation.ReservationService;
+import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.borrow.BorrowService;
+import com.example.mylib.services.impl.InventoryServiceImpl;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.StaleStateException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires concurrent borrow approvals, return approvals, reservations, reservation allocations and
+ * admin restocks at a handful of hot books, then checks that stock accounting still balances:
+ * for every book, copies on the shelf plus copies held by borrowers equal the copies ever stocked,
+ * each held copy belongs to exactly one borrow, and the cached quantity matches the shelf once
+ * refreshed.
+ * <p>
+ * Needs a real PostgreSQL database with the application schema and is excluded from the default
+ * build. Run with:
+ * <pre>
+ * ./mvnw test -Pstress -Dstress.db.url=jdbc:postgresql://localhost:5432/mylib_stress \
+ *   -Dstress.db.user=postgres -Dstress.db.password=postgres -Dstress.threads=32 -Dstress.operations=5000
+ * </pre>
+ * Against a database other than PostgreSQL, add {@code -Dstress.postgres=false}: the schema is then
+ * created by Hibernate instead of the migrations and cache invalidation stays local.
+ */
+@Tag("stress")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${stress.db.url:jdbc:postgresql://localhost:5432/mylib_stress}",
+        "spring.datasource.username=${stress.db.user:postgres}",
+        "spring.datasource.password=${stress.db.password:postgres}",
+        "spring.datasource.hikari.maximum-pool-size=${stress.db.pool:10}",
+        "spring.flyway.enabled=${stress.postgres:true}",
+        "cache.invalidation.enabled=${stress.postgres:true}",
+        "spring.jpa.hibernate.ddl-auto=update",
+        "cloudinary.cloud.name=stress",
+        "cloudinary.api.key=stress",
+        "cloudinary.api.secret=stress",
+        "spring.mail.host=localhost",
+        "spring.mail.username=stress",
+        "spring.mail.password=stress",
+        "spring.mail.properties.mail.smtp.from=stress@load.test",
+        "jwt.secret=stress-test-secret-key-that-is-long-enough-for-hs256",
+        "logging.file.name=target/stress.log",
+        "logging.level.com.example.mylib=WARN"
+})
+class BookStockStressTest {
+
+    private static final int HOT_BOOKS = Integer.getInteger("stress.books", 4);
+    private static final int INITIAL_COPIES = Integer.getInteger("stress.copies", 5);
+    private static final int USERS = Integer.getInteger("stress.users", 200);
+    private static final int THREADS = Integer.getInteger("stress.threads", 32);
+    private static final int OPERATIONS = Integer.getInteger("stress.operations", 4000);
+
+    @Autowired
+    private BorrowService borrowService;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private BookService bookService;
+    @Autowired
+    private BookRepo bookRepo;
+    @Autowired
+    private BorrowRepo borrowRepo;
+    @Autowired
+    private UserRepo userRepo;
+    @Autowired
+    private InventoryServiceImpl inventoryService;
+
+    private final Map<String, Outcomes> outcomes = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> restocked = new ConcurrentHashMap<>();
+    private final Queue<Long> onLoan = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void stockAccountingBalancesUnderConcurrentCirculation() throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<Long> bookIds = createHotBooks(run);
+        List<Long> userIds = createUsers(run);
+
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(OPERATIONS);
+        long started = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            workers.submit(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Long bookId = bookIds.get(random.nextInt(bookIds.size()));
+                    Long userId = userIds.get(random.nextInt(userIds.size()));
+                    int roll = random.nextInt(100);
+                    if (roll < 35) {
+                        borrow(userId, bookId);
+                    } else if (roll < 65) {
+                        giveBack();
+                    } else if (roll < 80) {
+                        attempt("reserve", () -> reservationService.createReservation(userId, bookId, null));
+                    } else if (roll < 90) {
+                        approveAllocation(bookId);
+                    } else {
+                        restock(bookId);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.MINUTES), "stress run did not finish in time");
+        double elapsed = (System.nanoTime() - started) / 1e9;
+        workers.shutdown();
+
+        report(elapsed);
+        for (Long bookId : bookIds) {
+            assertStockBalances(bookId);
+        }
+    }
+
+    private void borrow(Long userId, Long bookId) {
+        BorrowRecord request = attempt("request", () -> borrowService.requestBorrow(userId, bookId, null));
+        if (request != null) {
+            BorrowRecord approved = attempt("approve", () -> borrowService.approveBorrowRequest(request.getId()));
+            if (approved != null) {
+                onLoan.add(approved.getId());
+            } else {
+                attempt("cancel", () -> {
+                    borrowService.cancelBorrowRequest(request.getId());
+                    return Boolean.TRUE;
+                });
+            }
+        }
+    }
+
+    private void giveBack() {
+        Long recordId = onLoan.poll();
+        if (recordId == null) {
+            return;
+        }
+        BorrowStatus status = borrowRepo.findById(recordId).map(BorrowRecord::getStatus).orElse(null);
+        if (status == BorrowStatus.BORROWED) {
+            attempt("return-request", () -> {
+                borrowService.requestReturn(recordId);
+                return Boolean.TRUE;
+            });
+        }
+        Boolean returned = attempt("return-approve", () -> {
+            borrowService.approveReturnRequest(recordId);
+            return Boolean.TRUE;
+        });
+        if (returned == null) {
+            onLoan.add(recordId);
+        }
+    }
+
+    // Approves the oldest copy allocated to a waiting reader by assignBookToNextUser.
+    private void approveAllocation(Long bookId) {
+        List<BorrowRecord> allocated = borrowRepo.findByBookIdAndStatusAndFromReservation(
+                bookId, BorrowStatus.PENDING, Boolean.TRUE);
+        if (allocated.isEmpty()) {
+            return;
+        }
+        Long recordId = allocated.get(0).getId();
+        BorrowRecord approved = attempt("approve-reserved", () -> borrowService.approveBorrowRequest(recordId));
+        if (approved != null) {
+            onLoan.add(approved.getId());
+        }
+    }
+
+    private void restock(Long bookId) {
+        BookDTO current = bookService.getBookDtoById(bookId);
+        current.setQuantity(current.getQuantity() + 1);
+        current.setAvailable(true);
+        if (attempt("admin-restock", () -> bookService.updateBookById(bookId, current)) != null) {
+            restocked.computeIfAbsent(bookId, id -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    private <T> T attempt(String operation, Operation<T> action) {
+        Outcomes counters = outcomes.computeIfAbsent(operation, name -> new Outcomes());
+        try {
+            T result = action.run();
+            counters.succeeded.increment();
+            return result;
+        } catch (RuntimeException e) {
+            if (isOptimisticLockFailure(e)) {
+                counters.aborted.increment();
+            } else {
+                counters.rejected.increment();
+            }
+            return null;
+        }
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof StaleStateException) {
+                return true;
+            }
+            if (cause.getMessage() != null && cause.getMessage().contains("borrowed by someone else")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertStockBalances(Long bookId) {
+        inventoryService.refreshAvailability();
+        Book book = bookRepo.findById(bookId).orElseThrow();
+        List<BorrowRecord> holding = borrowRepo.findByBookId(bookId).stream()
+                .filter(record -> record.getStatus() == BorrowStatus.BORROWED
+                        || record.getStatus() == BorrowStatus.RETURN_PENDING
+                        || (record.getStatus() == BorrowStatus.PENDING && record.isFromReservation()))
+                .toList();
+        long held = holding.size();
+        long heldCopies = holding.stream().map(record -> record.getCopy().getId()).distinct().count();
+        Map<CopyStatus, Long> copies = inventoryService.getCopies(bookId).stream()
+                .collect(Collectors.groupingBy(BookCopyDTO::getStatus, Collectors.counting()));
+        long shelved = copies.getOrDefault(CopyStatus.AVAILABLE, 0L);
+        long out = copies.getOrDefault(CopyStatus.ON_LOAN, 0L) + copies.getOrDefault(CopyStatus.ON_HOLD, 0L);
+        int total = INITIAL_COPIES + restocked.getOrDefault(bookId, new AtomicInteger()).get();
+        System.out.printf("[stress] book %d: available=%d shelved=%d held=%d stocked=%d%n",
+                bookId, book.getQuantity(), shelved, held, total);
+        assertEquals(total, shelved + held, "issued + available != stocked for book " + bookId);
+        assertEquals(held, out, "copies out != borrows holding one for book " + bookId);
+        assertEquals(held, heldCopies, "a copy is held by two borrows of book " + bookId);
+        assertEquals(shelved, book.getQuantity(), "cached quantity != copies on the shelf for book " + bookId);
+    }
+
+    private void report(double elapsedSeconds) {
+        long attempts = 0;
+        System.out.printf("[stress] %d operations on %d threads in %.2f s%n", OPERATIONS, THREADS, elapsedSeconds);
+        System.out.printf("%-18s %9s %9s %9s %9s %9s%n", "operation", "ok", "aborted", "rejected", "abort %", "ok/s");
+        for (Map.Entry<String, Outcomes> entry : outcomes.entrySet()) {
+            Outcomes o = entry.getValue();
+            long total = o.succeeded.sum() + o.aborted.sum() + o.rejected.sum();
+            attempts += total;
+            System.out.printf("%-18s %9d %9d %9d %8.1f%% %9.1f%n", entry.getKey(), o.succeeded.sum(),
+                    o.aborted.sum(), o.rejected.sum(), total == 0 ? 0 : 100.0 * o.aborted.sum() / total,
+                    o.succeeded.sum() / elapsedSeconds);
+        }
+        System.out.printf("[stress] %.1f service calls/s%n", attempts / elapsedSeconds);
+    }
+
+    private List<Long> createHotBooks(String run) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < HOT_BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("Stress title " + run + "-" + i);
+            book.setAuthor("Stress Author");
+            book.setCategory("Stress");
+            book.setIsbn("S" + run + "-" + i);
+            book.setQuantity(INITIAL_COPIES);
+            book.setAvailable(true);
+            ids.add(bookService.saveBook(book).getId());
+        }
+        return ids;
+    }
+
+    private List<Long> createUsers(String run) {
+        List<Users> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            Users user = new Users();
+            user.setEmail("stress-" + run + "-" + i + "@load.test");
+            user.setName("Stress User " + i);
+            user.setRoleList(new ArrayList<>(List.of("ROLE_STUDENT")));
+            users.add(user);
+        }
+        return userRepo.saveAll(users).stream().map(Users::getId).toList();
+    }
+
+    @FunctionalInterface
+    private interface Operation<T> {
+        T run();
+    }
+
+    private static final class Outcomes {
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder aborted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+    }
+}
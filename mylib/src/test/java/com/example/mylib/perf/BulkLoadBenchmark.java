@@ -0,0 +1,139 @@
+package com.example.mylib.perf;
+
+import com.example.mylib.Application;
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.dto.BookImportReportDTO;
+import com.example.mylib.enums.BookFeedFormat;
+import com.example.mylib.enums.BookImportMode;
+import com.example.mylib.services.books.BookService;
+import com.example.mylib.services.ingest.BookImportService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Loads the same number of new books through each catalog write path and prints rows/sec:
+ * {@code BookService.saveBookDtos} (JPA {@code saveAll}, with the production JDBC batch settings),
+ * the import endpoint's INSERT mode (JDBC batches) and UPSERT mode (COPY + merge), then UPSERT
+ * again over the same ISBNs with changed titles, which exercises the update side of the merge.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.BulkLoadBenchmark \
+ *   -Dexec.args="--jdbc-url=jdbc:postgresql://localhost:5432/mylib --jdbc-user=postgres --jdbc-password=postgres
+ *                --books=200000"
+ * </pre>
+ * Every run adds {@code 3 x books} rows with ISBNs from {@code --first-ordinal} up, so point it at
+ * a throwaway database (e.g. one seeded by {@link SyntheticDataSeeder}) and move the ordinal
+ * between runs.
+ */
+public class BulkLoadBenchmark {
+
+    public static void main(String[] argv) throws Exception {
+        PerfArgs args = new PerfArgs(argv);
+        // DevTools would otherwise relaunch main() with the application arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int books = args.getInt("books", 100_000);
+        long firstOrdinal = args.getLong("first-ordinal", 500_000_000L);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + args.require("jdbc-url"),
+                "--spring.datasource.username=" + args.get("jdbc-user", "postgres"),
+                "--spring.datasource.password=" + args.get("jdbc-password", ""),
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=25",
+                "--spring.jpa.properties.hibernate.order_inserts=true",
+                "--cache.invalidation.enabled=false",
+                "--startup.warmup.enabled=false",
+                "--logging.level.com.example.mylib=WARN");
+        try {
+            BookService bookService = context.getBean(BookService.class);
+            BookImportService importService = context.getBean(BookImportService.class);
+
+            List<BookDTO> dtos = generate(books, firstOrdinal, "");
+            long started = System.nanoTime();
+            bookService.saveBookDtos(dtos);
+            report("saveBookDtos", books, System.nanoTime() - started);
+            dtos = null;
+
+            Path insertFeed = feed(books, firstOrdinal + books, "");
+            Path upsertFeed = feed(books, firstOrdinal + 2L * books, "");
+            Path updateFeed = feed(books, firstOrdinal + 2L * books, " (revised)");
+            try {
+                run(importService, insertFeed, BookImportMode.INSERT, "import INSERT");
+                run(importService, upsertFeed, BookImportMode.UPSERT, "import UPSERT (new)");
+                run(importService, updateFeed, BookImportMode.UPSERT, "import UPSERT (update)");
+            } finally {
+                Files.deleteIfExists(insertFeed);
+                Files.deleteIfExists(upsertFeed);
+                Files.deleteIfExists(updateFeed);
+            }
+        } finally {
+            context.close();
+        }
+        System.exit(0);
+    }
+
+    private static void run(BookImportService importService, Path feed, BookImportMode mode, String label)
+            throws IOException {
+        try (InputStream in = Files.newInputStream(feed)) {
+            long started = System.nanoTime();
+            BookImportReportDTO report = importService.importBooks(in, BookFeedFormat.CSV, mode);
+            report(label, report.getRecordsRead(), System.nanoTime() - started);
+            log("  inserted=%d updated=%d unchanged=%d duplicates=%d rejected=%d%s", report.getInserted(),
+                    report.getUpdated(), report.getUnchanged(), report.getDuplicates(), report.getRejected(),
+                    report.getAborted() == null ? "" : " aborted: " + report.getAborted());
+        }
+    }
+
+    private static List<BookDTO> generate(int count, long firstOrdinal, String titleSuffix) {
+        SplittableRandom random = new SplittableRandom(firstOrdinal);
+        List<BookDTO> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BookDTO book = new BookDTO();
+            book.setTitle(SyntheticVocabulary.title(random, firstOrdinal + i) + titleSuffix);
+            book.setAuthor(SyntheticVocabulary.author(random.nextInt(50_000)));
+            book.setCategory(SyntheticVocabulary.pick(SyntheticVocabulary.CATEGORIES, random));
+            book.setPublisher(SyntheticVocabulary.pick(SyntheticVocabulary.PUBLISHERS, random));
+            book.setLanguage(SyntheticVocabulary.pick(SyntheticVocabulary.LANGUAGES, random));
+            book.setIsbn(SyntheticVocabulary.isbn(firstOrdinal + i));
+            book.setEdition(Year.of(1950 + random.nextInt(75)));
+            book.setPageCount(80 + random.nextInt(900));
+            book.setQuantity(1 + random.nextInt(5));
+            book.setAvailable(true);
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static Path feed(int count, long firstOrdinal, String titleSuffix) throws IOException {
+        Path file = Files.createTempFile("bulk-load-", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("title,author,category,publisher,language,isbn,edition,pageCount,quantity\n");
+            for (BookDTO book : generate(count, firstOrdinal, titleSuffix)) {
+                writer.write(String.join(",", book.getTitle(), book.getAuthor(), book.getCategory(),
+                        book.getPublisher(), book.getLanguage(), book.getIsbn(), book.getEdition().toString(),
+                        book.getPageCount().toString(), Integer.toString(book.getQuantity())));
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static void report(String label, long rows, long nanos) {
+        log("%-24s %,10d rows in %,8d ms = %,10.0f rows/s", label, rows, nanos / 1_000_000, rows * 1e9 / nanos);
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[bulk] " + format + "%n", args);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.mylib.perf;
+
+import com.example.mylib.enums.BookFacet;
+import com.example.mylib.services.search.CompressedBitmap;
+import com.example.mylib.services.search.FacetIndex;
+import com.example.mylib.services.search.FuzzyIndex;
+import com.example.mylib.services.search.PrefixIndex;
+import com.example.mylib.services.search.SearchText;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the in-memory catalog indexes over a synthetic catalog, with Zipf-distributed
+ * popularity, and reports build times and per-query latency of {@code /book/suggest} (prefixes of
+ * one to six characters of indexed titles and authors) and of fuzzy search (author names and
+ * titles with a typo: a dropped, doubled or transposed letter) and of faceted search (counts of
+ * every facet with one or two values selected in some, with and without a query word, which makes
+ * five groups). No database or Spring context.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.CatalogSearchBenchmark -Dexec.args="--books=1000000"
+ * </pre>
+ */
+public class CatalogSearchBenchmark {
+
+    public static void main(String[] argv) {
+        PerfArgs args = new PerfArgs(argv);
+        int books = args.getInt("books", 1_000_000);
+        int authors = args.getInt("authors", 50_000);
+        int queries = args.getInt("queries", 200_000);
+        int limit = args.getInt("limit", 10);
+        long budgetNanos = args.getDuration("fuzzy-budget", Duration.ofMillis(20)).toNanos();
+
+        SplittableRandom random = new SplittableRandom(42);
+        ZipfDistribution popularity = new ZipfDistribution(books, 1.0);
+        int[] borrows = new int[books];
+        for (int i = 0; i < books * 5; i++) {
+            borrows[popularity.sample(random)]++;
+        }
+        List<String> titles = new ArrayList<>(books);
+        List<String> bookAuthors = new ArrayList<>(books);
+        String[][] facetValues = new String[books][];
+        for (int i = 0; i < books; i++) {
+            titles.add(SyntheticVocabulary.title(random, i + 1));
+            bookAuthors.add(SyntheticVocabulary.author(random.nextInt(authors)));
+            facetValues[i] = new String[] {SyntheticVocabulary.pick(SyntheticVocabulary.CATEGORIES, random),
+                    SyntheticVocabulary.pick(SyntheticVocabulary.LANGUAGES, random),
+                    SyntheticVocabulary.pick(SyntheticVocabulary.PUBLISHERS, random),
+                    String.valueOf(1950 + random.nextInt(75))};
+        }
+
+        long started = System.nanoTime();
+        PrefixIndex.Builder prefixBuilder = PrefixIndex.builder();
+        for (int i = 0; i < books; i++) {
+            prefixBuilder.addTitle(i + 1, titles.get(i), bookAuthors.get(i), borrows[i]);
+        }
+        PrefixIndex prefixIndex = prefixBuilder.build();
+        log("prefix index: %,d titles + %,d authors in %,d ms", prefixIndex.titleCount(),
+                prefixIndex.size() - prefixIndex.titleCount(), (System.nanoTime() - started) / 1_000_000);
+
+        started = System.nanoTime();
+        FuzzyIndex.Builder fuzzyBuilder = FuzzyIndex.builder();
+        for (int i = 0; i < books; i++) {
+            fuzzyBuilder.addBook(i + 1, titles.get(i), bookAuthors.get(i), borrows[i]);
+        }
+        FuzzyIndex fuzzyIndex = fuzzyBuilder.build();
+        log("fuzzy index: %,d books, %,d words in %,d ms", fuzzyIndex.size(), fuzzyIndex.termCount(),
+                (System.nanoTime() - started) / 1_000_000);
+
+        started = System.nanoTime();
+        FacetIndex.Builder facetBuilder = FacetIndex.builder();
+        for (int i = 0; i < books; i++) {
+            String[] values = facetValues[i];
+            facetBuilder.addBook(i + 1, values[0], values[1], values[2], values[3]);
+        }
+        FacetIndex facetIndex = facetBuilder.build();
+        log("facet index: %,d KB of bitmaps in %,d ms", facetIndex.bitmapBytes() / 1024,
+                (System.nanoTime() - started) / 1_000_000);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < books; i += 100) {
+            texts.add(SearchText.normalize(i % 200 == 0 ? titles.get(i) : bookAuthors.get(i)));
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass warms up the JIT
+            LatencyRecorder recorder = new LatencyRecorder();
+            long passStarted = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                String text = texts.get(random.nextInt(texts.size()));
+                int length = Math.min(text.length(), 1 + i % 6);
+                String prefix = text.substring(0, length);
+                long queryStarted = System.nanoTime();
+                int found = prefixIndex.top(prefix, limit, bookId -> false).size();
+                recorder.record("suggest len " + length, System.nanoTime() - queryStarted, found > 0);
+
+                String query = typo(bookAuthors.get(random.nextInt(books)), random);
+                queryStarted = System.nanoTime();
+                found = fuzzy(fuzzyIndex, query, queryStarted + budgetNanos).size();
+                recorder.record("fuzzy author", System.nanoTime() - queryStarted, found > 0);
+
+                // "The Kingdom of War 17" without the ordinal, which is not indexed
+                query = typo(titles.get(random.nextInt(books)).replaceAll("\\s*\\d+$", ""), random);
+                queryStarted = System.nanoTime();
+                found = fuzzy(fuzzyIndex, query, queryStarted + budgetNanos).size();
+                recorder.record("fuzzy title", System.nanoTime() - queryStarted, found > 0);
+
+                Map<BookFacet, List<String>> selected = selection(facetValues[random.nextInt(books)], random);
+                queryStarted = System.nanoTime();
+                found = facetIndex.count(null, new int[0], selected).matches().cardinality();
+                recorder.record("facets", System.nanoTime() - queryStarted, found > 0);
+
+                String word = SyntheticVocabulary.pick(SyntheticVocabulary.TITLE_WORDS, random);
+                queryStarted = System.nanoTime();
+                found = facets(fuzzyIndex, facetIndex, word, selected, queryStarted + budgetNanos);
+                recorder.record("facets + query", System.nanoTime() - queryStarted, found > 0);
+            }
+            if (pass == 1) {
+                recorder.report((System.nanoTime() - passStarted) / 1e9);
+            }
+        }
+    }
+
+    // What FuzzySearchServiceImpl does, without the overlay of changed books
+    private static List<FuzzyIndex.Match> fuzzy(FuzzyIndex index, String query, long deadline) {
+        List<FuzzyIndex.Expansions> expanded = new ArrayList<>();
+        for (String word : FuzzyIndex.queryWords(query)) {
+            expanded.add(index.expand(word, FuzzyIndex.allowedEdits(word), 20, deadline));
+        }
+        return index.search(expanded, 100, deadline, bookId -> false).matches();
+    }
+
+    // What FacetedSearchServiceImpl does, without the overlay and reading the page of books
+    private static int facets(FuzzyIndex fuzzyIndex, FacetIndex facetIndex, String word,
+                              Map<BookFacet, List<String>> selected, long deadline) {
+        FuzzyIndex.Expansions expanded = fuzzyIndex.expand(word, FuzzyIndex.allowedEdits(word), 20, deadline);
+        CompressedBitmap docs = fuzzyIndex.matchingDocs(List.of(expanded), deadline).docs();
+        FacetIndex.Counts counts = facetIndex.count(docs, new int[0], selected);
+        counts.matches().first(20);
+        return counts.matches().cardinality();
+    }
+
+    // Each facet filtered half the time, on the given book's value and sometimes one more
+    private static Map<BookFacet, List<String>> selection(String[] values, SplittableRandom random) {
+        Map<BookFacet, List<String>> selected = new EnumMap<>(BookFacet.class);
+        String[] others = {SyntheticVocabulary.pick(SyntheticVocabulary.CATEGORIES, random),
+                SyntheticVocabulary.pick(SyntheticVocabulary.LANGUAGES, random),
+                SyntheticVocabulary.pick(SyntheticVocabulary.PUBLISHERS, random),
+                String.valueOf(1950 + random.nextInt(75))};
+        for (BookFacet facet : BookFacet.values()) {
+            if (random.nextBoolean()) {
+                int i = facet.ordinal();
+                selected.put(facet, random.nextBoolean() ? List.of(values[i]) : List.of(values[i], others[i]));
+            }
+        }
+        return selected;
+    }
+
+    // One typo in the longest word
+    private static String typo(String text, SplittableRandom random) {
+        String[] words = text.split(" ");
+        int longest = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[longest].length()) {
+                longest = i;
+            }
+        }
+        String word = words[longest];
+        if (word.length() > 3) {
+            int at = 1 + random.nextInt(word.length() - 2);
+            word = switch (random.nextInt(3)) {
+                case 0 -> word.substring(0, at) + word.substring(at + 1);
+                case 1 -> word.substring(0, at) + word.charAt(at) + word.substring(at);
+                default -> word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+            };
+        }
+        words[longest] = word;
+        return String.join(" ", words);
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[search] " + format + "%n", args);
+    }
+}
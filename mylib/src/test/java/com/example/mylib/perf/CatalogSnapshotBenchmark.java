@@ -0,0 +1,129 @@
+package com.example.mylib.perf;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.services.books.BookSnapshot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the in-memory book snapshot over a synthetic catalog shaped like the one
+ * {@link SyntheticDataSeeder} writes and reports its heap footprint per million books, both as the
+ * snapshot estimates it and as measured (heap in use after a GC, before and after the build), then
+ * the latency of {@code /book/{id}} lookups, {@code /book/search} scans, materializing
+ * {@code /book/all-books}, and publishing a copy with a batch of changed books. No database or
+ * Spring context; run with a heap large enough for the catalog, e.g. {@code -Xmx2g}.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.CatalogSnapshotBenchmark -Dexec.args="--books=1000000"
+ * </pre>
+ */
+public class CatalogSnapshotBenchmark {
+
+    private static final LocalDate EPOCH = LocalDate.of(1950, 1, 1);
+
+    public static void main(String[] argv) {
+        PerfArgs args = new PerfArgs(argv);
+        int books = args.getInt("books", 1_000_000);
+        int lookups = args.getInt("lookups", 1_000_000);
+        int searches = args.getInt("searches", 20);
+        int batch = args.getInt("batch", 100);
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long before = usedAfterGc(memory);
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(42);
+        int authorPool = Math.max(1, books / 20);
+        ZipfDistribution authors = new ZipfDistribution(authorPool, 0.9);
+        BookSnapshot.Builder builder = BookSnapshot.builder();
+        for (int bookId = 1; bookId <= books; bookId++) {
+            builder.add(book(bookId, random, authors));
+        }
+        BookSnapshot snapshot = builder.build();
+        long buildMillis = (System.nanoTime() - started) / 1_000_000;
+        long measured = usedAfterGc(memory) - before;
+        log("built %,d books in %,d ms", snapshot.size(), buildMillis);
+        log("heap: %,d MB estimated, %,d MB measured; per million books %,d MB estimated, %,d MB measured",
+                snapshot.heapBytes() >> 20, measured >> 20, perMillion(snapshot.heapBytes(), books) >> 20,
+                perMillion(measured, books) >> 20);
+
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass warms up the JIT
+            LatencyRecorder recorder = new LatencyRecorder();
+            long passStarted = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                long bookId = 1 + random.nextInt(books);
+                long lookupStarted = System.nanoTime();
+                boolean found = snapshot.find(bookId).isPresent();
+                recorder.record("find", System.nanoTime() - lookupStarted, found);
+            }
+            for (int i = 0; i < searches; i++) {
+                String word = SyntheticVocabulary.pick(SyntheticVocabulary.TITLE_WORDS, random);
+                long searchStarted = System.nanoTime();
+                boolean found = !snapshot.search(word).isEmpty();
+                recorder.record("search", System.nanoTime() - searchStarted, found);
+            }
+            for (int i = 0; i < 3; i++) {
+                long allStarted = System.nanoTime();
+                boolean found = snapshot.all().size() == books;
+                recorder.record("all", System.nanoTime() - allStarted, found);
+            }
+            for (int i = 0; i < 5; i++) {
+                List<BookDTO> changed = new ArrayList<>(batch);
+                for (int j = 0; j < batch; j++) {
+                    BookDTO book = snapshot.get(random.nextInt(snapshot.size()));
+                    book.setQuantity(book.getQuantity() + 1);
+                    book.setVersion(book.getVersion() + 1);
+                    changed.add(book);
+                }
+                long withStarted = System.nanoTime();
+                snapshot = snapshot.with(changed, List.of());
+                recorder.record("with " + batch + " changed", System.nanoTime() - withStarted, true);
+            }
+            if (pass == 1) {
+                recorder.report((System.nanoTime() - passStarted) / 1e9);
+            }
+        }
+    }
+
+    // The fields SyntheticDataSeeder gives a book
+    private static BookDTO book(int bookId, SplittableRandom random, ZipfDistribution authors) {
+        LocalDate published = EPOCH.plusDays(random.nextInt(365 * 74));
+        return new BookDTO((long) bookId,
+                SyntheticVocabulary.title(random, bookId),
+                SyntheticVocabulary.author(authors.sample(random) - 1),
+                SyntheticVocabulary.pick(SyntheticVocabulary.CATEGORIES, random),
+                true,
+                SyntheticVocabulary.pick(SyntheticVocabulary.PUBLISHERS, random),
+                SyntheticVocabulary.isbn(bookId),
+                Year.of(published.getYear()),
+                SyntheticVocabulary.pick(SyntheticVocabulary.LANGUAGES, random),
+                published,
+                1 + random.nextInt(5),
+                null,
+                80 + random.nextInt(900),
+                String.valueOf(99 + random.nextInt(900)),
+                "Shelf " + (char) ('A' + random.nextInt(26)) + "-" + random.nextInt(100),
+                0L);
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long perMillion(long bytes, int books) {
+        return books == 0 ? 0 : bytes * 1_000_000 / books;
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[snapshot] " + format + "%n", args);
+    }
+}
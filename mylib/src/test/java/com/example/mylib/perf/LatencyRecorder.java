@@ -0,0 +1,65 @@
+package com.example.mylib.perf;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects raw per-endpoint latencies and prints p50/p90/p99 and throughput.
+ * Samples are kept in full; at load-test volumes (a few million requests) that is cheaper
+ * and more accurate than bucketing.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+    public void record(String endpoint, long nanos, boolean success) {
+        series.computeIfAbsent(endpoint, name -> new Series()).add(nanos, success);
+    }
+
+    public void report(double elapsedSeconds) {
+        System.out.printf("%-18s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        series.forEach((endpoint, data) -> {
+            long[] samples = data.snapshot();
+            Arrays.sort(samples);
+            System.out.printf("%-18s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint, samples.length, data.errors(), samples.length / elapsedSeconds,
+                    percentile(samples, 50), percentile(samples, 90), percentile(samples, 99),
+                    samples.length == 0 ? 0 : samples[samples.length - 1] / 1e6);
+        });
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static final class Series {
+
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+
+        synchronized void add(long nanos, boolean success) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(samples, size);
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.mylib.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load driver replaying a realistic request mix against a running instance
+ * seeded by {@link SyntheticDataSeeder}. Reports p50/p90/p99 latency and throughput per endpoint.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.LoadDriver \
+ *   -Dexec.args="--base-url=http://localhost:8080 --concurrency=64 --duration=120s --warmup=20s
+ *                --books=1000000 --users=200000 --jdbc-url=jdbc:postgresql://localhost:5432/mylib"
+ * </pre>
+ * The mix is given as {@code --mix=search:55,history:30,request:10,approve:5}. Approvals need
+ * {@code --jdbc-url} to discover pending borrow requests; without it they are skipped.
+ */
+public class LoadDriver {
+
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+    private final String baseUrl;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final ZipfDistribution bookPopularity;
+    private final int bookCount;
+    private final List<Session> students = new ArrayList<>();
+    private final Queue<Long> pendingBorrowIds = new ConcurrentLinkedQueue<>();
+    private final Map<String, Integer> mix;
+    private final int mixTotal;
+    private Session admin;
+    private volatile boolean recording;
+
+    public LoadDriver(PerfArgs args) {
+        this.baseUrl = args.get("base-url", "http://localhost:8080");
+        this.bookCount = args.getInt("books", 1_000_000);
+        this.bookPopularity = new ZipfDistribution(bookCount, args.getDouble("book-skew", 1.07));
+        this.mix = parseMix(args.get("mix", "search:55,history:30,request:10,approve:5"));
+        this.mixTotal = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(4))
+                .build();
+    }
+
+    public static void main(String[] argv) throws Exception {
+        PerfArgs args = new PerfArgs(argv);
+        LoadDriver driver = new LoadDriver(args);
+        driver.login(args.getInt("sessions", 32), args.getInt("users", 200_000),
+                args.get("password", SyntheticDataSeeder.DEFAULT_PASSWORD));
+        String jdbcUrl = args.get("jdbc-url", null);
+        if (jdbcUrl != null) {
+            driver.loadPendingBorrows(jdbcUrl, args.get("jdbc-user", "postgres"), args.get("jdbc-password", ""));
+        }
+        driver.run(args.getInt("concurrency", 64), args.getDuration("warmup", Duration.ofSeconds(15)),
+                args.getDuration("duration", Duration.ofSeconds(60)));
+        System.exit(0);
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            weights.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+
+    // Logs in a sample of seeded students (spread over the id range) plus the seeded admin.
+    void login(int sessions, int userCount, String password) throws Exception {
+        admin = authenticate(SyntheticDataSeeder.ADMIN_EMAIL, password);
+        for (int i = 0; i < sessions; i++) {
+            long userId = 2 + (long) i * Math.max(1, (userCount - 1) / sessions);
+            students.add(authenticate("user" + userId + "@load.test", password));
+        }
+        log("Authenticated %d student sessions and 1 admin session", students.size());
+    }
+
+    private Session authenticate(String email, String password) throws Exception {
+        String body = json.writeValueAsString(Map.of("email", email, "password", password));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/users/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed for " + email + ": " + response.body());
+        }
+        JsonNode node = json.readTree(response.body());
+        return new Session(node.get("userId").asLong(), node.get("token").asText());
+    }
+
+    void loadPendingBorrows(String url, String user, String password) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT borrow_record_id FROM borrow_records WHERE status = 'PENDING' LIMIT 200000")) {
+            while (rs.next()) {
+                pendingBorrowIds.add(rs.getLong(1));
+            }
+        }
+        log("Loaded %,d pending borrow requests for approval", pendingBorrowIds.size());
+    }
+
+    void run(int concurrency, Duration warmup, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    issueOne();
+                }
+            });
+        }
+        log("Warming up for %s with %d workers", warmup, concurrency);
+        Thread.sleep(warmup.toMillis());
+        recording = true;
+        long started = System.nanoTime();
+        log("Measuring for %s", duration);
+        workers.shutdown();
+        workers.awaitTermination(duration.toMillis() + 30_000, TimeUnit.MILLISECONDS);
+        recorder.report((System.nanoTime() - started) / 1e9);
+    }
+
+    private void issueOne() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Session student = students.get(random.nextInt(students.size()));
+        String operation = pickOperation(random.nextInt(mixTotal));
+        HttpRequest request = switch (operation) {
+            case "search" -> get(student, "/book/search?query="
+                    + URLEncoder.encode(SyntheticVocabulary.pick(SyntheticVocabulary.TITLE_WORDS, random),
+                    StandardCharsets.UTF_8));
+            case "history" -> get(student, "/borrow/history/" + student.userId());
+            case "request" -> send(student, "POST", "/borrow/request/" + student.userId() + "/"
+                    + SyntheticDataSeeder.scramble(bookPopularity.sample(random), bookCount));
+            case "approve" -> {
+                Long borrowId = pendingBorrowIds.poll();
+                yield borrowId == null ? null : send(admin, "PUT", "/borrow/admin/approve/" + borrowId);
+            }
+            default -> throw new IllegalArgumentException("Unknown operation in mix: " + operation);
+        };
+        if (request == null) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            // Business rejections (out of stock, duplicate request) are valid outcomes under load.
+            success = response.statusCode() < 500 || operation.equals("request");
+        } catch (Exception e) {
+            success = false;
+        }
+        if (recording) {
+            recorder.record(operation, System.nanoTime() - started, success);
+        }
+    }
+
+    private String pickOperation(int roll) {
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty request mix");
+    }
+
+    private HttpRequest get(Session session, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + session.token())
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private HttpRequest send(Session session, String method, String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + session.token())
+                .timeout(Duration.ofSeconds(30))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[load] " + format + "%n", args);
+    }
+
+    private record Session(long userId, String token) {
+    }
+}
@@ -0,0 +1,470 @@
+package com.example.mylib.perf;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seeds a local database with production-scale synthetic data for load testing.
+ * <p>
+ * The schema must already exist (start the application once against the target database).
+ * On PostgreSQL rows are streamed with {@code COPY FROM STDIN}; any other JDBC URL
+ * (e.g. {@code jdbc:h2:...;MODE=PostgreSQL}) falls back to batched inserts.
+ * Book popularity and user activity follow Zipf distributions, so a small set of hot titles
+ * receives most of the circulation, as in production.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.SyntheticDataSeeder \
+ *   -Dexec.args="--url=jdbc:postgresql://localhost:5432/mylib --user=postgres --password=postgres
+ *                --books=1000000 --users=200000 --borrows=20000000 --truncate"
+ * </pre>
+ * Every seeded user can log in with password {@value #DEFAULT_PASSWORD}; user 1 ({@value #ADMIN_EMAIL})
+ * additionally has ROLE_ADMIN.
+ */
+public class SyntheticDataSeeder {
+
+    public static final String DEFAULT_PASSWORD = "loadtest";
+    public static final String ADMIN_EMAIL = "admin@load.test";
+
+    private static final Map<Integer, Long> MULTIPLIERS = new ConcurrentHashMap<>();
+
+    private final Connection connection;
+    private final boolean postgres;
+    private final int batchSize;
+    private final long seed;
+    private final int bookCount;
+    private final int userCount;
+    private final long borrowCount;
+    private final int reservationCount;
+    private final double bookSkew;
+    private final double userSkew;
+
+    public SyntheticDataSeeder(Connection connection, PerfArgs args) throws SQLException {
+        this.connection = connection;
+        this.postgres = connection.isWrapperFor(PGConnection.class);
+        this.batchSize = args.getInt("batch", 5_000);
+        this.seed = args.getLong("seed", 42L);
+        this.bookCount = args.getInt("books", 1_000_000);
+        this.userCount = args.getInt("users", 200_000);
+        this.borrowCount = args.getLong("borrows", 20_000_000L);
+        this.reservationCount = args.getInt("reservations", bookCount / 10);
+        this.bookSkew = args.getDouble("book-skew", 1.07);
+        this.userSkew = args.getDouble("user-skew", 0.8);
+    }
+
+    public static void main(String[] argv) throws Exception {
+        PerfArgs args = new PerfArgs(argv);
+        try (Connection connection = DriverManager.getConnection(
+                args.require("url"), args.get("user", "postgres"), args.get("password", ""))) {
+            connection.setAutoCommit(false);
+            SyntheticDataSeeder seeder = new SyntheticDataSeeder(connection, args);
+            if (args.getBoolean("truncate", false)) {
+                seeder.truncate();
+            }
+            seeder.seed();
+        }
+    }
+
+    public void seed() throws SQLException {
+        long started = System.nanoTime();
+        log("Seeding %,d books, %,d users, %,d borrow records, %,d reservations using %s",
+                bookCount, userCount, borrowCount, reservationCount, postgres ? "COPY" : "JDBC batches");
+
+        int[] copies = new int[bookCount + 1];
+        SplittableRandom copyRandom = new SplittableRandom(seed);
+        for (int bookId = 1; bookId <= bookCount; bookId++) {
+            copies[bookId] = 1 + copyRandom.nextInt(10);
+        }
+        // First pass over the borrow stream only counts copies on loan, so book quantities
+        // can be written consistently before the borrow records that reference them.
+        int[] onLoan = new int[bookCount + 1];
+        generateBorrows(copies, onLoan, null);
+
+        seedUsers();
+        seedBooks(copies, onLoan);
+        linkAuthorsAndCategories();
+        try (RowSink sink = sink("borrow_records", List.of("borrow_record_id", "user_id", "book_id", "issue_date",
+                "due_date", "return_date", "fine_amount", "fine_paid", "status", "is_from_reservation", "version"))) {
+            generateBorrows(copies, new int[bookCount + 1], sink);
+        }
+        seedReservations();
+        stockCopies();
+        resetIdSequences();
+
+        log("Seeding finished in %,d s", (System.nanoTime() - started) / 1_000_000_000L);
+    }
+
+    public void truncate() throws SQLException {
+        List<String> tables = List.of("book_reservation", "borrow_records", "users_role_list", "users", "library_books");
+        try (Statement statement = connection.createStatement()) {
+            if (postgres) {
+                statement.execute("TRUNCATE " + String.join(", ", tables) + " CASCADE");
+            } else {
+                statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                for (String table : tables) {
+                    statement.execute("TRUNCATE TABLE " + table);
+                }
+                statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            }
+        }
+        connection.commit();
+        log("Truncated %s", tables);
+    }
+
+    private void seedUsers() throws SQLException {
+        String passwordHash = new BCryptPasswordEncoder(10).encode(DEFAULT_PASSWORD);
+        try (RowSink users = sink("users", List.of("user_id", "user_email", "user_name", "password", "profile_pic",
+                "phone_number", "enabled", "email_verified", "phone_verified", "provider"))) {
+            for (long userId = 1; userId <= userCount; userId++) {
+                String email = userId == 1 ? ADMIN_EMAIL : "user" + userId + "@load.test";
+                users.add(userId, email, "Load User " + userId, passwordHash,
+                        "https://api.dicebear.com/7.x/bottts/svg?seed=" + userId,
+                        String.format("9%09d", userId), true, true, false, "SELF");
+            }
+        }
+        try (RowSink roles = sink("users_role_list", List.of("users_user_id", "role_list"))) {
+            roles.add(1L, "ROLE_ADMIN");
+            for (long userId = 1; userId <= userCount; userId++) {
+                roles.add(userId, "ROLE_STUDENT");
+            }
+        }
+    }
+
+    private void seedBooks(int[] copies, int[] onLoan) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        int authorPool = Math.max(1, bookCount / 20);
+        ZipfDistribution authors = new ZipfDistribution(authorPool, 0.9);
+        LocalDate epoch = LocalDate.of(1950, 1, 1);
+        try (RowSink books = sink("library_books", List.of("book_id", "title", "author", "category", "available",
+                "publisher", "isbn", "edition", "language", "publication_date", "cover_url", "quantity",
+                "description", "page_count", "price", "location", "version"))) {
+            for (int bookId = 1; bookId <= bookCount; bookId++) {
+                int quantity = copies[bookId] - onLoan[bookId];
+                LocalDate published = epoch.plusDays(random.nextInt(365 * 74));
+                books.add((long) bookId,
+                        SyntheticVocabulary.title(random, bookId),
+                        SyntheticVocabulary.author(authors.sample(random) - 1),
+                        SyntheticVocabulary.pick(SyntheticVocabulary.CATEGORIES, random),
+                        quantity > 0,
+                        SyntheticVocabulary.pick(SyntheticVocabulary.PUBLISHERS, random),
+                        SyntheticVocabulary.isbn(bookId),
+                        published.getYear(),
+                        SyntheticVocabulary.pick(SyntheticVocabulary.LANGUAGES, random),
+                        published,
+                        null,
+                        quantity,
+                        "Synthetic catalogue entry " + bookId,
+                        80 + random.nextInt(900),
+                        String.valueOf(99 + random.nextInt(900)),
+                        "Shelf " + (char) ('A' + random.nextInt(26)) + "-" + random.nextInt(100),
+                        0L);
+            }
+        }
+    }
+
+    /**
+     * Generates the borrow stream deterministically from the seed. When {@code sink} is null
+     * only the per-book loan counts are accumulated.
+     */
+    private void generateBorrows(int[] copies, int[] onLoan, RowSink sink) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 2);
+        ZipfDistribution books = new ZipfDistribution(bookCount, bookSkew);
+        ZipfDistribution users = new ZipfDistribution(userCount, userSkew);
+        LocalDate today = LocalDate.now();
+        for (long recordId = 1; recordId <= borrowCount; recordId++) {
+            int bookId = scramble(books.sample(random), bookCount);
+            long userId = scramble(users.sample(random), userCount);
+            int roll = random.nextInt(100);
+            String status = roll < 90 ? "RETURNED" : roll < 96 ? "BORROWED" : roll < 98 ? "PENDING" : "RETURN_PENDING";
+            boolean holdsCopy = status.equals("BORROWED") || status.equals("RETURN_PENDING");
+            if (holdsCopy && onLoan[bookId] >= copies[bookId]) {
+                status = "RETURNED";
+                holdsCopy = false;
+            }
+            if (holdsCopy) {
+                onLoan[bookId]++;
+            }
+            if (sink == null) {
+                continue;
+            }
+
+            LocalDate issued = today.minusDays(1 + random.nextInt(3 * 365));
+            LocalDate due = issued.plusDays(14);
+            LocalDate returned = null;
+            double fine = 0;
+            if (status.equals("RETURNED")) {
+                returned = issued.plusDays(random.nextInt(30));
+                if (returned.isAfter(due)) {
+                    fine = (returned.toEpochDay() - due.toEpochDay()) * 10.0;
+                }
+            }
+            if (status.equals("PENDING")) {
+                issued = null;
+                due = null;
+            }
+            sink.add(recordId, userId, (long) bookId, issued, due, returned, fine,
+                    fine > 0 && random.nextBoolean(), status, false, 0L);
+        }
+    }
+
+    private void seedReservations() throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed + 3);
+        ZipfDistribution books = new ZipfDistribution(bookCount, bookSkew);
+        LocalDateTime now = LocalDateTime.now();
+        try (RowSink sink = sink("book_reservation", List.of("reservation_id", "user_id", "book_id", "status",
+                "created_at"))) {
+            for (long reservationId = 1; reservationId <= reservationCount; reservationId++) {
+                long userId = 1 + random.nextInt(userCount);
+                long bookId = scramble(books.sample(random), bookCount);
+                String status = random.nextInt(10) < 7 ? "PENDING" : "COMPLETED";
+                sink.add(reservationId, userId, bookId, status, now.minusMinutes(random.nextInt(60 * 24 * 90)));
+            }
+        }
+    }
+
+    // What the V6 migration's backfill and BookDimensionRepo do for books written through the app
+    private void linkAuthorsAndCategories() throws SQLException {
+        if (!postgres) {
+            log("Skipping author and category links: they need PostgreSQL's catalog_name_key()");
+            return;
+        }
+        long started = System.nanoTime();
+        String[][] dimensions = {
+                {"library_authors", "author_id", "library_book_authors", "author"},
+                {"library_categories", "category_id", "library_book_categories", "category"}};
+        try (Statement statement = connection.createStatement()) {
+            for (String[] dimension : dimensions) {
+                String names = "FROM library_books b, regexp_split_to_table(b." + dimension[3] + ", ';') AS part ";
+                statement.execute("INSERT INTO " + dimension[0] + " (name, name_key) "
+                        + "SELECT DISTINCT ON (catalog_name_key(part)) btrim(part), catalog_name_key(part) " + names
+                        + "WHERE catalog_name_key(part) <> '' ORDER BY catalog_name_key(part), b.book_id "
+                        + "ON CONFLICT (name_key) DO NOTHING");
+                statement.execute("INSERT INTO " + dimension[2] + " (book_id, " + dimension[1] + ") "
+                        + "SELECT DISTINCT b.book_id, d." + dimension[1] + " " + names + ", " + dimension[0] + " d "
+                        + "WHERE d.name_key = catalog_name_key(part) ON CONFLICT DO NOTHING");
+            }
+        }
+        connection.commit();
+        log("Linked books to authors and categories in %,d ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // What the V7 migration's backfill does: a copy for every loan, the book's quantity on the shelf
+    private void stockCopies() throws SQLException {
+        if (!postgres) {
+            log("Skipping book copies: they need PostgreSQL's library_copy_barcode()");
+            return;
+        }
+        long started = System.nanoTime();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("WITH held AS (SELECT r.borrow_record_id, r.book_id, b.location, "
+                    + "nextval('library_book_copies_seq') AS copy_id FROM borrow_records r "
+                    + "JOIN library_books b ON b.book_id = r.book_id WHERE r.status IN ('BORROWED', 'RETURN_PENDING')), "
+                    + "copies AS (INSERT INTO library_book_copies (copy_id, book_id, barcode, location, status) "
+                    + "SELECT copy_id, book_id, library_copy_barcode(copy_id), location, 'ON_LOAN' FROM held) "
+                    + "UPDATE borrow_records r SET copy_id = held.copy_id FROM held "
+                    + "WHERE r.borrow_record_id = held.borrow_record_id");
+            statement.execute("INSERT INTO library_book_copies (copy_id, book_id, barcode, location, status) "
+                    + "SELECT copy_id, book_id, library_copy_barcode(copy_id), location, 'AVAILABLE' "
+                    + "FROM (SELECT nextval('library_book_copies_seq') AS copy_id, b.book_id, b.location "
+                    + "FROM library_books b, generate_series(1, b.quantity)) AS shelved");
+        }
+        connection.commit();
+        log("Stocked book copies in %,d ms", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Keeps the application's id sequences ahead of the explicitly inserted ids.
+    private void resetIdSequences() throws SQLException {
+        String[][] sequences = {
+                {"library_books", "book_id", "library_books_seq"},
+                {"users", "user_id", "users_seq"},
+                {"borrow_records", "borrow_record_id", "borrow_records_seq"},
+                {"book_reservation", "reservation_id", "book_reservation_seq"}};
+        try (Statement statement = connection.createStatement()) {
+            for (String[] sequence : sequences) {
+                long next;
+                try (var rs = statement.executeQuery(
+                        "SELECT COALESCE(MAX(" + sequence[1] + "), 0) + 1 FROM " + sequence[0])) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+                if (postgres) {
+                    statement.execute("SELECT setval('" + sequence[2] + "', " + next + ", false)");
+                } else {
+                    statement.execute("ALTER SEQUENCE " + sequence[2] + " RESTART WITH " + next);
+                }
+            }
+        }
+        connection.commit();
+    }
+
+    // Maps a popularity rank onto a stable pseudo-random id so hot rows are spread over the table.
+    static int scramble(int rank, int n) {
+        return (int) (((rank - 1) * multiplierFor(n)) % n) + 1;
+    }
+
+    private static long multiplierFor(int n) {
+        return MULTIPLIERS.computeIfAbsent(n, size -> {
+            long multiplier = 2_654_435_761L % size;
+            while (gcd(multiplier, size) != 1) {
+                multiplier = (multiplier + 1) % size;
+            }
+            return multiplier;
+        });
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private RowSink sink(String table, List<String> columns) throws SQLException {
+        return postgres ? new CopySink(table, columns) : new BatchSink(table, columns);
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[seeder] " + format + "%n", args);
+    }
+
+    private abstract class RowSink implements AutoCloseable {
+
+        final String table;
+        final List<String> columns;
+        final long started = System.nanoTime();
+        long rows;
+
+        RowSink(String table, List<String> columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        void add(Object... values) throws SQLException {
+            write(values);
+            rows++;
+            if (rows % 1_000_000 == 0) {
+                log("%s: %,d rows (%,.0f rows/s)", table, rows, rate());
+            }
+        }
+
+        double rate() {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            return seconds == 0 ? rows : rows / seconds;
+        }
+
+        abstract void write(Object[] values) throws SQLException;
+
+        abstract void finish() throws SQLException;
+
+        @Override
+        public void close() throws SQLException {
+            finish();
+            connection.commit();
+            log("%s: done, %,d rows (%,.0f rows/s)", table, rows, rate());
+        }
+    }
+
+    private class CopySink extends RowSink {
+
+        private static final int COMMIT_EVERY = 1_000_000;
+        private final StringBuilder buffer = new StringBuilder(1 << 16);
+        private CopyIn copyIn;
+
+        CopySink(String table, List<String> columns) {
+            super(table, columns);
+        }
+
+        @Override
+        void write(Object[] values) throws SQLException {
+            if (copyIn == null) {
+                copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)");
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendCsv(values[i]);
+            }
+            buffer.append('\n');
+            if (buffer.length() > (1 << 16)) {
+                flushBuffer();
+            }
+            if ((rows + 1) % COMMIT_EVERY == 0) {
+                finish();
+                connection.commit();
+            }
+        }
+
+        private void appendCsv(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof String text) {
+                buffer.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                buffer.append(value);
+            }
+        }
+
+        private void flushBuffer() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        void finish() throws SQLException {
+            if (copyIn != null) {
+                flushBuffer();
+                copyIn.endCopy();
+                copyIn = null;
+            }
+        }
+    }
+
+    private class BatchSink extends RowSink {
+
+        private final PreparedStatement statement;
+        private int pending;
+
+        BatchSink(String table, List<String> columns) throws SQLException {
+            super(table, columns);
+            String placeholders = String.join(", ", columns.stream().map(column -> "?").toList());
+            statement = connection.prepareStatement(
+                    "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")");
+        }
+
+        @Override
+        void write(Object[] values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            if (++pending == batchSize) {
+                statement.executeBatch();
+                connection.commit();
+                pending = 0;
+            }
+        }
+
+        @Override
+        void finish() throws SQLException {
+            if (pending > 0) {
+                statement.executeBatch();
+                pending = 0;
+            }
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.mylib.perf;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Word lists shared by the seeder and the load driver, so that search terms
+ * replayed by the driver actually hit seeded titles and authors.
+ */
+public final class SyntheticVocabulary {
+
+    public static final List<String> TITLE_WORDS = List.of(
+            "river", "silent", "shadow", "empire", "garden", "winter", "crown", "stone", "glass", "harbor",
+            "forest", "memory", "letters", "night", "summer", "journey", "secret", "kingdom", "ocean", "mountain",
+            "city", "fire", "echo", "light", "storm", "island", "mirror", "bridge", "house", "road",
+            "song", "war", "peace", "dream", "machine", "signal", "archive", "compass", "lantern", "voyage");
+
+    public static final List<String> FIRST_NAMES = List.of(
+            "Anita", "Rahul", "Maria", "James", "Leo", "Fyodor", "Jane", "Arundhati", "Haruki", "Chinua",
+            "Virginia", "Gabriel", "Toni", "Orhan", "Amrita", "Vikram", "Ursula", "Kazuo", "Elena", "Ruskin");
+
+    public static final List<String> LAST_NAMES = List.of(
+            "Desai", "Tolkien", "Dostoyevsky", "Austen", "Roy", "Murakami", "Achebe", "Woolf", "Marquez", "Morrison",
+            "Pamuk", "Pritam", "Seth", "Le Guin", "Ishiguro", "Ferrante", "Bond", "Narayan", "Tagore", "Ghosh");
+
+    public static final List<String> CATEGORIES = List.of(
+            "Fiction", "Non-Fiction", "Science", "History", "Mystery", "Romance", "Sci-Fi", "Biography",
+            "Poetry", "Technology", "Philosophy", "Children");
+
+    public static final List<String> LANGUAGES = List.of(
+            "English", "English", "English", "Hindi", "Hindi", "Bengali", "Tamil", "French", "Spanish", "German");
+
+    public static final List<String> PUBLISHERS = List.of(
+            "Penguin", "HarperCollins", "Rupa", "Macmillan", "Vintage", "Bloomsbury", "Orient BlackSwan",
+            "Oxford University Press", "Scholastic", "Hachette");
+
+    private SyntheticVocabulary() {
+    }
+
+    public static String pick(List<String> words, RandomGenerator random) {
+        return words.get(random.nextInt(words.size()));
+    }
+
+    public static String title(RandomGenerator random, long ordinal) {
+        return "The " + capitalize(pick(TITLE_WORDS, random)) + " of " + capitalize(pick(TITLE_WORDS, random))
+                + " " + ordinal;
+    }
+
+    // Authors are drawn from a bounded pool so "books by author" has realistic fan-out.
+    public static String author(int authorOrdinal) {
+        String first = FIRST_NAMES.get(authorOrdinal % FIRST_NAMES.size());
+        String last = LAST_NAMES.get((authorOrdinal / FIRST_NAMES.size()) % LAST_NAMES.size());
+        int generation = authorOrdinal / (FIRST_NAMES.size() * LAST_NAMES.size());
+        return generation == 0 ? first + " " + last : first + " " + last + " " + toRoman(generation + 1);
+    }
+
+    // Valid ISBN-13 with the 978 prefix, unique per ordinal.
+    public static String isbn(long ordinal) {
+        String body = "978" + String.format("%09d", ordinal);
+        int sum = 0;
+        for (int i = 0; i < body.length(); i++) {
+            int digit = body.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        int check = (10 - (sum % 10)) % 10;
+        return body + check;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String toRoman(int value) {
+        String[] numerals = {"X", "IX", "V", "IV", "I"};
+        int[] weights = {10, 9, 5, 4, 1};
+        StringBuilder roman = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            while (value >= weights[i]) {
+                roman.append(numerals[i]);
+                value -= weights[i];
+            }
+        }
+        return roman.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.mylib.perf;
+
+import com.example.mylib.Application;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the {@link LoadDriver} mix against the application started in-process once on platform
+ * request threads and once on virtual threads, against the same database seeded by
+ * {@link SyntheticDataSeeder}, and prints both latency reports.
+ * <pre>
+ * ./mvnw test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.example.mylib.perf.ThreadModeBenchmark \
+ *   -Dexec.args="--jdbc-url=jdbc:postgresql://localhost:5432/mylib --jdbc-user=postgres --jdbc-password=postgres
+ *                --books=1000000 --users=200000 --concurrency=400 --duration=60s --warmup=20s"
+ * </pre>
+ * {@code --modes=platform,virtual} sets the order. Both modes share the JVM and the CPU with the
+ * driver; for absolute numbers run {@link LoadDriver} from another host against instances started
+ * with and without {@code VIRTUAL_THREADS_ENABLED}.
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] argv) throws Exception {
+        PerfArgs args = new PerfArgs(argv);
+        // DevTools would otherwise relaunch main() with the application arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        String jdbcUrl = args.require("jdbc-url");
+        String jdbcUser = args.get("jdbc-user", "postgres");
+        String jdbcPassword = args.get("jdbc-password", "");
+
+        for (String mode : args.get("modes", "platform,virtual").split(",")) {
+            boolean virtual = switch (mode.trim()) {
+                case "platform" -> false;
+                case "virtual" -> true;
+                default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+            };
+            log("=== %s threads ===", mode.trim());
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(
+                    "--server.port=0",
+                    "--spring.threads.virtual.enabled=" + virtual,
+                    "--spring.datasource.url=" + jdbcUrl,
+                    "--spring.datasource.username=" + jdbcUser,
+                    "--spring.datasource.password=" + jdbcPassword,
+                    "--cache.invalidation.enabled=false",
+                    "--logging.level.com.example.mylib=WARN");
+            try {
+                String port = context.getEnvironment().getProperty("local.server.port");
+                List<String> driverArgs = new ArrayList<>(List.of(argv));
+                driverArgs.add("--base-url=http://localhost:" + port);
+                LoadDriver driver = new LoadDriver(new PerfArgs(driverArgs.toArray(String[]::new)));
+                driver.login(args.getInt("sessions", 32), args.getInt("users", 200_000),
+                        args.get("password", SyntheticDataSeeder.DEFAULT_PASSWORD));
+                driver.loadPendingBorrows(jdbcUrl, jdbcUser, jdbcPassword);
+                driver.run(args.getInt("concurrency", 400), args.getDuration("warmup", Duration.ofSeconds(15)),
+                        args.getDuration("duration", Duration.ofSeconds(60)));
+            } finally {
+                context.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf("[bench] " + format + "%n", args);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.mylib.services.books;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.repository.BookRepo;
+import com.example.mylib.services.cache.CacheInvalidationEvent;
+import com.example.mylib.services.cache.CacheInvalidationEvent.Change;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookCatalogTest {
+
+    // The books table; the catalog reads it through the two queries it uses
+    private final TreeMap<Long, BookDTO> table = new TreeMap<>();
+    // Run while a query reads, as a change committed by another request at that moment would be
+    private Runnable duringRead = () -> {};
+    private BookCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        BookRepo bookRepo = (BookRepo) Proxy.newProxyInstance(BookRepo.class.getClassLoader(),
+                new Class<?>[] {BookRepo.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "streamAllDtos" -> {
+                        List<BookDTO> rows = new ArrayList<>(table.values());
+                        read();
+                        yield rows.stream();
+                    }
+                    case "findDtosByIdIn" -> {
+                        List<BookDTO> rows = ((Collection<?>) args[0]).stream()
+                                .map(table::get).filter(book -> book != null).toList();
+                        read();
+                        yield rows;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        PlatformTransactionManager transactions = new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+        catalog = new BookCatalog(bookRepo, new TransactionTemplate(transactions));
+        for (long id = 1; id <= 20; id++) {
+            put(id, 0);
+        }
+    }
+
+    @Test
+    void servesNothingUntilBuilt() {
+        assertTrue(catalog.find(1).isEmpty());
+        catalog.onInvalidation(CacheInvalidationEvent.of(Change.BOOK_UPDATED, 1L));
+        catalog.refresh();
+        assertTrue(catalog.snapshot().isEmpty());
+
+        catalog.rebuild();
+        assertEquals(new ArrayList<>(table.values()), catalog.snapshot().orElseThrow().all());
+        assertEquals(Optional.of(table.get(1L)), catalog.find(1));
+    }
+
+    @Test
+    void dirtyBooksAreNotServedUntilReRead() {
+        catalog.rebuild();
+        put(3, 1);
+        table.remove(4L);
+        put(21, 0);
+        change(Change.BOOK_UPDATED, 3);
+        change(Change.BOOK_DELETED, 4);
+        change(Change.BOOK_CREATED, 21);
+
+        assertTrue(catalog.find(3).isEmpty());
+        assertTrue(catalog.find(4).isEmpty());
+        assertTrue(catalog.find(21).isEmpty());
+        assertEquals(Optional.of(table.get(5L)), catalog.find(5));
+
+        catalog.refresh();
+        assertEquals(Optional.of(table.get(3L)), catalog.find(3));
+        assertTrue(catalog.find(4).isEmpty());
+        assertEquals(Optional.of(table.get(21L)), catalog.find(21));
+        assertEquals(new ArrayList<>(table.values()), catalog.snapshot().orElseThrow().all());
+    }
+
+    @Test
+    void booksChangedWhileReReadStayDirty() {
+        catalog.rebuild();
+        put(3, 1);
+        change(Change.BOOK_UPDATED, 3);
+        duringRead = () -> {
+            put(3, 2);
+            change(Change.BOOK_UPDATED, 3);
+        };
+        catalog.refresh();
+        // The refresh read version 1; version 2 was marked after and is not hidden behind it
+        assertTrue(catalog.find(3).isEmpty());
+
+        duringRead = () -> {};
+        catalog.refresh();
+        assertEquals(2L, catalog.find(3).orElseThrow().getVersion());
+    }
+
+    @Test
+    void rebuildClearsOnlyChangesMarkedBeforeIt() {
+        catalog.rebuild();
+        put(3, 1);
+        change(Change.BOOK_UPDATED, 3);
+        duringRead = () -> {
+            put(7, 1);
+            change(Change.BOOK_UPDATED, 7);
+        };
+        catalog.rebuild();
+        duringRead = () -> {};
+
+        assertEquals(1L, catalog.find(3).orElseThrow().getVersion());
+        assertTrue(catalog.find(7).isEmpty());
+        catalog.refresh();
+        assertEquals(1L, catalog.find(7).orElseThrow().getVersion());
+    }
+
+    @Test
+    void bulkLoadsHideTheSnapshotUntilRebuilt() {
+        catalog.rebuild();
+        for (long id = 1; id <= 20; id++) {
+            put(id, 1);
+        }
+        catalog.onInvalidation(new CacheInvalidationEvent(Change.BOOKS_BULK_LOADED, null, false));
+        for (long id = 1; id <= 20; id++) {
+            assertTrue(catalog.find(id).isEmpty(), "book " + id);
+        }
+
+        catalog.refresh();
+        assertEquals(new ArrayList<>(table.values()), catalog.snapshot().orElseThrow().all());
+        assertEquals(Optional.of(table.get(1L)), catalog.find(1));
+    }
+
+    private void read() {
+        Runnable action = duringRead;
+        duringRead = () -> {};
+        action.run();
+    }
+
+    private void change(Change change, long bookId) {
+        catalog.onInvalidation(CacheInvalidationEvent.of(change, bookId));
+    }
+
+    private void put(long id, long version) {
+        table.put(id, new BookDTO(id, "Book " + id + " v" + version, "Author " + id % 3, "Category " + id % 4,
+                true, null, null, null, "English", null, 1, null, null, null, "Shelf " + id % 5, version));
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.mylib.services.books;
+
+import com.example.mylib.dto.BookDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSnapshotTest {
+
+    private static final String[] AUTHORS = {"Ursula K. Le Guin", "Tolkien", "Octavia Butler", null};
+    private static final String[] CATEGORIES = {"Fantasy", "Science Fiction", "History", null};
+
+    private final Random random = new Random(13);
+
+    @Test
+    void holdsEveryBookInIdOrder() {
+        TreeMap<Long, BookDTO> books = books(3000);
+        BookSnapshot snapshot = build(books);
+
+        assertEquals(books.size(), snapshot.size());
+        assertEquals(new ArrayList<>(books.values()), snapshot.all());
+        for (long id = 0; id <= books.lastKey() + 1; id++) {
+            assertEquals(Optional.ofNullable(books.get(id)), snapshot.find(id), "book " + id);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> BookSnapshot.builder().add(book(5, 0)).add(book(5, 0)));
+    }
+
+    @Test
+    void withReplacesAddsAndRemovesRows() {
+        TreeMap<Long, BookDTO> books = books(2000);
+        BookSnapshot snapshot = build(books);
+        for (int round = 0; round < 50; round++) {
+            BookSnapshot before = snapshot;
+            List<BookDTO> beforeBooks = before.all();
+
+            List<BookDTO> changed = new ArrayList<>();
+            Set<Long> removed = new TreeSet<>();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                long id = 1 + random.nextInt(books.lastKey().intValue() + 50);
+                if (random.nextInt(3) == 0) {
+                    removed.add(id);
+                    changed.removeIf(book -> book.getId() == id);
+                } else {
+                    BookDTO book = book(id, books.containsKey(id) ? books.get(id).getVersion() + 1 : 0);
+                    changed.removeIf(other -> other.getId() == id);
+                    changed.add(book);
+                    removed.remove(id);
+                }
+            }
+            // First and last rows too, where the runs between changes are empty
+            if (round % 10 == 0) {
+                removed.add(books.firstKey());
+                changed.add(book(books.lastKey() + 1, 0));
+            }
+            changed.forEach(book -> books.put(book.getId(), book));
+            removed.forEach(books::remove);
+            snapshot = before.with(changed, removed);
+
+            assertEquals(new ArrayList<>(books.values()), snapshot.all(), "round " + round);
+            assertEquals(books.size(), snapshot.size());
+            assertEquals(beforeBooks, before.all(), "the snapshot changed from is left as it was");
+            for (long id : removed) {
+                assertTrue(snapshot.find(id).isEmpty());
+            }
+            for (BookDTO book : changed) {
+                assertEquals(Optional.of(book), snapshot.find(book.getId()));
+            }
+            // The same as a snapshot built from scratch, tag included
+            assertEquals(build(books).etag(), snapshot.etag(), "round " + round);
+        }
+    }
+
+    @Test
+    void etagChangesWithAnyBookAndOnlyThen() {
+        TreeMap<Long, BookDTO> books = books(500);
+        BookSnapshot snapshot = build(books);
+        String etag = snapshot.etag();
+
+        assertEquals(etag, build(books).etag());
+        assertEquals(etag, snapshot.with(List.of(), List.of()).etag());
+        // Rewriting a book as it was, and removing a book that is not there, change nothing
+        BookDTO some = books.ceilingEntry(books.firstKey() + 7).getValue();
+        assertEquals(etag, snapshot.with(List.of(some), List.of(books.lastKey() + 100)).etag());
+
+        BookDTO edited = book(some.getId(), some.getVersion() + 1);
+        assertNotEquals(etag, snapshot.with(List.of(edited), List.of()).etag());
+        assertNotEquals(etag, snapshot.with(List.of(), List.of(some.getId())).etag());
+        assertNotEquals(etag, snapshot.with(List.of(book(books.lastKey() + 1, 0)), List.of()).etag());
+        // Changed back, it is the same catalog again
+        BookSnapshot editedSnapshot = snapshot.with(List.of(edited), List.of());
+        assertEquals(etag, editedSnapshot.with(List.of(some), List.of()).etag());
+    }
+
+    @Test
+    void searchMatchesTitleAuthorOrCategoryIgnoringCase() {
+        TreeMap<Long, BookDTO> books = books(1500);
+        BookSnapshot snapshot = build(books);
+        for (String query : new String[] {"tolkien", "FANTASY", "le gui", "book 12", "x", "", "no such text"}) {
+            List<BookDTO> expected = books.values().stream()
+                    .filter(book -> contains(book.getTitle(), query) || contains(book.getAuthor(), query)
+                            || contains(book.getCategory(), query))
+                    .toList();
+            assertEquals(expected, snapshot.search(query), query);
+        }
+    }
+
+    private static boolean contains(String value, String query) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT));
+    }
+
+    private TreeMap<Long, BookDTO> books(int count) {
+        TreeMap<Long, BookDTO> books = new TreeMap<>();
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            // Gaps, so changes land both on existing rows and between them
+            id += 1 + random.nextInt(3);
+            books.put(id, book(id, random.nextInt(5)));
+        }
+        return books;
+    }
+
+    private BookDTO book(long id, long version) {
+        boolean sparse = random.nextInt(4) == 0;
+        return new BookDTO(id, "Book " + id, AUTHORS[random.nextInt(AUTHORS.length)],
+                CATEGORIES[random.nextInt(CATEGORIES.length)], random.nextBoolean(), sparse ? null : "Orbit",
+                sparse ? null : "978" + id, sparse ? null : Year.of(1950 + random.nextInt(70)), "English",
+                sparse ? null : LocalDate.of(2000, 1, 1).plusDays(id), random.nextInt(5),
+                sparse ? null : "https://covers.example/" + id, sparse ? null : 100 + random.nextInt(500),
+                sparse ? null : "12.50", "Shelf " + (id % 10), version);
+    }
+
+    private static BookSnapshot build(Map<Long, BookDTO> books) {
+        BookSnapshot.Builder builder = BookSnapshot.builder();
+        books.values().forEach(builder::add);
+        return builder.build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.exceptions.InvalidBookRecordException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvBookRecordReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+        try (CsvBookRecordReader reader = reader("isbn,title,author\r\n"
+                + "0306406152,\"Dune, Part One\",\"Frank \"\"Duke\"\" Herbert\"\r\n"
+                + "9780804429573,\"A title\non two lines\",\n")) {
+            BookDTO first = reader.next();
+            assertEquals("0306406152", first.getIsbn());
+            assertEquals("Dune, Part One", first.getTitle());
+            assertEquals("Frank \"Duke\" Herbert", first.getAuthor());
+            assertEquals(1, reader.recordNumber());
+
+            BookDTO second = reader.next();
+            assertEquals("A title\non two lines", second.getTitle());
+            assertNull(second.getAuthor());
+            assertEquals(2, reader.recordNumber());
+
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void matchesHeadersIgnoringCaseAndSeparatorsAndSkipsUnknownColumns() throws IOException {
+        try (CsvBookRecordReader reader = reader("id,ISBN,Page Count,publication_date,edition,quantity,version\n"
+                + "17,0306406152,320,21/03/1999,1999,0,4\n"
+                + "18,9780804429573,,1999-03-21,,,\n")) {
+            BookDTO first = reader.next();
+            assertNull(first.getId());
+            assertEquals(320, first.getPageCount());
+            assertEquals(LocalDate.of(1999, 3, 21), first.getPublicationDate());
+            assertEquals(Year.of(1999), first.getEdition());
+            assertEquals(0, first.getQuantity());
+            assertFalse(first.isAvailable());
+
+            BookDTO second = reader.next();
+            assertEquals(LocalDate.of(1999, 3, 21), second.getPublicationDate());
+            // Feeds describe titles: one copy unless they say otherwise
+            assertEquals(1, second.getQuantity());
+            assertTrue(second.isAvailable());
+        }
+    }
+
+    @Test
+    void skipsBlankLines() throws IOException {
+        try (CsvBookRecordReader reader = reader("isbn,title\n\n0306406152,Dune\n\n")) {
+            assertEquals("Dune", reader.next().getTitle());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsUnparseableValuesAndCarriesOn() throws IOException {
+        try (CsvBookRecordReader reader = reader("isbn,quantity\n0306406152,many\n9780804429573,2\n")) {
+            assertThrows(InvalidBookRecordException.class, reader::next);
+            assertEquals(1, reader.recordNumber());
+            assertEquals(2, reader.next().getQuantity());
+        }
+    }
+
+    @Test
+    void requiresAnIsbnColumn() {
+        assertThrows(IOException.class, () -> reader("title,author\nDune,Herbert\n"));
+        assertThrows(IOException.class, () -> reader(""));
+    }
+
+    private static CsvBookRecordReader reader(String csv) throws IOException {
+        return new CsvBookRecordReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
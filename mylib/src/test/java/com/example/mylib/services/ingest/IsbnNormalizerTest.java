@@ -0,0 +1,54 @@
+package com.example.mylib.services.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IsbnNormalizerTest {
+
+    @Test
+    void convertsIsbn10ToIsbn13() {
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("0306406152"));
+    }
+
+    @Test
+    void convertsIsbn10WithXCheckDigit() {
+        assertEquals(Optional.of("9780804429573"), IsbnNormalizer.normalize("080442957X"));
+        assertEquals(Optional.of("9780804429573"), IsbnNormalizer.normalize("080442957x"));
+    }
+
+    @Test
+    void keepsValidIsbn13() {
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("9780306406157"));
+    }
+
+    @Test
+    void stripsHyphensAndSpaces() {
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("978-0-306-40615-7"));
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("0-306-40615-2"));
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("  978-0306406157  "));
+    }
+
+    @Test
+    void dropsQualifiers() {
+        assertEquals(Optional.of("9780306406157"), IsbnNormalizer.normalize("0306406152 (pbk.)"));
+    }
+
+    @Test
+    void rejectsBadCheckDigits() {
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("0306406151"));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("9780306406158"));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("978-0-306-40615-8"));
+    }
+
+    @Test
+    void rejectsMisplacedXAndWrongLengths() {
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("03064X6152"));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("978030640615X"));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize("030640615"));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize(""));
+        assertEquals(Optional.empty(), IsbnNormalizer.normalize(null));
+    }
+}
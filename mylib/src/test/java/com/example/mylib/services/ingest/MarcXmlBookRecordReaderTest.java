@@ -0,0 +1,107 @@
+package com.example.mylib.services.ingest;
+
+import com.example.mylib.dto.BookDTO;
+import com.example.mylib.exceptions.InvalidBookRecordException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MarcXmlBookRecordReaderTest {
+
+    private static final String RECORD = """
+            <record>
+              <leader>00000nam a2200000 a 4500</leader>
+              <controlfield tag="008">990321s1999    nyu           000 1 eng d</controlfield>
+              <datafield tag="020" ind1=" " ind2=" ">
+                <subfield code="a">not an isbn</subfield>
+              </datafield>
+              <datafield tag="020" ind1=" " ind2=" ">
+                <subfield code="a">0306406152 (pbk.)</subfield>
+                <subfield code="c">$12.99</subfield>
+              </datafield>
+              <datafield tag="100" ind1="1" ind2=" ">
+                <subfield code="a">Herbert, Frank,</subfield>
+              </datafield>
+              <datafield tag="245" ind1="1" ind2="0">
+                <subfield code="a">Dune /</subfield>
+                <subfield code="b">a novel.</subfield>
+              </datafield>
+              <datafield tag="264" ind1=" " ind2="1">
+                <subfield code="b">Chilton Books,</subfield>
+              </datafield>
+              <datafield tag="300" ind1=" " ind2=" ">
+                <subfield code="a">412 p. ;</subfield>
+              </datafield>
+              <datafield tag="650" ind1=" " ind2="0">
+                <subfield code="a">Science fiction.</subfield>
+              </datafield>
+            </record>
+            """;
+
+    @Test
+    void mapsIsbnAuthorAndTitleFields() throws IOException {
+        try (MarcXmlBookRecordReader reader = reader(RECORD)) {
+            BookDTO book = reader.next();
+            // The first 020 $a that normalizes, as found; the importer normalizes it
+            assertEquals("0306406152 (pbk.)", book.getIsbn());
+            assertEquals("$12.99", book.getPrice());
+            assertEquals("Herbert, Frank", book.getAuthor());
+            assertEquals("Dune: a novel", book.getTitle());
+            assertEquals("Chilton Books", book.getPublisher());
+            assertEquals("Science fiction", book.getCategory());
+            assertEquals(412, book.getPageCount());
+            // No 264 $c: the year and language come from the 008
+            assertEquals(Year.of(1999), book.getEdition());
+            assertEquals("English", book.getLanguage());
+            assertEquals(1, book.getQuantity());
+            assertEquals(1, reader.recordNumber());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void readsEveryRecordOfACollection() throws IOException {
+        String second = RECORD.replace("0306406152 (pbk.)", "080442957X").replace("Dune /", "Children of Dune /");
+        try (MarcXmlBookRecordReader reader = reader(RECORD + second)) {
+            assertEquals("Dune: a novel", reader.next().getTitle());
+            BookDTO book = reader.next();
+            assertEquals("080442957X", book.getIsbn());
+            assertEquals("Children of Dune: a novel", book.getTitle());
+            assertEquals(2, reader.recordNumber());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void rejectsARecordWithoutATitleAndCarriesOn() throws IOException {
+        String untitled = """
+                <record>
+                  <datafield tag="020" ind1=" " ind2=" "><subfield code="a">9780306406157</subfield></datafield>
+                </record>
+                """;
+        try (MarcXmlBookRecordReader reader = reader(untitled + RECORD)) {
+            assertThrows(InvalidBookRecordException.class, reader::next);
+            assertEquals("Dune: a novel", reader.next().getTitle());
+        }
+    }
+
+    @Test
+    void failsOnMalformedXml() throws IOException {
+        try (MarcXmlBookRecordReader reader = reader(RECORD.replace("</record>", "</datafield>"))) {
+            assertThrows(IOException.class, reader::next);
+        }
+    }
+
+    private static MarcXmlBookRecordReader reader(String records) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<collection xmlns=\"http://www.loc.gov/MARC21/slim\">\n" + records + "</collection>\n";
+        return new MarcXmlBookRecordReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.mylib.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedBitmapTest {
+
+    private static final int CHUNK = 1 << 16;
+
+    // Values per chunk: none, sparse, either side of the array/bitset switch at 4096, dense, full
+    private static final int[] CHUNK_SIZES = {0, 0, 1, 100, 4095, 4096, 4097, 30_000, CHUNK};
+
+    @Test
+    void operationsMatchBitSet() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            BitSet left = randomSet(random);
+            BitSet right = randomSet(random);
+            CompressedBitmap a = bitmap(left);
+            CompressedBitmap b = bitmap(right);
+            String operands = "round " + round;
+
+            assertSame(left, a, operands);
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            assertSame(and, a.and(b), operands + " and");
+            assertEquals(and.cardinality(), a.andCardinality(b), operands + " andCardinality");
+
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+            assertSame(andNot, a.andNot(b), operands + " andNot");
+
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            assertSame(or, a.or(b), operands + " or");
+            assertSame(or, CompressedBitmap.or(List.of(a, b)), operands + " or of a list");
+        }
+    }
+
+    @Test
+    void chunksInOnlyOneOperand() {
+        // Chunks 0 and 2 on the left, 1 and 2 on the right; one side of each pair is a bitset
+        BitSet left = new BitSet();
+        left.set(0, 10);
+        left.set(2 * CHUNK, 2 * CHUNK + 5000);
+        BitSet right = new BitSet();
+        right.set(CHUNK, CHUNK + 20_000);
+        right.set(2 * CHUNK + 4000, 2 * CHUNK + 4010);
+        CompressedBitmap a = bitmap(left);
+        CompressedBitmap b = bitmap(right);
+
+        BitSet and = (BitSet) left.clone();
+        and.and(right);
+        assertSame(and, a.and(b), "and");
+        assertSame(and, b.and(a), "and, swapped");
+        assertEquals(10, a.andCardinality(b));
+        assertEquals(10, b.andCardinality(a));
+
+        BitSet andNot = (BitSet) left.clone();
+        andNot.andNot(right);
+        assertSame(andNot, a.andNot(b), "andNot");
+
+        BitSet or = (BitSet) left.clone();
+        or.or(right);
+        assertSame(or, a.or(b), "or");
+        assertSame(or, b.or(a), "or, swapped");
+    }
+
+    @Test
+    void emptyOperands() {
+        CompressedBitmap some = CompressedBitmap.range(5000);
+        for (CompressedBitmap empty : List.of(CompressedBitmap.EMPTY, CompressedBitmap.builder().build(),
+                CompressedBitmap.of(new int[0], 0), CompressedBitmap.range(0))) {
+            assertTrue(empty.isEmpty());
+            assertEquals(0, empty.cardinality());
+            assertFalse(empty.contains(0));
+            assertArrayEquals(new int[0], empty.first(10));
+
+            assertTrue(some.and(empty).isEmpty());
+            assertTrue(empty.and(some).isEmpty());
+            assertEquals(0, some.andCardinality(empty));
+            assertEquals(0, empty.andCardinality(some));
+            assertEquals(5000, some.andNot(empty).cardinality());
+            assertTrue(empty.andNot(some).isEmpty());
+            assertEquals(5000, some.or(empty).cardinality());
+            assertEquals(5000, empty.or(some).cardinality());
+            assertTrue(empty.or(empty).isEmpty());
+        }
+        assertTrue(CompressedBitmap.or(List.of()).isEmpty());
+    }
+
+    @Test
+    void firstReturnsTheSmallestValuesInOrder() {
+        BitSet set = new BitSet();
+        set.set(3);
+        set.set(70_000);
+        set.set(CHUNK * 2 + 1, CHUNK * 2 + 6000);
+        CompressedBitmap bitmap = bitmap(set);
+
+        assertArrayEquals(new int[0], bitmap.first(0));
+        assertArrayEquals(new int[] {3}, bitmap.first(1));
+        assertArrayEquals(new int[] {3, 70_000, CHUNK * 2 + 1, CHUNK * 2 + 2}, bitmap.first(4));
+        assertArrayEquals(set.stream().toArray(), bitmap.first(Integer.MAX_VALUE));
+        assertArrayEquals(set.stream().limit(5000).toArray(), bitmap.first(5000));
+    }
+
+    @Test
+    void switchesToABitsetPastFourThousandValuesInAChunk() {
+        CompressedBitmap array = CompressedBitmap.range(4096);
+        CompressedBitmap bitset = CompressedBitmap.range(4097);
+        // An array grows with its values, a bitset is the same size however full
+        assertTrue(CompressedBitmap.range(4095).sizeInBytes() < array.sizeInBytes());
+        assertEquals(CompressedBitmap.range(CHUNK).sizeInBytes(), bitset.sizeInBytes());
+        assertEquals(4096, array.cardinality());
+        assertEquals(4097, bitset.cardinality());
+        assertTrue(bitset.contains(4096));
+        assertFalse(array.contains(4096));
+    }
+
+    @Test
+    void builderTakesAscendingValuesOnly() {
+        assertEquals(2, CompressedBitmap.builder().add(1).add(1).add(2).build().cardinality());
+        assertThrows(IllegalStateException.class, () -> CompressedBitmap.builder().add(5).add(4));
+        assertThrows(IllegalStateException.class, () -> CompressedBitmap.builder().add(CHUNK).add(1));
+    }
+
+    private static void assertSame(BitSet expected, CompressedBitmap actual, String message) {
+        assertEquals(expected.cardinality(), actual.cardinality(), message + ": cardinality");
+        assertEquals(expected.isEmpty(), actual.isEmpty(), message + ": isEmpty");
+        List<Integer> values = new ArrayList<>();
+        actual.forEach(values::add);
+        assertEquals(expected.stream().boxed().toList(), values, message + ": values");
+        assertArrayEquals(expected.stream().limit(10).toArray(), actual.first(10), message + ": first");
+        for (int value = expected.nextSetBit(0); value >= 0; value = expected.nextSetBit(value + 997)) {
+            assertTrue(actual.contains(value), message + ": contains " + value);
+            assertEquals(expected.get(value + 1), actual.contains(value + 1), message + ": contains " + (value + 1));
+        }
+    }
+
+    // Up to four chunks, each of a random size from CHUNK_SIZES
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet();
+        for (int chunk = 0; chunk < 4; chunk++) {
+            int size = CHUNK_SIZES[random.nextInt(CHUNK_SIZES.length)];
+            if (size == CHUNK) {
+                set.set(chunk * CHUNK, (chunk + 1) * CHUNK);
+            } else if (random.nextBoolean()) {
+                // A run, so operands overlap heavily
+                int start = chunk * CHUNK + random.nextInt(CHUNK - size + 1);
+                set.set(start, start + size);
+            } else {
+                BitSet values = new BitSet();
+                while (values.cardinality() < size) {
+                    values.set(random.nextInt(CHUNK));
+                }
+                int high = chunk * CHUNK;
+                values.stream().forEach(value -> set.set(high + value));
+            }
+        }
+        return set;
+    }
+
+    private static CompressedBitmap bitmap(BitSet set) {
+        CompressedBitmap.Builder builder = CompressedBitmap.builder();
+        set.stream().forEach(builder::add);
+        return builder.build();
+    }
+}
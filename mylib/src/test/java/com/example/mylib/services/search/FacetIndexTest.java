@@ -0,0 +1,134 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.enums.BookFacet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FacetIndexTest {
+
+    private static final int BOOKS = 12_000;
+
+    private final Random random = new Random(5);
+    private final String[][] books = new String[BOOKS][];
+    private final FacetIndex index;
+
+    FacetIndexTest() {
+        FacetIndex.Builder builder = FacetIndex.builder();
+        for (int doc = 0; doc < BOOKS; doc++) {
+            // Skewed, so some values have a bitset chunk and some an array; some books have no value
+            books[doc] = new String[] {
+                    pick("Fiction", "History", "Science", "Poetry", null),
+                    pick("English", "English", "English", "French", "German"),
+                    pick("Penguin", "Vintage", "Orbit", null, null),
+                    String.valueOf(1990 + random.nextInt(30))
+            };
+            builder.addBook(10L + doc * 3L, books[doc][0], books[doc][1], books[doc][2], books[doc][3]);
+        }
+        index = builder.build();
+    }
+
+    @Test
+    void mapsBooksToDocsAndValues() {
+        assertEquals(BOOKS, index.size());
+        assertEquals(2, index.indexOfBook(16));
+        assertEquals(16, index.bookId(2));
+        assertEquals(List.of("Fiction", "History", "Poetry", "Science"), index.values(BookFacet.CATEGORY));
+        assertEquals(books[7][1], index.value(BookFacet.LANGUAGE, 7));
+        assertNull(FacetIndex.valueOf("  "));
+        assertEquals("Orbit", FacetIndex.valueOf(" Orbit "));
+    }
+
+    @Test
+    void countsTheWholeCatalog() {
+        check(null, new int[0], Map.of());
+        check(null, new int[] {0, 5, 6, BOOKS - 1}, Map.of());
+    }
+
+    @Test
+    void countsEachFacetOverTheOtherFilters() {
+        check(null, new int[0], Map.of(BookFacet.LANGUAGE, List.of("French")));
+        check(null, new int[] {1, 2, 3}, Map.of(BookFacet.LANGUAGE, List.of("French", "German")));
+        check(null, new int[0], Map.of(
+                BookFacet.CATEGORY, List.of("History", "Poetry"),
+                BookFacet.PUBLISHER, List.of("Orbit"),
+                BookFacet.EDITION, List.of("1999", "2000", "unknown")));
+        // Selecting nothing is no filter; selecting only unknown values matches nothing
+        check(null, new int[0], Map.of(BookFacet.CATEGORY, List.of()));
+        check(null, new int[0], Map.of(BookFacet.CATEGORY, List.of("Cookery")));
+    }
+
+    @Test
+    void countsTheBooksMatchingTheQuery() {
+        // Many candidates are counted by intersecting bitmaps, few by looking each book up
+        for (int every : new int[] {2, 50, 3000}) {
+            CompressedBitmap.Builder candidates = CompressedBitmap.builder();
+            for (int doc = 0; doc < BOOKS; doc += every) {
+                candidates.add(doc);
+            }
+            CompressedBitmap query = candidates.build();
+            check(query, new int[0], Map.of());
+            check(query, new int[] {0, every}, Map.of(BookFacet.LANGUAGE, List.of("English")));
+            check(query, new int[0], Map.of(
+                    BookFacet.LANGUAGE, List.of("English"), BookFacet.CATEGORY, List.of("Fiction")));
+        }
+        check(CompressedBitmap.EMPTY, new int[0], Map.of(BookFacet.CATEGORY, List.of("Fiction")));
+    }
+
+    // Compares count() with a scan of every book
+    private void check(CompressedBitmap candidates, int[] excluded, Map<BookFacet, List<String>> selected) {
+        Set<Integer> excludedDocs = new TreeSet<>();
+        for (int doc : excluded) {
+            excludedDocs.add(doc);
+        }
+        FacetIndex.Counts counts = index.count(candidates, excluded, selected);
+
+        List<Integer> matches = new ArrayList<>();
+        Map<BookFacet, int[]> expected = new EnumMap<>(BookFacet.class);
+        for (BookFacet facet : BookFacet.values()) {
+            expected.put(facet, new int[index.values(facet).size()]);
+        }
+        for (int doc = 0; doc < BOOKS; doc++) {
+            if ((candidates != null && !candidates.contains(doc)) || excludedDocs.contains(doc)) {
+                continue;
+            }
+            List<BookFacet> failed = new ArrayList<>();
+            for (Map.Entry<BookFacet, List<String>> filter : selected.entrySet()) {
+                String value = books[doc][filter.getKey().ordinal()];
+                if (!filter.getValue().isEmpty() && (value == null || !filter.getValue().contains(value))) {
+                    failed.add(filter.getKey());
+                }
+            }
+            if (failed.isEmpty()) {
+                matches.add(doc);
+            }
+            for (BookFacet facet : BookFacet.values()) {
+                String value = books[doc][facet.ordinal()];
+                if (value != null && (failed.isEmpty() || failed.equals(List.of(facet)))) {
+                    expected.get(facet)[index.values(facet).indexOf(value)]++;
+                }
+            }
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        counts.matches().forEach(actual::add);
+        assertEquals(matches, actual, "matches for " + selected);
+        for (BookFacet facet : BookFacet.values()) {
+            assertArrayEquals(expected.get(facet), counts.counts().get(facet), facet + " counts for " + selected);
+        }
+    }
+
+    private String pick(String... values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.mylib.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE / 2;
+
+    private final FuzzyIndex index = FuzzyIndex.builder()
+            .addBook(1, "The Hobbit", "J. R. R. Tolkien", 50)
+            .addBook(2, "The Silmarillion", "J. R. R. Tolkien", 10)
+            .addBook(3, "The Fellowship of the Ring", "J. R. R. Tolkien", 90)
+            .addBook(4, "Dune", "Frank Herbert", 70)
+            .addBook(5, "The Hobbit Companion", "David Day", 5)
+            .build();
+
+    @Test
+    void findsAWordOneTypoAway() {
+        // A swap of adjacent letters: two Levenshtein edits, one typo
+        assertEquals(Map.of("tolkien", 1), expansions("tolkein"));
+        // A dropped letter
+        assertEquals(Map.of("hobbit", 1), expansions("hobit"));
+    }
+
+    @Test
+    void findsAWordTwoTyposAway() {
+        assertEquals(Map.of("silmarillion", 2), expansions("silmarlion"));
+    }
+
+    @Test
+    void doesNotFindWordsMoreTyposAwayThanAllowed() {
+        // Three letters dropped
+        assertEquals(Map.of(), expansions("slmarlion"));
+        // Words under four letters must match exactly
+        assertEquals(0, FuzzyIndex.allowedEdits("dun"));
+        assertEquals(Map.of(), expansions("dun"));
+    }
+
+    @Test
+    void includesTheExactTermFirst() {
+        FuzzyIndex.Expansions expansions = index.expand("hobbit", 2, 10, NO_DEADLINE);
+        assertEquals("hobbit", expansions.terms().get(0).text());
+        assertEquals(0, expansions.terms().get(0).distance());
+        assertTrue(expansions.complete());
+    }
+
+    @Test
+    void ranksBooksByTyposThenPopularity() {
+        FuzzyIndex.Matches matches = search("tolkein");
+        assertEquals(List.of(3L, 1L, 2L), bookIds(matches));
+        assertTrue(matches.matches().stream().allMatch(match -> match.edits() == 1));
+
+        // Every word must match, and equal edits go to the more popular book
+        assertEquals(List.of(1L), bookIds(search("hobit tolkein")));
+        assertEquals(List.of(1L, 5L), bookIds(search("hobbit")));
+        assertEquals(List.of(5L), bookIds(index.search(List.of(expand("hobbit")), 10, NO_DEADLINE, id -> id == 1)));
+    }
+
+    @Test
+    void treePruningFindsWhatAScanOfEveryTermFinds() {
+        Random random = new Random(7);
+        Set<String> vocabulary = new TreeSet<>();
+        FuzzyIndex.Builder builder = FuzzyIndex.builder();
+        for (int book = 1; book <= 2000; book++) {
+            String title = word(random) + " " + word(random);
+            String author = word(random);
+            builder.addBook(book, title, author, 0);
+            for (String word : SearchText.words(title + " " + author)) {
+                if (!SearchText.isStopWord(word)) {
+                    vocabulary.add(word);
+                }
+            }
+        }
+        FuzzyIndex large = builder.build();
+        assertEquals(vocabulary.size(), large.termCount());
+
+        List<String> terms = new ArrayList<>(vocabulary);
+        for (int i = 0; i < 300; i++) {
+            String query = i % 2 == 0 ? mutate(terms.get(random.nextInt(terms.size())), random) : word(random);
+            int maxEdits = FuzzyIndex.allowedEdits(query);
+            int radius = Math.min(maxEdits + 1, 2 * maxEdits);
+            Set<String> expected = new TreeSet<>();
+            for (String term : terms) {
+                int distance = SearchText.distance(query, term, query.length() + term.length());
+                if (distance == 0 || (distance <= radius && SearchText.typos(query, term, maxEdits) <= maxEdits)) {
+                    expected.add(term);
+                }
+            }
+            Set<String> found = large.expand(query, maxEdits, Integer.MAX_VALUE, NO_DEADLINE).terms().stream()
+                    .map(FuzzyIndex.Expansion::text)
+                    .collect(Collectors.toCollection(TreeSet::new));
+            assertEquals(expected, found, "expansions of " + query);
+        }
+    }
+
+    @Test
+    void expansionStopsAtTheDeadlineWithWhatItFound() {
+        FuzzyIndex.Builder builder = FuzzyIndex.builder();
+        Random random = new Random(11);
+        for (int book = 1; book <= 500; book++) {
+            builder.addBook(book, word(random) + " " + word(random), word(random), 0);
+        }
+        builder.addBook(501, "Tolkien", "Tolkien", 0);
+        FuzzyIndex large = builder.build();
+        assertTrue(large.termCount() > 64);
+
+        FuzzyIndex.Expansions expired = large.expand("tolkien", 2, 100, System.nanoTime() - 1);
+        assertFalse(expired.complete());
+        // The exact term is looked up before the tree is searched
+        assertEquals("tolkien", expired.terms().get(0).text());
+
+        FuzzyIndex.Matches matches = large.search(List.of(expired), 10, NO_DEADLINE, id -> false);
+        assertFalse(matches.complete());
+        assertEquals(List.of(501L), bookIds(matches));
+    }
+
+    @Test
+    void searchStopsAtTheDeadlineWithTheBooksMatchedSoFar() {
+        FuzzyIndex.Builder builder = FuzzyIndex.builder();
+        int books = 20_000;
+        for (int book = 1; book <= books; book++) {
+            builder.addBook(book, "Common " + (book % 2 == 0 ? "even" : "odd"), "Author", book);
+        }
+        FuzzyIndex large = builder.build();
+        List<FuzzyIndex.Expansions> words = List.of(large.expand("common", 0, 10, NO_DEADLINE));
+
+        FuzzyIndex.DocMatches all = large.matchingDocs(words, NO_DEADLINE);
+        assertTrue(all.complete());
+        assertEquals(books, all.docs().cardinality());
+
+        long expired = System.nanoTime() - 1;
+        FuzzyIndex.DocMatches partial = large.matchingDocs(words, expired);
+        assertFalse(partial.complete());
+        assertTrue(partial.docs().cardinality() > 0 && partial.docs().cardinality() < books);
+
+        FuzzyIndex.Matches matches = large.search(words, 10, expired, id -> false);
+        assertFalse(matches.complete());
+        assertEquals(10, matches.matches().size());
+
+        // Intersecting with a second word stops early too
+        List<FuzzyIndex.Expansions> two = List.of(words.get(0), large.expand("author", 0, 10, NO_DEADLINE));
+        assertFalse(large.matchingDocs(two, expired).complete());
+    }
+
+    private Map<String, Integer> expansions(String word) {
+        return expand(word).terms().stream()
+                .collect(Collectors.toMap(FuzzyIndex.Expansion::text, FuzzyIndex.Expansion::distance));
+    }
+
+    private FuzzyIndex.Expansions expand(String word) {
+        return index.expand(word, FuzzyIndex.allowedEdits(word), 10, NO_DEADLINE);
+    }
+
+    private FuzzyIndex.Matches search(String query) {
+        List<FuzzyIndex.Expansions> words = FuzzyIndex.queryWords(query).stream().map(this::expand).toList();
+        return index.search(words, 10, NO_DEADLINE, id -> false);
+    }
+
+    private static List<Long> bookIds(FuzzyIndex.Matches matches) {
+        return matches.matches().stream().map(FuzzyIndex.Match::bookId).toList();
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 4 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(8)));
+        }
+        return word.toString();
+    }
+
+    // One or two random edits: a substitution, deletion, insertion or swap of adjacent letters
+    private static String mutate(String word, Random random) {
+        StringBuilder mutated = new StringBuilder(word);
+        for (int edits = 1 + random.nextInt(2); edits > 0 && mutated.length() > 2; edits--) {
+            int at = random.nextInt(mutated.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0 -> mutated.setCharAt(at, (char) ('a' + random.nextInt(8)));
+                case 1 -> mutated.deleteCharAt(at);
+                case 2 -> mutated.insert(at, (char) ('a' + random.nextInt(8)));
+                default -> {
+                    char c = mutated.charAt(at);
+                    mutated.setCharAt(at, mutated.charAt(at + 1));
+                    mutated.setCharAt(at + 1, c);
+                }
+            }
+        }
+        return mutated.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.mylib.services.search;
+
+import com.example.mylib.dto.SuggestionDTO;
+import com.example.mylib.enums.SuggestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTest {
+
+    private static final String[] WORDS = {"lord", "of", "the", "rings", "ring", "return", "king", "kingdom",
+            "dune", "dust", "a", "tale", "tales", "two", "cities", "city", "war", "peace", "wart", "and"};
+    private static final String[] AUTHORS = {"Tolkien", "TOLKIEN", "Frank Herbert", "Charles Dickens",
+            "Leo Tolstoy", "Terry Pratchett", "  Ursula Le Guin ", "Le Carre", "", null};
+
+    private final Random random = new Random(17);
+
+    @Test
+    void heavierFirstAndTiesInKeyOrder() {
+        PrefixIndex index = PrefixIndex.builder()
+                .addTitle(1, "Beetles", null, 2)
+                .addTitle(2, "Bee Keeping", null, 2)
+                .addTitle(3, "The Bear", "Bea Smith", 2)
+                .addTitle(4, "Honey", "Bea Smith", 1)
+                .build();
+
+        assertEquals(List.of("Bea Smith", "The Bear", "Bee Keeping", "Beetles"),
+                texts(index.top("be", 10, id -> false)));
+        assertEquals(List.of("Bea Smith", "The Bear"), texts(index.top("be", 2, id -> false)));
+        assertEquals(List.of("Bea Smith", "Bee Keeping"), texts(index.top("be", 2, id -> id == 3)));
+        // "the" is a stop word, so only a key where it starts the title
+        assertEquals(List.of("The Bear"), texts(index.top("the", 10, id -> false)));
+        assertEquals(List.of(), texts(index.top("bez", 10, id -> false)));
+        assertEquals(List.of(), texts(index.top("be", 0, id -> false)));
+        assertEquals(3, index.indexOfBook(4));
+        assertEquals(-1, index.indexOfBook(5));
+        assertThrows(IllegalStateException.class,
+                () -> PrefixIndex.builder().addTitle(2, "B", null, 0).addTitle(1, "A", null, 0));
+    }
+
+    @Test
+    void topMatchesALinearScanOfEveryDocument() {
+        List<Doc> docs = new ArrayList<>();
+        PrefixIndex index = randomIndex(docs);
+        assertEquals(docs.size(), index.size());
+
+        List<String> prefixes = new ArrayList<>(List.of("", "zzz", "lord of", "the r", "tale ", "king", "war and p"));
+        for (String word : WORDS) {
+            for (int length = 1; length <= word.length(); length++) {
+                prefixes.add(word.substring(0, length));
+            }
+        }
+        for (String author : AUTHORS) {
+            String normalized = SearchText.normalize(author);
+            if (!normalized.isEmpty()) {
+                prefixes.add(normalized.substring(0, Math.min(normalized.length(), 4)));
+            }
+        }
+        LongPredicate none = id -> false;
+        LongPredicate some = id -> id % 5 == 0;
+        for (String prefix : prefixes) {
+            for (int limit : new int[] {1, 3, 10, 1000}) {
+                check(index, docs, prefix, limit, none);
+                check(index, docs, prefix, limit, some);
+            }
+        }
+    }
+
+    private static void check(PrefixIndex index, List<Doc> docs, String prefix, int limit, LongPredicate excluded) {
+        // Every document with a key starting with the prefix, by weight, then by the first such key
+        List<Match> expected = new ArrayList<>();
+        for (Doc doc : docs) {
+            if (doc.bookId != null && excluded.test(doc.bookId)) {
+                continue;
+            }
+            String first = null;
+            for (String key : doc.keys()) {
+                if (key.startsWith(prefix) && (first == null || key.compareTo(first) < 0)) {
+                    first = key;
+                }
+            }
+            assertEquals(first != null, PrefixIndex.matches(doc.normalized, prefix), doc.display);
+            if (first != null) {
+                expected.add(new Match(doc, first));
+            }
+        }
+        expected.sort(Comparator.comparingInt((Match match) -> -match.doc.weight).thenComparing(Match::key));
+
+        List<SuggestionDTO> actual = index.top(prefix, limit, excluded);
+        String query = "'" + prefix + "' limit " + limit;
+        assertEquals(Math.min(limit, expected.size()), actual.size(), query);
+        Map<Object, Match> byDoc = new LinkedHashMap<>();
+        expected.forEach(match -> byDoc.put(match.doc.id(), match));
+        Set<Object> seen = new HashSet<>();
+        for (int i = 0; i < actual.size(); i++) {
+            SuggestionDTO suggestion = actual.get(i);
+            Object id = suggestion.getType() == SuggestionType.TITLE ? suggestion.getBookId() : suggestion.getText();
+            Match match = byDoc.get(id);
+            assertNotNull(match, query + ": " + suggestion);
+            assertTrue(seen.add(id), query + ": twice " + suggestion);
+            assertEquals(match.doc.display, suggestion.getText());
+            assertEquals(match.doc.weight, suggestion.getScore());
+            // Documents equal on both are interchangeable; those that are not must come in order
+            assertEquals(expected.get(i).doc.weight, match.doc.weight, query + " at " + i);
+            assertEquals(expected.get(i).key, match.key, query + " at " + i);
+        }
+    }
+
+    private PrefixIndex randomIndex(List<Doc> docs) {
+        PrefixIndex.Builder builder = PrefixIndex.builder();
+        Map<String, Doc> authors = new LinkedHashMap<>();
+        long bookId = 0;
+        for (int i = 0; i < 200; i++) {
+            bookId += 1 + random.nextInt(3);
+            StringBuilder title = new StringBuilder();
+            for (int words = 1 + random.nextInt(4); words > 0; words--) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                title.append(random.nextBoolean() ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1))
+                        .append(' ');
+            }
+            String author = AUTHORS[random.nextInt(AUTHORS.length)];
+            // Few weights, so many documents tie
+            int weight = random.nextInt(4);
+            builder.addTitle(bookId, title.toString(), author, weight);
+            docs.add(new Doc(title.toString().strip(), SearchText.normalize(title.toString()), bookId, weight));
+            String authorKey = SearchText.normalize(author);
+            if (!authorKey.isEmpty()) {
+                Doc doc = authors.computeIfAbsent(authorKey, key -> new Doc(author.strip(), key, null, 0));
+                doc.weight += weight;
+            }
+        }
+        docs.addAll(authors.values());
+        return builder.build();
+    }
+
+    private static List<String> texts(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(SuggestionDTO::getText).toList();
+    }
+
+    private static final class Doc {
+        final String display;
+        final String normalized;
+        final Long bookId;
+        int weight;
+
+        Doc(String display, String normalized, Long bookId, int weight) {
+            this.display = display;
+            this.normalized = normalized;
+            this.bookId = bookId;
+            this.weight = weight;
+        }
+
+        Object id() {
+            return bookId != null ? bookId : display;
+        }
+
+        // The text from each word start that is a key: the first word, and every later one but stop words
+        List<String> keys() {
+            List<String> keys = new ArrayList<>();
+            int start = 0;
+            for (String word : SearchText.words(normalized)) {
+                if (start == 0 || !SearchText.isStopWord(word)) {
+                    keys.add(normalized.substring(start));
+                }
+                start += word.length() + 1;
+            }
+            return keys;
+        }
+    }
+
+    private record Match(Doc doc, String key) {
+    }
+}